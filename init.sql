@@ -71,6 +71,10 @@ CREATE TABLE IF NOT EXISTS seckill_item (
     price DECIMAL(10,2) NOT NULL COMMENT '商品原价',
     seckill_price DECIMAL(10,2) NOT NULL COMMENT '秒杀价格',
     stock INT DEFAULT 0 COMMENT '商品库存',
+    total_stock INT DEFAULT 0 COMMENT '活动总库存：剩余库存加已售出数量，用于库存对账',
+    stock_buckets INT DEFAULT 1 COMMENT '库存分桶数：1-不分桶，大于1时Redis库存拆分到多个key',
+    admission_rate INT COMMENT '准入令牌发放速率（每秒，单节点），为空时按剩余库存自动计算',
+    admission_burst INT COMMENT '准入令牌桶容量，为空时等于发放速率',
     is_active TINYINT DEFAULT 0 COMMENT '是否激活：0-未激活，1-已激活',
     start_time DATETIME COMMENT '秒杀开始时间',
     end_time DATETIME COMMENT '秒杀结束时间',
@@ -78,27 +82,65 @@ CREATE TABLE IF NOT EXISTS seckill_item (
     update_time DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     INDEX idx_is_active (is_active),
     INDEX idx_start_time (start_time),
-    INDEX idx_end_time (end_time)
+    INDEX idx_end_time (end_time),
+    INDEX idx_update_time (update_time)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='秒杀商品表';
 
 -- 秒杀订单表
 CREATE TABLE IF NOT EXISTS seckill_order (
     id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '订单ID',
-    order_no VARCHAR(50) UNIQUE NOT NULL COMMENT '订单号',
+    order_no BIGINT UNIQUE NOT NULL COMMENT '订单号：时间戳+节点ID+序列号，趋势递增',
     user_id BIGINT NOT NULL COMMENT '用户ID',
     item_id BIGINT NOT NULL COMMENT '秒杀商品ID',
     quantity INT DEFAULT 1 COMMENT '商品数量',
     amount DECIMAL(10,2) NOT NULL COMMENT '订单金额',
-    status TINYINT DEFAULT 0 COMMENT '订单状态：0-未支付，1-已支付，-1-已取消',
+    status TINYINT DEFAULT 0 COMMENT '订单状态：0-未支付，1-已支付，-1-已取消，-2-已超时',
     pay_time DATETIME COMMENT '支付时间',
     create_time DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     update_time DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
-    INDEX idx_user_id (user_id),
+    UNIQUE KEY uk_user_item (user_id, item_id),
     INDEX idx_item_id (item_id),
-    INDEX idx_status (status),
-    INDEX idx_order_no (order_no)
+    INDEX idx_status (status)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='秒杀订单表';
 
+-- 消息发件箱表
+CREATE TABLE IF NOT EXISTS seckill_outbox (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '消息ID，同一key的消息按ID顺序投递',
+    topic VARCHAR(64) NOT NULL COMMENT '消息主题',
+    message_key VARCHAR(64) NOT NULL COMMENT '消息key（订单号）',
+    body TEXT NOT NULL COMMENT '消息体',
+    retry_count INT DEFAULT 0 COMMENT '投递失败次数',
+    next_retry_time DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '下次投递时间',
+    claim_owner VARCHAR(128) COMMENT '认领投递的节点',
+    claim_expire_time DATETIME COMMENT '认领到期时间，到期后可被其他节点重新认领',
+    create_time DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    INDEX idx_message_key (message_key),
+    INDEX idx_claim_owner (claim_owner),
+    INDEX idx_next_retry_claim (next_retry_time, claim_expire_time),
+    INDEX idx_create_time (create_time)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='消息发件箱表：与订单在同一事务中写入，投递到RocketMQ后删除';
+
+-- 库存扣减模式表（单行），全集群统一在Redis扣减与MySQL降级扣减之间切换
+CREATE TABLE IF NOT EXISTS seckill_stock_mode (
+    id INT PRIMARY KEY COMMENT '固定为1',
+    mode VARCHAR(16) NOT NULL COMMENT '扣减模式：REDIS、DEGRADING-切换到MySQL中、MYSQL、RECOVERING-切回Redis中',
+    epoch BIGINT NOT NULL DEFAULT 0 COMMENT '模式版本，每次切换加1',
+    claim_owner VARCHAR(128) COMMENT '认领库存回灌的节点',
+    claim_seq BIGINT NOT NULL DEFAULT 0 COMMENT '回灌认领序号，作为Redis回灌栅栏',
+    claim_time DATETIME COMMENT '认领回灌时间，超时后可被其他节点重新认领',
+    update_time DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='库存扣减模式表';
+
+INSERT IGNORE INTO seckill_stock_mode (id, mode, epoch) VALUES (1, 'REDIS', 0);
+
+-- 库存扣减节点表，各节点定时心跳并确认已完成的模式版本
+CREATE TABLE IF NOT EXISTS seckill_stock_node (
+    node VARCHAR(128) PRIMARY KEY COMMENT '节点标识',
+    epoch BIGINT NOT NULL COMMENT '节点已完成切换的模式版本',
+    heartbeat_time DATETIME(3) NOT NULL COMMENT '最近心跳时间',
+    INDEX idx_heartbeat_time (heartbeat_time)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='库存扣减节点表';
+
 -- 插入测试数据
 USE ecommerce_admin;
 
@@ -118,7 +160,7 @@ INSERT INTO product (name, description, price, stock, category_id, status, creat
 USE ecommerce_seckill;
 
 -- 插入秒杀商品数据
-INSERT INTO seckill_item (title, description, price, seckill_price, stock, is_active, start_time, end_time) VALUES 
-('iPhone 15 秒杀', 'iPhone 15 限时秒杀', 5999.00, 4999.00, 10, 1, '2024-01-01 10:00:00', '2024-12-31 23:59:59'),
-('MacBook Pro 秒杀', 'MacBook Pro 限时秒杀', 12999.00, 9999.00, 5, 1, '2024-01-01 10:00:00', '2024-12-31 23:59:59'),
-('Nike运动鞋 秒杀', 'Nike运动鞋 限时秒杀', 299.00, 199.00, 20, 1, '2024-01-01 10:00:00', '2024-12-31 23:59:59'); 
\ No newline at end of file
+INSERT INTO seckill_item (title, description, price, seckill_price, stock, total_stock, is_active, start_time, end_time) VALUES 
+('iPhone 15 秒杀', 'iPhone 15 限时秒杀', 5999.00, 4999.00, 10, 10, 1, '2024-01-01 10:00:00', '2024-12-31 23:59:59'),
+('MacBook Pro 秒杀', 'MacBook Pro 限时秒杀', 12999.00, 9999.00, 5, 5, 1, '2024-01-01 10:00:00', '2024-12-31 23:59:59'),
+('Nike运动鞋 秒杀', 'Nike运动鞋 限时秒杀', 299.00, 199.00, 20, 20, 1, '2024-01-01 10:00:00', '2024-12-31 23:59:59'); 
\ No newline at end of file
@@ -3,6 +3,7 @@ package com.ecommerce.seckill;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * 秒杀服务启动类
@@ -12,6 +13,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  */
 @SpringBootApplication
 @MapperScan("com.ecommerce.seckill.dao")
+@EnableScheduling
 public class SeckillServiceApplication {
     
     public static void main(String[] args) {
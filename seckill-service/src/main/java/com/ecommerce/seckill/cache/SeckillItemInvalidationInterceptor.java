@@ -0,0 +1,91 @@
+package com.ecommerce.seckill.cache;
+
+import com.ecommerce.seckill.dao.SeckillItemMapper;
+import com.ecommerce.seckill.entity.SeckillItem;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 秒杀商品缓存失效拦截器
+ * 拦截SeckillItemMapper的写操作，在事务提交后失效对应商品的本地快照
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+@Component
+@Intercepts(@Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}))
+public class SeckillItemInvalidationInterceptor implements Interceptor {
+    
+    /**
+     * 需要失效缓存的写操作
+     */
+    private static final Set<String> STATEMENTS = new HashSet<>(Arrays.asList(
+        SeckillItemMapper.class.getName() + ".insert",
+        SeckillItemMapper.class.getName() + ".update",
+        SeckillItemMapper.class.getName() + ".deleteById"));
+    
+    /**
+     * 延迟注入，避免与SqlSessionFactory形成循环依赖
+     */
+    @Lazy
+    @Autowired
+    private SeckillItemRegistry seckillItemRegistry;
+    
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Object result = invocation.proceed();
+        
+        MappedStatement statement = (MappedStatement) invocation.getArgs()[0];
+        if (STATEMENTS.contains(statement.getId())) {
+            Long itemId = resolveItemId(invocation.getArgs()[1]);
+            if (itemId != null) {
+                invalidateAfterCommit(itemId);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * 从Mapper参数中解析商品ID
+     */
+    private Long resolveItemId(Object parameter) {
+        if (parameter instanceof SeckillItem) {
+            return ((SeckillItem) parameter).getId();
+        }
+        if (parameter instanceof Map && ((Map<?, ?>) parameter).containsKey("id")) {
+            Object id = ((Map<?, ?>) parameter).get("id");
+            return id instanceof Long ? (Long) id : null;
+        }
+        return parameter instanceof Long ? (Long) parameter : null;
+    }
+    
+    /**
+     * 存在事务时在提交后失效，避免其他节点读到未提交前的旧数据
+     */
+    private void invalidateAfterCommit(Long itemId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    seckillItemRegistry.invalidate(itemId);
+                }
+            });
+        } else {
+            seckillItemRegistry.invalidate(itemId);
+        }
+    }
+}
\ No newline at end of file
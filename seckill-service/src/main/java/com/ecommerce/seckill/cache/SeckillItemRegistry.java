@@ -0,0 +1,288 @@
+package com.ecommerce.seckill.cache;
+
+import com.ecommerce.seckill.dao.SeckillItemMapper;
+import com.ecommerce.seckill.entity.SeckillItem;
+import com.ecommerce.seckill.limit.AdmissionController;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 秒杀商品本地缓存
+ * 启动时批量加载所有在售商品的不可变快照，按update_time增量刷新；
+ * 商品被修改或删除时失效本地快照并通过Redis发布订阅通知其他节点
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class SeckillItemRegistry implements MessageListener {
+    
+    /**
+     * 商品失效广播频道
+     */
+    public static final String CHANNEL = "seckill:channel:item-invalidate";
+    
+    @Autowired
+    private SeckillItemMapper seckillItemMapper;
+    
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+    
+    @Autowired
+    private AdmissionController admissionController;
+    
+    /**
+     * 缓存商品数上限
+     */
+    @Value("${seckill.item-cache.max-size:10000}")
+    private Integer maxSize;
+    
+    /**
+     * 商品快照
+     */
+    private final Map<Long, SeckillItemSnapshot> snapshots = new ConcurrentHashMap<>();
+    
+    /**
+     * 是否已缓存全部在售商品
+     * 为true时未命中即可判定商品不存在或已下架，无需回源MySQL
+     */
+    private volatile boolean complete;
+    
+    /**
+     * 已加载的最大更新时间，作为增量刷新的起点
+     */
+    private volatile LocalDateTime lastUpdateTime;
+    
+    /**
+     * 订阅失效广播并批量加载在售商品
+     */
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+        try {
+            loadAll();
+        } catch (Exception e) {
+            // 加载失败时保持非完整状态，未命中的请求回源MySQL
+            log.error("批量加载秒杀商品缓存失败: {}", e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * 获取商品快照
+     * 仅在缓存不完整且未命中时回源MySQL
+     * 
+     * @param itemId 商品ID
+     * @return 商品快照，不存在或已下架时返回null
+     */
+    public SeckillItemSnapshot get(Long itemId) {
+        SeckillItemSnapshot snapshot = snapshots.get(itemId);
+        if (snapshot != null || complete) {
+            return snapshot;
+        }
+        SeckillItem item = seckillItemMapper.selectById(itemId);
+        if (item == null) {
+            return null;
+        }
+        return cache(item);
+    }
+    
+    /**
+     * 获取商品库存分桶数
+     * 
+     * @param itemId 商品ID
+     * @return 分桶数，商品不存在时按不分桶处理
+     */
+    public int getStockBuckets(Long itemId) {
+        SeckillItemSnapshot snapshot = get(itemId);
+        return snapshot != null ? snapshot.getStockBuckets() : 1;
+    }
+    
+    /**
+     * 获取已缓存商品的库存分桶数（不回源MySQL），用于批量读取等不能逐个回源的场景
+     * 
+     * @param itemId 商品ID
+     * @return 分桶数，未缓存时按不分桶处理
+     */
+    public int getCachedStockBuckets(Long itemId) {
+        SeckillItemSnapshot snapshot = snapshots.get(itemId);
+        return snapshot != null ? snapshot.getStockBuckets() : 1;
+    }
+    
+    /**
+     * 本地是否已缓存商品快照（不回源MySQL）
+     * 
+     * @param itemId 商品ID
+     * @return 是否已缓存
+     */
+    public boolean contains(Long itemId) {
+        return snapshots.containsKey(itemId);
+    }
+    
+    /**
+     * 批量加载所有在售商品
+     */
+    public synchronized void loadAll() {
+        LocalDateTime now = LocalDateTime.now();
+        List<SeckillItem> items = seckillItemMapper.selectOnSale(now, maxSize + 1);
+        Set<Long> loadedIds = new HashSet<>(items.size() * 2);
+        LocalDateTime maxUpdateTime = null;
+        for (SeckillItem item : items) {
+            cache(item);
+            loadedIds.add(item.getId());
+            maxUpdateTime = max(maxUpdateTime, item.getUpdateTime());
+        }
+        // 原地剔除不再在售的商品，加载期间读请求仍可命中旧快照
+        for (Long itemId : new ArrayList<>(snapshots.keySet())) {
+            if (!loadedIds.contains(itemId)) {
+                evict(itemId);
+            }
+        }
+        complete = items.size() <= maxSize;
+        lastUpdateTime = maxUpdateTime != null ? maxUpdateTime : now;
+        log.info("秒杀商品缓存加载完成，商品数: {}, 完整缓存: {}", snapshots.size(), complete);
+    }
+    
+    /**
+     * 预热指定商品（活动开始前调用）
+     * 
+     * @param items 商品列表
+     */
+    public void warm(List<SeckillItem> items) {
+        for (SeckillItem item : items) {
+            cache(item);
+        }
+    }
+    
+    /**
+     * 失效商品快照并通知所有节点重新加载
+     * 
+     * @param itemId 商品ID
+     */
+    public void invalidate(Long itemId) {
+        reload(itemId);
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, itemId.toString());
+        } catch (Exception e) {
+            log.error("广播商品失效失败，商品ID: {}, 错误: {}", itemId, e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * 按update_time增量刷新，同时清理已结束的商品
+     */
+    @Scheduled(fixedDelayString = "${seckill.item-cache.refresh-interval-ms:5000}")
+    public void refresh() {
+        LocalDateTime since = lastUpdateTime;
+        if (since == null) {
+            loadAll();
+            return;
+        }
+        try {
+            // update_time精度为秒，按大于等于查询，重复处理同一秒内的更新是幂等的
+            List<SeckillItem> items = seckillItemMapper.selectUpdatedSince(since);
+            LocalDateTime maxUpdateTime = since;
+            for (SeckillItem item : items) {
+                SeckillItemSnapshot current = snapshots.get(item.getId());
+                if (current == null || !equalsNullable(current.getUpdateTime(), item.getUpdateTime())) {
+                    cache(item);
+                }
+                maxUpdateTime = max(maxUpdateTime, item.getUpdateTime());
+            }
+            lastUpdateTime = maxUpdateTime;
+            
+            LocalDateTime now = LocalDateTime.now();
+            snapshots.forEach((itemId, snapshot) -> {
+                if (snapshot.getEndTime() != null && snapshot.getEndTime().isBefore(now)) {
+                    evict(itemId);
+                }
+            });
+        } catch (Exception e) {
+            log.error("增量刷新秒杀商品缓存失败: {}", e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            reload(Long.valueOf(body));
+        } catch (Exception e) {
+            log.warn("处理商品失效广播失败，消息: {}, 错误: {}", body, e.getMessage());
+        }
+    }
+    
+    /**
+     * 从MySQL重新加载单个商品
+     */
+    private void reload(Long itemId) {
+        SeckillItem item = seckillItemMapper.selectById(itemId);
+        if (item == null) {
+            evict(itemId);
+        } else {
+            cache(item);
+        }
+        log.debug("秒杀商品缓存已刷新，商品ID: {}", itemId);
+    }
+    
+    /**
+     * 写入快照，未激活或已结束的商品直接移除；超出上限时不再缓存
+     */
+    private SeckillItemSnapshot cache(SeckillItem item) {
+        SeckillItemSnapshot snapshot = SeckillItemSnapshot.of(item);
+        boolean ended = snapshot.getEndTime() != null && snapshot.getEndTime().isBefore(LocalDateTime.now());
+        if (!snapshot.isActive() || ended) {
+            evict(item.getId());
+            return snapshot;
+        }
+        if (snapshots.size() >= maxSize && !snapshots.containsKey(item.getId())) {
+            complete = false;
+            return snapshot;
+        }
+        snapshots.put(item.getId(), snapshot);
+        return snapshot;
+    }
+    
+    /**
+     * 移除商品快照，同时释放该商品的准入令牌桶
+     */
+    private void evict(Long itemId) {
+        snapshots.remove(itemId);
+        admissionController.evict(itemId);
+    }
+    
+    private static LocalDateTime max(LocalDateTime a, LocalDateTime b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        return a.isAfter(b) ? a : b;
+    }
+    
+    private static boolean equalsNullable(LocalDateTime a, LocalDateTime b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
\ No newline at end of file
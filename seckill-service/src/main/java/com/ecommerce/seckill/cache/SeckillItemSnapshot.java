@@ -0,0 +1,97 @@
+package com.ecommerce.seckill.cache;
+
+import com.ecommerce.seckill.entity.SeckillItem;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 秒杀商品不可变快照
+ * 只保留下单校验需要的字段，供本地缓存在多线程间安全共享
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+@Value
+public class SeckillItemSnapshot {
+    
+    /**
+     * 秒杀商品ID
+     */
+    Long id;
+    
+    /**
+     * 秒杀价格
+     */
+    BigDecimal seckillPrice;
+    
+    /**
+     * 商品库存
+     */
+    Integer stock;
+    
+    /**
+     * 库存分桶数
+     */
+    int stockBuckets;
+    
+    /**
+     * 准入令牌发放速率（每秒），为空时按剩余库存自动计算
+     */
+    Integer admissionRate;
+    
+    /**
+     * 准入令牌桶容量
+     */
+    Integer admissionBurst;
+    
+    /**
+     * 是否激活（0-未激活，1-已激活）
+     */
+    Integer isActive;
+    
+    /**
+     * 秒杀开始时间
+     */
+    LocalDateTime startTime;
+    
+    /**
+     * 秒杀结束时间
+     */
+    LocalDateTime endTime;
+    
+    /**
+     * 更新时间，用于判断快照是否需要刷新
+     */
+    LocalDateTime updateTime;
+    
+    /**
+     * 从实体创建快照
+     * 
+     * @param item 秒杀商品
+     * @return 快照
+     */
+    public static SeckillItemSnapshot of(SeckillItem item) {
+        int stockBuckets = item.getStockBuckets() != null && item.getStockBuckets() > 1 ? item.getStockBuckets() : 1;
+        return new SeckillItemSnapshot(item.getId(), item.getSeckillPrice(), item.getStock(), stockBuckets,
+            item.getAdmissionRate(), item.getAdmissionBurst(), item.getIsActive(), item.getStartTime(), item.getEndTime(), item.getUpdateTime());
+    }
+    
+    /**
+     * 是否处于激活状态
+     */
+    public boolean isActive() {
+        return isActive != null && isActive == 1;
+    }
+    
+    /**
+     * 指定时间是否在秒杀时间窗口内
+     * 
+     * @param time 时间
+     * @return 是否在窗口内
+     */
+    public boolean isOnSale(LocalDateTime time) {
+        return startTime != null && endTime != null && !time.isBefore(startTime) && !time.isAfter(endTime);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,200 @@
+package com.ecommerce.seckill.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 本地售罄标记
+ * 售罄后的请求直接在JVM内拒绝，不再访问MySQL和Redis；
+ * 标记变更通过Redis发布订阅广播到所有节点
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class SoldOutRegistry implements MessageListener {
+    
+    /**
+     * 售罄广播频道
+     */
+    public static final String CHANNEL = "seckill:channel:sold-out";
+    
+    /**
+     * 标记售罄的消息前缀
+     */
+    private static final char MARK = '+';
+    
+    /**
+     * 取消售罄的消息前缀
+     */
+    private static final char UNMARK = '-';
+    
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+    
+    /**
+     * 售罄标记有效期（毫秒）
+     * 过期后放行请求到Redis重新确认，防止广播乱序导致回滚后的库存一直无法售出
+     */
+    @Value("${seckill.sold-out.ttl-ms:1000}")
+    private Long ttlMillis;
+    
+    /**
+     * 当前售罄快照，写时复制
+     * 售罄状态变更极少而读取极多，读路径只做一次二分查找，无锁无装箱
+     */
+    private volatile Snapshot snapshot = new Snapshot(new long[0], new long[0]);
+    
+    /**
+     * 订阅售罄广播
+     */
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+        log.info("售罄标记初始化完成，订阅频道: {}, 标记有效期: {}ms", CHANNEL, ttlMillis);
+    }
+    
+    /**
+     * 商品是否已售罄
+     * 
+     * @param itemId 商品ID
+     * @return 是否售罄
+     */
+    public boolean isSoldOut(long itemId) {
+        Snapshot current = snapshot;
+        int index = Arrays.binarySearch(current.itemIds, itemId);
+        return index >= 0 && current.expireAts[index] > System.currentTimeMillis();
+    }
+    
+    /**
+     * 标记售罄并广播
+     * 
+     * @param itemId 商品ID
+     */
+    public void markSoldOut(long itemId) {
+        if (add(itemId)) {
+            publish(MARK, itemId);
+        }
+    }
+    
+    /**
+     * 取消售罄标记并广播（库存回滚后调用）
+     * 
+     * @param itemId 商品ID
+     */
+    public void unmarkSoldOut(long itemId) {
+        remove(itemId);
+        // 其他节点可能已标记售罄，无论本地是否变化都需要广播
+        publish(UNMARK, itemId);
+    }
+    
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        if (body.length() < 2) {
+            return;
+        }
+        try {
+            long itemId = Long.parseLong(body.substring(1));
+            if (body.charAt(0) == MARK) {
+                add(itemId);
+            } else if (body.charAt(0) == UNMARK) {
+                remove(itemId);
+            }
+        } catch (NumberFormatException e) {
+            log.warn("忽略无法解析的售罄广播消息: {}", body);
+        }
+    }
+    
+    /**
+     * 加入本地售罄集合，已存在则续期
+     * 
+     * @return 是否为新标记（需要广播）
+     */
+    private synchronized boolean add(long itemId) {
+        long now = System.currentTimeMillis();
+        Snapshot current = snapshot;
+        int index = Arrays.binarySearch(current.itemIds, itemId);
+        if (index >= 0) {
+            boolean expired = current.expireAts[index] <= now;
+            long[] expireAts = current.expireAts.clone();
+            expireAts[index] = now + ttlMillis;
+            snapshot = new Snapshot(current.itemIds, expireAts);
+            return expired;
+        }
+        int insertAt = -index - 1;
+        int size = current.itemIds.length;
+        long[] itemIds = new long[size + 1];
+        long[] expireAts = new long[size + 1];
+        System.arraycopy(current.itemIds, 0, itemIds, 0, insertAt);
+        System.arraycopy(current.expireAts, 0, expireAts, 0, insertAt);
+        itemIds[insertAt] = itemId;
+        expireAts[insertAt] = now + ttlMillis;
+        System.arraycopy(current.itemIds, insertAt, itemIds, insertAt + 1, size - insertAt);
+        System.arraycopy(current.expireAts, insertAt, expireAts, insertAt + 1, size - insertAt);
+        snapshot = new Snapshot(itemIds, expireAts);
+        log.info("商品 {} 已标记售罄", itemId);
+        return true;
+    }
+    
+    /**
+     * 移出本地售罄集合
+     */
+    private synchronized void remove(long itemId) {
+        Snapshot current = snapshot;
+        int index = Arrays.binarySearch(current.itemIds, itemId);
+        if (index < 0) {
+            return;
+        }
+        int size = current.itemIds.length;
+        long[] itemIds = new long[size - 1];
+        long[] expireAts = new long[size - 1];
+        System.arraycopy(current.itemIds, 0, itemIds, 0, index);
+        System.arraycopy(current.expireAts, 0, expireAts, 0, index);
+        System.arraycopy(current.itemIds, index + 1, itemIds, index, size - index - 1);
+        System.arraycopy(current.expireAts, index + 1, expireAts, index, size - index - 1);
+        snapshot = new Snapshot(itemIds, expireAts);
+        log.info("商品 {} 已取消售罄标记", itemId);
+    }
+    
+    /**
+     * 广播售罄状态变更
+     */
+    private void publish(char action, long itemId) {
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, action + Long.toString(itemId));
+        } catch (Exception e) {
+            log.error("广播售罄状态失败，商品ID: {}, 错误: {}", itemId, e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * 售罄快照：有序商品ID及对应的标记过期时间
+     */
+    private static final class Snapshot {
+        
+        private final long[] itemIds;
+        
+        private final long[] expireAts;
+        
+        private Snapshot(long[] itemIds, long[] expireAts) {
+            this.itemIds = itemIds;
+            this.expireAts = expireAts;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,48 @@
+package com.ecommerce.seckill.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+/**
+ * Redis配置
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+@Configuration
+public class RedisConfig {
+    
+    /**
+     * 秒杀使用的RedisTemplate
+     * key和value均按字符串序列化，保证Lua脚本中的GET/DECRBY/INCRBY可以直接处理库存数值
+     */
+    @Bean("redisTemplate")
+    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory) {
+        RedisTemplate<String, Object> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        
+        StringRedisSerializer keySerializer = new StringRedisSerializer();
+        GenericToStringSerializer<Object> valueSerializer = new GenericToStringSerializer<>(Object.class);
+        template.setKeySerializer(keySerializer);
+        template.setHashKeySerializer(keySerializer);
+        template.setValueSerializer(valueSerializer);
+        template.setHashValueSerializer(valueSerializer);
+        template.afterPropertiesSet();
+        return template;
+    }
+    
+    /**
+     * Redis发布订阅监听容器，用于节点间广播本地缓存变更
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+}
\ No newline at end of file
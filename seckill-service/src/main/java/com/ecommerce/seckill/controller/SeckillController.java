@@ -1,13 +1,21 @@
 package com.ecommerce.seckill.controller;
 
 import com.ecommerce.common.result.Result;
-import com.ecommerce.seckill.entity.SeckillItem;
+import com.ecommerce.seckill.limit.ClientIpResolver;
+import com.ecommerce.seckill.limit.SeckillRateLimiter;
+import com.ecommerce.seckill.service.PreheatService;
 import com.ecommerce.seckill.service.SeckillService;
+import com.ecommerce.seckill.vo.PreheatStatus;
+import com.ecommerce.seckill.vo.SearchPage;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 秒杀控制器
@@ -23,17 +31,37 @@ public class SeckillController {
     @Autowired
     private SeckillService seckillService;
     
+    @Autowired
+    private PreheatService preheatService;
+    
+    @Autowired
+    private SeckillRateLimiter seckillRateLimiter;
+    
+    @Autowired
+    private ClientIpResolver clientIpResolver;
+    
     /**
-     * 搜索秒杀商品
+     * 批量支付回调单次最大订单数
+     */
+    @Value("${seckill.payment.batch-max-size:500}")
+    private Integer paymentBatchMaxSize;
+    
+    /**
+     * 分页搜索秒杀商品
      * 
      * @param keyword 关键词
-     * @return 商品列表
+     * @param size 每页数量
+     * @param cursor 上一页返回的游标，第一页不传
+     * @return 商品列表页
      */
     @GetMapping("/items")
-    public Result<List<SeckillItem>> searchItems(@RequestParam(required = false) String keyword) {
+    public Result<SearchPage> searchItems(
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor) {
         try {
-            List<SeckillItem> items = seckillService.searchItems(keyword);
-            return Result.success(items);
+            SearchPage page = seckillService.searchItems(keyword, size, cursor);
+            return Result.success(page);
         } catch (Exception e) {
             log.error("搜索秒杀商品失败: {}", e.getMessage());
             return Result.error("搜索秒杀商品失败");
@@ -46,13 +74,19 @@ public class SeckillController {
      * @param itemId 商品ID
      * @param userId 用户ID
      * @param quantity 购买数量
+     * @param request HTTP请求
      * @return 订单号
      */
     @PostMapping("/{itemId}")
     public Result<String> executeSeckill(
             @PathVariable Long itemId,
             @RequestParam Long userId,
-            @RequestParam(defaultValue = "1") Integer quantity) {
+            @RequestParam(defaultValue = "1") Integer quantity,
+            HttpServletRequest request) {
+        // 按用户、IP、商品限流，超限请求不进入秒杀流程
+        if (!seckillRateLimiter.tryAcquire(itemId, userId, clientIpResolver.resolve(request))) {
+            return Result.error(429, "请求过于频繁，请稍后重试");
+        }
         try {
             String orderNo = seckillService.executeSeckill(itemId, userId, quantity);
             return Result.success("秒杀成功", orderNo);
@@ -62,6 +96,26 @@ public class SeckillController {
         }
     }
     
+    /**
+     * 查询下单结果
+     * 
+     * @param ticket 受理凭证
+     * @return 凭证状态（PENDING-处理中，CREATED-已创建，FAILED-失败）
+     */
+    @GetMapping("/orders/{ticket}/status")
+    public Result<String> getOrderStatus(@PathVariable Long ticket) {
+        try {
+            String status = seckillService.getOrderStatus(ticket);
+            if (status == null) {
+                return Result.error(404, "受理凭证不存在");
+            }
+            return Result.success(status);
+        } catch (Exception e) {
+            log.error("查询下单结果失败: {}", e.getMessage());
+            return Result.error("查询下单结果失败");
+        }
+    }
+    
     /**
      * 取消订单
      * 
@@ -69,7 +123,7 @@ public class SeckillController {
      * @return 操作结果
      */
     @DeleteMapping("/orders/{orderNo}")
-    public Result<Boolean> cancelOrder(@PathVariable String orderNo) {
+    public Result<Boolean> cancelOrder(@PathVariable Long orderNo) {
         try {
             Boolean result = seckillService.cancelOrder(orderNo);
             if (result) {
@@ -90,7 +144,7 @@ public class SeckillController {
      * @return 操作结果
      */
     @PostMapping("/payment/callback")
-    public Result<Boolean> paymentCallback(@RequestParam String orderNo) {
+    public Result<Boolean> paymentCallback(@RequestParam Long orderNo) {
         try {
             Boolean result = seckillService.handlePaymentCallback(orderNo);
             if (result) {
@@ -103,4 +157,57 @@ public class SeckillController {
             return Result.error("支付回调处理失败");
         }
     }
-} 
\ No newline at end of file
+    
+    /**
+     * 批量支付回调
+     * 
+     * @param orderNos 订单号列表
+     * @return 各订单的处理结果（订单号为十进制字符串）
+     */
+    @PostMapping("/payment/callback/batch")
+    public Result<Map<String, Boolean>> paymentCallbacks(@RequestBody List<Long> orderNos) {
+        if (orderNos == null || orderNos.isEmpty() || orderNos.size() > paymentBatchMaxSize) {
+            return Result.error(400, "订单数量须在1到" + paymentBatchMaxSize + "之间");
+        }
+        try {
+            Map<String, Boolean> results = new LinkedHashMap<>();
+            seckillService.handlePaymentCallbacks(orderNos).forEach((orderNo, paid) -> results.put(String.valueOf(orderNo), paid));
+            return Result.success("支付回调处理成功", results);
+        } catch (Exception e) {
+            log.error("批量支付回调处理失败: {}", e.getMessage());
+            return Result.error("支付回调处理失败");
+        }
+    }
+    
+    /**
+     * 查询秒杀活动预热状态
+     * 
+     * @param itemId 商品ID
+     * @return 预热状态
+     */
+    @GetMapping("/preheat/{itemId}")
+    public Result<PreheatStatus> getPreheatStatus(@PathVariable Long itemId) {
+        try {
+            return Result.success(preheatService.getStatus(itemId));
+        } catch (Exception e) {
+            log.error("查询预热状态失败: {}", e.getMessage());
+            return Result.error("查询预热状态失败");
+        }
+    }
+    
+    /**
+     * 手动预热秒杀活动
+     * 
+     * @param itemId 商品ID
+     * @return 预热状态
+     */
+    @PostMapping("/preheat/{itemId}")
+    public Result<PreheatStatus> preheat(@PathVariable Long itemId) {
+        try {
+            return Result.success("预热完成", preheatService.preheat(itemId));
+        } catch (Exception e) {
+            log.error("预热秒杀活动失败: {}", e.getMessage());
+            return Result.error(e.getMessage());
+        }
+    }
+}
\ No newline at end of file
@@ -1,9 +1,11 @@
 package com.ecommerce.seckill.dao;
 
 import com.ecommerce.seckill.entity.SeckillItem;
+import com.ecommerce.seckill.vo.ItemQuantity;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -24,12 +26,87 @@ public interface SeckillItemMapper {
     SeckillItem selectById(@Param("id") Long id);
     
     /**
-     * 根据关键词搜索秒杀商品
+     * 根据关键词分页搜索秒杀商品（仅列表展示字段），按创建时间、ID倒序
      * 
      * @param keyword 关键词
+     * @param afterTime 上一页最后一个商品的创建时间，第一页为null
+     * @param afterId 上一页最后一个商品的ID，第一页为null
+     * @param limit 每页数量
      * @return 商品列表
      */
-    List<SeckillItem> searchByKeyword(@Param("keyword") String keyword);
+    List<SeckillItem> searchByKeyword(@Param("keyword") String keyword, @Param("afterTime") LocalDateTime afterTime,
+                                      @Param("afterId") Long afterId, @Param("limit") Integer limit);
+    
+    /**
+     * 查询已激活且未结束的秒杀商品
+     * 
+     * @param now 当前时间
+     * @param limit 最大条数
+     * @return 商品列表
+     */
+    List<SeckillItem> selectOnSale(@Param("now") LocalDateTime now, @Param("limit") Integer limit);
+    
+    /**
+     * 按ID顺序分批查询已激活的秒杀商品
+     * 
+     * @param afterId 上一批最后一个商品的ID，第一批为0
+     * @param limit 每批数量
+     * @return 商品列表
+     */
+    List<SeckillItem> selectActiveAfterId(@Param("afterId") Long afterId, @Param("limit") Integer limit);
+    
+    /**
+     * 查询指定时间之后更新过的秒杀商品（包含未激活商品）
+     * 
+     * @param updateTime 更新时间下限（含）
+     * @return 商品列表
+     */
+    List<SeckillItem> selectUpdatedSince(@Param("updateTime") LocalDateTime updateTime);
+    
+    /**
+     * 查询开始时间在指定区间内的已激活秒杀商品
+     * 
+     * @param from 开始时间下限（含）
+     * @param to 开始时间上限（含）
+     * @return 商品列表
+     */
+    List<SeckillItem> selectStartingBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+    
+    /**
+     * 查询结束时间在指定区间内的秒杀商品
+     * 
+     * @param from 结束时间下限（含）
+     * @param to 结束时间上限（含）
+     * @return 商品列表
+     */
+    List<SeckillItem> selectEndingBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+    
+    /**
+     * 批量增减库存（单条UPDATE）
+     * 
+     * @param deltas 各商品的库存变化量，扣减为负数
+     * @return 影响行数
+     */
+    Integer batchAdjustStock(@Param("deltas") List<ItemQuantity> deltas);
+    
+    /**
+     * 库存充足时扣减库存（Redis不可用时的降级扣减）
+     * 
+     * @param id 商品ID
+     * @param quantity 扣减数量
+     * @return 影响行数，0表示库存不足
+     */
+    Integer deductStock(@Param("id") Long id, @Param("quantity") Integer quantity);
+    
+    /**
+     * 库存等于预期值时更新库存
+     * 
+     * @param id 商品ID
+     * @param expected 预期的当前库存
+     * @param stock 新库存
+     * @return 影响行数
+     */
+    Integer updateStockIfMatch(@Param("id") Long id, @Param("expected") Integer expected, @Param("stock") Integer stock);
     
     /**
      * 插入秒杀商品
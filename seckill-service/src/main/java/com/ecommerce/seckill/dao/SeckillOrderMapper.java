@@ -1,6 +1,7 @@
 package com.ecommerce.seckill.dao;
 
 import com.ecommerce.seckill.entity.SeckillOrder;
+import com.ecommerce.seckill.vo.ItemQuantity;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
@@ -29,7 +30,36 @@ public interface SeckillOrderMapper {
      * @param orderNo 订单号
      * @return 订单信息
      */
-    SeckillOrder selectByOrderNo(@Param("orderNo") String orderNo);
+    SeckillOrder selectByOrderNo(@Param("orderNo") Long orderNo);
+    
+    /**
+     * 查询并锁定一批订单中未支付的订单，须在事务中调用
+     * 
+     * @param orderNos 订单号列表
+     * @return 未支付的订单列表
+     */
+    List<SeckillOrder> selectUnpaidForUpdate(@Param("orderNos") List<Long> orderNos);
+    
+    /**
+     * 订单状态迁移：仅当订单当前处于原状态时更新为目标状态（单条条件UPDATE），
+     * 迁移为已支付时同时记录支付时间
+     * 
+     * @param orderNo 订单号
+     * @param fromStatus 原状态
+     * @param toStatus 目标状态
+     * @return 影响行数，1表示本次迁移成功，0表示订单不存在或状态已变化
+     */
+    Integer transitStatus(@Param("orderNo") Long orderNo, @Param("fromStatus") Integer fromStatus, @Param("toStatus") Integer toStatus);
+    
+    /**
+     * 批量订单状态迁移（单条条件UPDATE），仅更新当前处于原状态的订单
+     * 
+     * @param ids 订单ID列表
+     * @param fromStatus 原状态
+     * @param toStatus 目标状态
+     * @return 迁移成功的订单数
+     */
+    Integer batchTransitStatus(@Param("ids") List<Long> ids, @Param("fromStatus") Integer fromStatus, @Param("toStatus") Integer toStatus);
     
     /**
      * 根据用户ID查询订单列表
@@ -39,6 +69,22 @@ public interface SeckillOrderMapper {
      */
     List<SeckillOrder> selectByUserId(@Param("userId") Long userId);
     
+    /**
+     * 统计各商品未取消订单的购买数量
+     * 
+     * @param itemIds 商品ID列表
+     * @return 各商品的购买数量，无订单的商品不返回
+     */
+    List<ItemQuantity> sumQuantityByItemIds(@Param("itemIds") List<Long> itemIds);
+    
+    /**
+     * 查询一批订单涉及的商品ID
+     * 
+     * @param orderNos 订单号列表
+     * @return 去重后的商品ID列表
+     */
+    List<Long> selectItemIdsByOrderNos(@Param("orderNos") List<Long> orderNos);
+    
     /**
      * 插入订单
      * 
@@ -47,6 +93,14 @@ public interface SeckillOrderMapper {
      */
     Integer insert(SeckillOrder order);
     
+    /**
+     * 批量插入订单（单条多值INSERT）
+     * 
+     * @param orders 订单列表
+     * @return 影响行数
+     */
+    Integer batchInsert(@Param("orders") List<SeckillOrder> orders);
+    
     /**
      * 更新订单
      * 
@@ -0,0 +1,76 @@
+package com.ecommerce.seckill.dao;
+
+import com.ecommerce.seckill.entity.SeckillOutbox;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 消息发件箱Mapper接口
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+@Mapper
+public interface SeckillOutboxMapper {
+    
+    /**
+     * 批量写入消息（须在业务事务中调用）
+     * 
+     * @param messages 消息列表
+     * @return 影响行数
+     */
+    Integer batchInsert(@Param("messages") List<SeckillOutbox> messages);
+    
+    /**
+     * 按ID顺序认领一批到期且未被其他节点认领的消息
+     * 
+     * @param owner 认领节点标识
+     * @param leaseSeconds 认领有效期（秒）
+     * @param limit 最大条数
+     * @return 认领条数
+     */
+    Integer claim(@Param("owner") String owner, @Param("leaseSeconds") Integer leaseSeconds, @Param("limit") Integer limit);
+    
+    /**
+     * 查询本节点认领且可以投递的消息：同一key存在更早的未投递消息且不在本批时跳过，保证同一key按顺序投递
+     * 
+     * @param owner 认领节点标识
+     * @return 消息列表（按ID排序）
+     */
+    List<SeckillOutbox> selectClaimed(@Param("owner") String owner);
+    
+    /**
+     * 删除已投递的消息
+     * 
+     * @param ids 消息ID列表
+     * @return 影响行数
+     */
+    Integer deleteByIds(@Param("ids") List<Long> ids);
+    
+    /**
+     * 记录投递失败，按失败次数指数退避
+     * 
+     * @param ids 消息ID列表
+     * @param maxBackoffSeconds 最大退避时间（秒）
+     * @return 影响行数
+     */
+    Integer markFailed(@Param("ids") List<Long> ids, @Param("maxBackoffSeconds") Integer maxBackoffSeconds);
+    
+    /**
+     * 释放本节点认领但未投递的消息
+     * 
+     * @param owner 认领节点标识
+     * @return 影响行数
+     */
+    Integer releaseClaim(@Param("owner") String owner);
+    
+    /**
+     * 查询最早一条未投递消息的创建时间
+     * 
+     * @return 创建时间，没有未投递消息时返回null
+     */
+    LocalDateTime selectOldestCreateTime();
+}
@@ -0,0 +1,86 @@
+package com.ecommerce.seckill.dao;
+
+import com.ecommerce.seckill.entity.SeckillStockMode;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * 库存扣减模式Mapper接口
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+@Mapper
+public interface SeckillStockModeMapper {
+    
+    /**
+     * 查询当前扣减模式
+     * 
+     * @return 扣减模式
+     */
+    SeckillStockMode selectMode();
+    
+    /**
+     * 按版本切换扣减模式，版本加1并清除回灌认领
+     * 
+     * @param from 当前模式
+     * @param epoch 当前版本
+     * @param to 目标模式
+     * @return 影响行数，0表示模式已被其他节点切换
+     */
+    Integer transit(@Param("from") String from, @Param("epoch") Long epoch, @Param("to") String to);
+    
+    /**
+     * 认领库存回灌，未认领或认领超时时成功，认领序号加1
+     * 
+     * @param epoch 当前版本（须处于RECOVERING模式）
+     * @param owner 认领节点标识
+     * @param timeoutSeconds 认领超时时间（秒）
+     * @return 影响行数
+     */
+    Integer claimReseed(@Param("epoch") Long epoch, @Param("owner") String owner, @Param("timeoutSeconds") Integer timeoutSeconds);
+    
+    /**
+     * 续期回灌认领，仅认领节点可以续期
+     * 
+     * @param epoch 当前版本
+     * @param owner 认领节点标识
+     * @return 影响行数，0表示认领已被其他节点接管
+     */
+    Integer renewReseed(@Param("epoch") Long epoch, @Param("owner") String owner);
+    
+    /**
+     * 回灌完成后切回Redis扣减，仅认领节点可以切换
+     * 
+     * @param epoch 当前版本
+     * @param owner 认领节点标识
+     * @return 影响行数
+     */
+    Integer finishReseed(@Param("epoch") Long epoch, @Param("owner") String owner);
+    
+    /**
+     * 节点心跳，同时记录节点已完成切换的版本
+     * 
+     * @param node 节点标识
+     * @param epoch 已完成切换的版本
+     * @return 影响行数
+     */
+    Integer heartbeat(@Param("node") String node, @Param("epoch") Long epoch);
+    
+    /**
+     * 统计存活但尚未完成指定版本切换的节点数
+     * 
+     * @param epoch 版本
+     * @param timeoutSeconds 心跳超时时间（秒），超时的节点视为已下线
+     * @return 节点数
+     */
+    Integer countLagging(@Param("epoch") Long epoch, @Param("timeoutSeconds") Integer timeoutSeconds);
+    
+    /**
+     * 删除节点（停机时调用）
+     * 
+     * @param node 节点标识
+     * @return 影响行数
+     */
+    Integer deleteNode(@Param("node") String node);
+}
\ No newline at end of file
@@ -44,6 +44,31 @@ public class SeckillItem {
      */
     private Integer stock;
     
+    /**
+     * 是否售罄，仅搜索结果按Redis实时库存填充，不对应数据库字段
+     */
+    private Boolean soldOut;
+    
+    /**
+     * 活动总库存（剩余库存 + 已售出数量），用于库存对账
+     */
+    private Integer totalStock;
+    
+    /**
+     * 库存分桶数（1-不分桶）
+     */
+    private Integer stockBuckets;
+    
+    /**
+     * 准入令牌发放速率（每秒，单节点），为空时按剩余库存自动计算
+     */
+    private Integer admissionRate;
+    
+    /**
+     * 准入令牌桶容量（允许的突发请求数），为空时等于发放速率
+     */
+    private Integer admissionBurst;
+    
     /**
      * 是否激活（0-未激活，1-已激活）
      */
@@ -14,15 +14,35 @@ import java.time.LocalDateTime;
 @Data
 public class SeckillOrder {
     
+    /**
+     * 订单状态：未支付
+     */
+    public static final int STATUS_UNPAID = 0;
+    
+    /**
+     * 订单状态：已支付
+     */
+    public static final int STATUS_PAID = 1;
+    
+    /**
+     * 订单状态：已取消
+     */
+    public static final int STATUS_CANCELLED = -1;
+    
+    /**
+     * 订单状态：超时未支付，已关闭
+     */
+    public static final int STATUS_EXPIRED = -2;
+    
     /**
      * 订单ID
      */
     private Long id;
     
     /**
-     * 订单号
+     * 订单号（趋势递增的64位ID）
      */
-    private String orderNo;
+    private Long orderNo;
     
     /**
      * 用户ID
@@ -45,7 +65,7 @@ public class SeckillOrder {
     private BigDecimal amount;
     
     /**
-     * 订单状态（0-未支付，1-已支付，-1-已取消）
+     * 订单状态（0-未支付，1-已支付，-1-已取消，-2-已超时）
      */
     private Integer status;
     
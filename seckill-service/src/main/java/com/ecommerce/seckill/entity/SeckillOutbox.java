@@ -0,0 +1,50 @@
+package com.ecommerce.seckill.entity;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 消息发件箱实体类
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+@Data
+public class SeckillOutbox {
+    
+    /**
+     * 消息ID（自增，同一key的消息按ID顺序投递）
+     */
+    private Long id;
+    
+    /**
+     * 消息主题
+     */
+    private String topic;
+    
+    /**
+     * 消息key（订单号）
+     */
+    private String messageKey;
+    
+    /**
+     * 消息体
+     */
+    private String body;
+    
+    /**
+     * 投递失败次数
+     */
+    private Integer retryCount;
+    
+    /**
+     * 下次投递时间
+     */
+    private LocalDateTime nextRetryTime;
+    
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+}
@@ -0,0 +1,53 @@
+package com.ecommerce.seckill.entity;
+
+import lombok.Data;
+
+/**
+ * 库存扣减模式实体类（全集群共用一行）
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+@Data
+public class SeckillStockMode {
+    
+    /**
+     * 扣减模式：Redis扣减
+     */
+    public static final String MODE_REDIS = "REDIS";
+    
+    /**
+     * 扣减模式：切换到MySQL中，各节点停止Redis扣减并回写变化量
+     */
+    public static final String MODE_DEGRADING = "DEGRADING";
+    
+    /**
+     * 扣减模式：MySQL降级扣减
+     */
+    public static final String MODE_MYSQL = "MYSQL";
+    
+    /**
+     * 扣减模式：切回Redis中，各节点停止MySQL扣减后由一个节点回灌库存
+     */
+    public static final String MODE_RECOVERING = "RECOVERING";
+    
+    /**
+     * 扣减模式
+     */
+    private String mode;
+    
+    /**
+     * 模式版本，每次切换加1
+     */
+    private Long epoch;
+    
+    /**
+     * 认领库存回灌的节点
+     */
+    private String claimOwner;
+    
+    /**
+     * 回灌认领序号
+     */
+    private Long claimSeq;
+}
\ No newline at end of file
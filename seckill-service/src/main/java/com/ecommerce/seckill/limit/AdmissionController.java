@@ -0,0 +1,174 @@
+package com.ecommerce.seckill.limit;
+
+import com.ecommerce.seckill.cache.SeckillItemSnapshot;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 秒杀准入控制
+ * 在访问Redis和MySQL之前按商品令牌桶和全局并发上限放行请求，超出部分直接返回繁忙；
+ * 商品令牌发放速率优先取商品配置，未配置时按本节点估算的剩余库存计算
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class AdmissionController {
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    /**
+     * 全局最大并发数（单节点正在处理的秒杀请求数上限）
+     */
+    @Value("${seckill.thread-pool.max-concurrent:200}")
+    private Integer maxConcurrent;
+    
+    /**
+     * 自动计算速率时，每件剩余库存每秒发放的令牌数
+     */
+    @Value("${seckill.admission.permits-per-stock:2.0}")
+    private Double permitsPerStock;
+    
+    /**
+     * 自动计算速率时的最低速率（每秒）
+     */
+    @Value("${seckill.admission.min-rate:10}")
+    private Integer minRate;
+    
+    /**
+     * 自动计算速率时的最高速率（每秒）
+     */
+    @Value("${seckill.admission.max-rate:5000}")
+    private Integer maxRate;
+    
+    private Semaphore concurrency;
+    
+    /**
+     * 商品令牌桶
+     */
+    private final Map<Long, TokenBucket> buckets = new ConcurrentHashMap<>();
+    
+    private Counter itemRejected;
+    
+    private Counter globalRejected;
+    
+    @PostConstruct
+    public void init() {
+        concurrency = new Semaphore(maxConcurrent);
+        itemRejected = Counter.builder("seckill.admission.rejected").tag("reason", "item").register(meterRegistry);
+        globalRejected = Counter.builder("seckill.admission.rejected").tag("reason", "global").register(meterRegistry);
+        log.info("秒杀准入控制初始化完成，全局最大并发数: {}, 每件库存令牌速率: {}/s", maxConcurrent, permitsPerStock);
+    }
+    
+    /**
+     * 尝试准入，成功后必须调用{@link #release()}
+     * 
+     * @param item 商品快照
+     * @return 是否准入
+     */
+    public boolean tryAcquire(SeckillItemSnapshot item) {
+        if (!concurrency.tryAcquire()) {
+            globalRejected.increment();
+            return false;
+        }
+        TokenBucket bucket = buckets.computeIfAbsent(item.getId(), id -> new TokenBucket(item.getStock()));
+        if (!bucket.tryAcquire(item)) {
+            concurrency.release();
+            itemRejected.increment();
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * 释放全局并发名额
+     */
+    public void release() {
+        concurrency.release();
+    }
+    
+    /**
+     * 记录成功售出，下调本节点估算的剩余库存
+     * 
+     * @param itemId 商品ID
+     * @param quantity 数量
+     */
+    public void onSold(Long itemId, int quantity) {
+        TokenBucket bucket = buckets.get(itemId);
+        if (bucket != null) {
+            bucket.onSold(quantity);
+        }
+    }
+    
+    /**
+     * 移除商品令牌桶（商品下架、结束或删除后调用）
+     * 
+     * @param itemId 商品ID
+     */
+    public void evict(Long itemId) {
+        buckets.remove(itemId);
+    }
+    
+    /**
+     * 单个商品的令牌桶
+     */
+    private final class TokenBucket {
+        
+        /**
+         * 本节点估算的剩余库存
+         */
+        private long remaining;
+        
+        private double tokens;
+        
+        private long lastRefillNanos;
+        
+        private TokenBucket(Integer stock) {
+            this.remaining = stock != null ? stock : 0;
+            this.lastRefillNanos = System.nanoTime();
+            this.tokens = capacity(rate(null), null);
+        }
+        
+        private synchronized boolean tryAcquire(SeckillItemSnapshot item) {
+            double rate = rate(item.getAdmissionRate());
+            double capacity = capacity(rate, item.getAdmissionBurst());
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * rate / 1_000_000_000d);
+            lastRefillNanos = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+            return true;
+        }
+        
+        private synchronized void onSold(int quantity) {
+            remaining = Math.max(0, remaining - quantity);
+        }
+        
+        /**
+         * 令牌发放速率：商品配置优先，否则与剩余库存成正比
+         */
+        private double rate(Integer configured) {
+            if (configured != null && configured > 0) {
+                return configured;
+            }
+            return Math.max(minRate, Math.min(maxRate, remaining * permitsPerStock));
+        }
+        
+        private double capacity(double rate, Integer configured) {
+            return configured != null && configured > 0 ? configured : Math.max(1, rate);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,160 @@
+package com.ecommerce.seckill.limit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 客户端IP解析
+ * 只有直连地址属于受信代理时才读取X-Forwarded-For，从右向左跳过受信代理，取第一个非受信地址；
+ * X-Forwarded-For左侧的值由客户端自行填写，不能作为限流依据
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class ClientIpResolver {
+    
+    /**
+     * 受信代理地址，逗号分隔，支持CIDR（如10.0.0.0/8）；为空时只使用直连地址
+     */
+    @Value("${seckill.rate-limit.trusted-proxies:}")
+    private String trustedProxies;
+    
+    private final List<Cidr> trusted = new ArrayList<>();
+    
+    @PostConstruct
+    public void init() {
+        for (String entry : trustedProxies.split(",")) {
+            String value = entry.trim();
+            if (value.isEmpty()) {
+                continue;
+            }
+            Cidr cidr = Cidr.parse(value);
+            if (cidr == null) {
+                throw new IllegalArgumentException("无效的受信代理地址: " + value);
+            }
+            trusted.add(cidr);
+        }
+        log.info("客户端IP解析初始化完成，受信代理: {}", trusted.isEmpty() ? "无" : trustedProxies);
+    }
+    
+    /**
+     * 解析客户端IP
+     * 
+     * @param request HTTP请求
+     * @return 客户端IP
+     */
+    public String resolve(HttpServletRequest request) {
+        String remote = request.getRemoteAddr();
+        if (trusted.isEmpty() || !isTrusted(remote)) {
+            return remote;
+        }
+        String forwarded = request.getHeader("X-Forwarded-For");
+        if (forwarded == null || forwarded.isEmpty()) {
+            return remote;
+        }
+        String[] hops = forwarded.split(",");
+        String client = remote;
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String hop = hops[i].trim();
+            if (hop.isEmpty()) {
+                continue;
+            }
+            client = hop;
+            if (!isTrusted(hop)) {
+                break;
+            }
+        }
+        return client;
+    }
+    
+    private boolean isTrusted(String address) {
+        byte[] bytes = parseLiteral(address);
+        if (bytes == null) {
+            return false;
+        }
+        for (Cidr cidr : trusted) {
+            if (cidr.contains(bytes)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * 解析IP字面量，非IP格式返回null（不做DNS解析）
+     */
+    private static byte[] parseLiteral(String address) {
+        if (address == null || address.isEmpty() || !address.matches("[0-9a-fA-F:.]+")
+            || (address.indexOf(':') < 0 && !address.matches("\\d{1,3}(\\.\\d{1,3}){3}"))) {
+            return null;
+        }
+        try {
+            return InetAddress.getByName(address).getAddress();
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * 地址段
+     */
+    private static final class Cidr {
+        
+        private final byte[] network;
+        
+        private final int prefix;
+        
+        private Cidr(byte[] network, int prefix) {
+            this.network = network;
+            this.prefix = prefix;
+        }
+        
+        private static Cidr parse(String value) {
+            int slash = value.indexOf('/');
+            byte[] network = parseLiteral(slash < 0 ? value : value.substring(0, slash));
+            if (network == null) {
+                return null;
+            }
+            int prefix = network.length * 8;
+            if (slash >= 0) {
+                try {
+                    prefix = Integer.parseInt(value.substring(slash + 1));
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+                if (prefix < 0 || prefix > network.length * 8) {
+                    return null;
+                }
+            }
+            return new Cidr(network, prefix);
+        }
+        
+        private boolean contains(byte[] address) {
+            if (address.length != network.length) {
+                return false;
+            }
+            int fullBytes = prefix / 8;
+            for (int i = 0; i < fullBytes; i++) {
+                if (address[i] != network[i]) {
+                    return false;
+                }
+            }
+            int remainingBits = prefix % 8;
+            if (remainingBits == 0) {
+                return true;
+            }
+            int mask = (0xFF << (8 - remainingBits)) & 0xFF;
+            return (address[fullBytes] & mask) == (network[fullBytes] & mask);
+        }
+    }
+}
\ No newline at end of file
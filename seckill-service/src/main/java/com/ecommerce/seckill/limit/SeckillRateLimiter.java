@@ -0,0 +1,267 @@
+package com.ecommerce.seckill.limit;
+
+import com.ecommerce.seckill.script.RedisScriptRegistry;
+import com.ecommerce.seckill.script.SeckillScript;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 秒杀限流器
+ * 按用户、IP、商品三个维度做滑动窗口限流。请求线程只读写本地计数，不访问Redis；
+ * 定时任务将各节点预聚合的计数批量同步到Redis，并取回集群窗口内的累计计数
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class SeckillRateLimiter {
+    
+    /**
+     * 限流计数key前缀
+     */
+    private static final String LIMIT_KEY_PREFIX = "seckill:limit:";
+    
+    @Autowired
+    private RedisScriptRegistry redisScriptRegistry;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${seckill.rate-limit.enabled:true}")
+    private Boolean enabled;
+    
+    /**
+     * 滑动窗口长度（毫秒）
+     */
+    @Value("${seckill.rate-limit.window-ms:1000}")
+    private Long windowMillis;
+    
+    /**
+     * 窗口划分的时间片数
+     */
+    @Value("${seckill.rate-limit.slots:10}")
+    private Integer slots;
+    
+    /**
+     * 单个用户窗口内最大请求数，0表示不限制
+     */
+    @Value("${seckill.rate-limit.user-limit:5}")
+    private Long userLimit;
+    
+    /**
+     * 单个IP窗口内最大请求数，0表示不限制
+     */
+    @Value("${seckill.rate-limit.ip-limit:50}")
+    private Long ipLimit;
+    
+    /**
+     * 单个商品窗口内最大请求数，0表示不限制
+     */
+    @Value("${seckill.rate-limit.item-limit:2000}")
+    private Long itemLimit;
+    
+    /**
+     * 本地计数key数上限，达到上限时新key不计数（该维度放行），直到空闲key被清理
+     */
+    @Value("${seckill.rate-limit.max-keys:100000}")
+    private Integer maxKeys;
+    
+    /**
+     * 本地计数
+     */
+    private final Map<String, WindowCounter> counters = new ConcurrentHashMap<>();
+    
+    private long slotMillis;
+    
+    private Counter userRejected;
+    
+    private Counter ipRejected;
+    
+    private Counter itemRejected;
+    
+    private Counter overflowCounter;
+    
+    @PostConstruct
+    public void init() {
+        slotMillis = Math.max(1, windowMillis / slots);
+        userRejected = rejectedCounter("user");
+        ipRejected = rejectedCounter("ip");
+        itemRejected = rejectedCounter("item");
+        overflowCounter = Counter.builder("seckill.rate-limit.overflow")
+            .description("本地计数key数达到上限而未计数的请求数")
+            .register(meterRegistry);
+        meterRegistry.gauge("seckill.rate-limit.keys", counters, Map::size);
+        log.info("秒杀限流器初始化完成，窗口: {}ms, 用户: {}, IP: {}, 商品: {}", windowMillis, userLimit, ipLimit, itemLimit);
+    }
+    
+    /**
+     * 尝试通过限流，三个维度均未超限时计入本地计数
+     * 
+     * @param itemId 商品ID
+     * @param userId 用户ID
+     * @param ip 客户端IP
+     * @return 是否通过
+     */
+    public boolean tryAcquire(Long itemId, Long userId, String ip) {
+        if (!enabled) {
+            return true;
+        }
+        WindowCounter user = counter("user:" + userId, userLimit);
+        WindowCounter client = counter("ip:" + ip, ipLimit);
+        WindowCounter item = counter("item:" + itemId, itemLimit);
+        if (user != null && user.exceeded()) {
+            userRejected.increment();
+            return false;
+        }
+        if (client != null && client.exceeded()) {
+            ipRejected.increment();
+            return false;
+        }
+        if (item != null && item.exceeded()) {
+            itemRejected.increment();
+            return false;
+        }
+        if (user != null) {
+            user.hit();
+        }
+        if (client != null) {
+            client.hit();
+        }
+        if (item != null) {
+            item.hit();
+        }
+        return true;
+    }
+    
+    /**
+     * 同步本地计数：一次管道提交所有活跃key的增量，并取回集群累计计数；
+     * 超过一个窗口未访问且增量已同步的key从本地移除，不再参与同步（其集群计数已随窗口过期）
+     */
+    @Scheduled(fixedDelayString = "${seckill.rate-limit.sync-interval-ms:50}")
+    public void sync() {
+        if (!enabled || counters.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<WindowCounter> batch = new ArrayList<>();
+        for (Iterator<WindowCounter> it = counters.values().iterator(); it.hasNext(); ) {
+            WindowCounter counter = it.next();
+            if (counter.pending.get() == 0 && now - counter.lastAccess > windowMillis) {
+                it.remove();
+                // 移除前后并发计入的请求转入新的计数，不丢失
+                long late = counter.pending.getAndSet(0);
+                if (late > 0) {
+                    WindowCounter current = counters.computeIfAbsent(counter.key, k -> new WindowCounter(k, counter.limit));
+                    current.pending.addAndGet(late);
+                }
+                continue;
+            }
+            counter.inFlight = counter.pending.getAndSet(0);
+            batch.add(counter);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        
+        long slot = now / slotMillis;
+        long ttl = windowMillis + slotMillis;
+        try {
+            List<Object> totals = redisScriptRegistry.executePipelined(pipeline -> {
+                for (WindowCounter counter : batch) {
+                    pipeline.script(SeckillScript.RATE_LIMIT, Collections.singletonList(LIMIT_KEY_PREFIX + counter.key),
+                        counter.inFlight, slot, slots, ttl);
+                }
+            });
+            for (int i = 0; i < batch.size(); i++) {
+                WindowCounter counter = batch.get(i);
+                counter.remote = ((Number) totals.get(i)).longValue();
+                counter.inFlight = 0;
+            }
+        } catch (Exception e) {
+            // 同步失败时增量退回本地，下次重试；期间按本地计数限流
+            for (WindowCounter counter : batch) {
+                counter.pending.addAndGet(counter.inFlight);
+                counter.inFlight = 0;
+            }
+            log.warn("限流计数同步失败，key数: {}, 错误: {}", batch.size(), e.getMessage());
+        }
+    }
+    
+    private WindowCounter counter(String key, long limit) {
+        if (limit <= 0) {
+            return null;
+        }
+        WindowCounter counter = counters.get(key);
+        if (counter != null) {
+            return counter;
+        }
+        if (counters.size() >= maxKeys) {
+            overflowCounter.increment();
+            return null;
+        }
+        return counters.computeIfAbsent(key, k -> new WindowCounter(k, limit));
+    }
+    
+    private Counter rejectedCounter(String dimension) {
+        return Counter.builder("seckill.rate-limit.rejected")
+            .description("被限流拒绝的请求数")
+            .tag("dimension", dimension)
+            .register(meterRegistry);
+    }
+    
+    /**
+     * 单个限流key的本地计数
+     */
+    private static final class WindowCounter {
+        
+        private final String key;
+        
+        private final long limit;
+        
+        /**
+         * 尚未同步到Redis的本地计数
+         */
+        private final AtomicLong pending = new AtomicLong();
+        
+        /**
+         * 最近一次同步取回的集群窗口内累计计数（已包含本节点同步过的计数）
+         */
+        private volatile long remote;
+        
+        /**
+         * 正在同步的增量，仅由同步线程写入
+         */
+        private volatile long inFlight;
+        
+        private volatile long lastAccess = System.currentTimeMillis();
+        
+        private WindowCounter(String key, long limit) {
+            this.key = key;
+            this.limit = limit;
+        }
+        
+        private boolean exceeded() {
+            lastAccess = System.currentTimeMillis();
+            return remote + inFlight + pending.get() >= limit;
+        }
+        
+        private void hit() {
+            pending.incrementAndGet();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,46 @@
+package com.ecommerce.seckill.mq;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.rocketmq.client.consumer.DefaultMQPushConsumer;
+import org.apache.rocketmq.client.consumer.listener.MessageListenerConcurrently;
+import org.apache.rocketmq.client.exception.MQClientException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 批量消费者工厂
+ * 各消费者统一按批量大小拉取和消费消息，订阅主题的全部消息，由调用方负责关闭
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class BatchConsumerFactory {
+    
+    @Value("${rocketmq.name-server}")
+    private String nameServer;
+    
+    /**
+     * 创建并启动批量消费者
+     * 
+     * @param consumerGroup 消费者组
+     * @param topic 主题
+     * @param batchSize 单次拉取和消费的最大消息数
+     * @param listener 消息监听器
+     * @return 已启动的消费者
+     * @throws MQClientException 订阅或启动失败
+     */
+    public DefaultMQPushConsumer start(String consumerGroup, String topic, int batchSize,
+        MessageListenerConcurrently listener) throws MQClientException {
+        DefaultMQPushConsumer consumer = new DefaultMQPushConsumer(consumerGroup);
+        consumer.setNamesrvAddr(nameServer);
+        consumer.setConsumeMessageBatchMaxSize(batchSize);
+        consumer.setPullBatchSize(batchSize);
+        consumer.subscribe(topic, "*");
+        consumer.registerMessageListener(listener);
+        consumer.start();
+        log.info("消费者启动完成，消费者组: {}, 主题: {}, 批量大小: {}", consumerGroup, topic, batchSize);
+        return consumer;
+    }
+}
\ No newline at end of file
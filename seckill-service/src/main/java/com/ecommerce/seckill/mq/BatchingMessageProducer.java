@@ -0,0 +1,431 @@
+package com.ecommerce.seckill.mq;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.rocketmq.client.producer.DefaultMQProducer;
+import org.apache.rocketmq.client.producer.SendCallback;
+import org.apache.rocketmq.client.producer.SendResult;
+import org.apache.rocketmq.common.message.Message;
+import org.apache.rocketmq.spring.core.RocketMQTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量异步消息发送器
+ * 请求线程只把消息放入有界队列，发送线程在时间窗口内攒批，按主题以一次异步批量发送投递，
+ * Broker确认在回调中完成；已入队和发送中的消息总数受许可数限制，
+ * 超出时短暂等待，仍无许可则按配置写入本地溢出文件（Broker恢复后重放）或直接拒绝
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class BatchingMessageProducer {
+    
+    private static final String SPILL_FILE_PREFIX = "spill-";
+    
+    private static final String SPILL_FILE_SUFFIX = ".log";
+    
+    @Autowired
+    private RocketMQTemplate rocketMQTemplate;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    /**
+     * 已入队和发送中的最大消息数
+     */
+    @Value("${seckill.mq.producer.max-in-flight:10000}")
+    private Integer maxInFlight;
+    
+    /**
+     * 单次批量发送的最大消息数
+     */
+    @Value("${seckill.mq.producer.batch-size:64}")
+    private Integer batchSize;
+    
+    /**
+     * 攒批时间窗口（毫秒）
+     */
+    @Value("${seckill.mq.producer.linger-ms:1}")
+    private Long lingerMillis;
+    
+    /**
+     * 无许可时的最长等待时间（毫秒）
+     */
+    @Value("${seckill.mq.producer.offer-timeout-ms:5}")
+    private Long offerTimeoutMillis;
+    
+    /**
+     * 超出在途上限时的处理方式：spill-写入本地溢出文件，reject-拒绝
+     */
+    @Value("${seckill.mq.producer.overflow:spill}")
+    private String overflow;
+    
+    /**
+     * 溢出文件目录
+     */
+    @Value("${seckill.mq.producer.spill-dir:./data/mq-spill}")
+    private String spillDir;
+    
+    private BlockingQueue<PendingMessage> queue;
+    
+    private Semaphore permits;
+    
+    private Thread sender;
+    
+    private volatile boolean running;
+    
+    private final Object spillLock = new Object();
+    
+    private BufferedWriter spillWriter;
+    
+    private long spillSequence;
+    
+    private Timer sendLatencyTimer;
+    
+    private DistributionSummary batchSizeSummary;
+    
+    private Counter failedCounter;
+    
+    private Counter spilledCounter;
+    
+    private Counter rejectedCounter;
+    
+    @PostConstruct
+    public void start() throws IOException {
+        if (!"spill".equals(overflow) && !"reject".equals(overflow)) {
+            throw new IllegalStateException("seckill.mq.producer.overflow 仅支持 spill/reject");
+        }
+        queue = new ArrayBlockingQueue<>(maxInFlight);
+        permits = new Semaphore(maxInFlight);
+        Files.createDirectories(Paths.get(spillDir));
+        
+        sendLatencyTimer = Timer.builder("seckill.mq.send.latency")
+            .description("批量发送到收到Broker确认的耗时")
+            .register(meterRegistry);
+        batchSizeSummary = DistributionSummary.builder("seckill.mq.send.batch-size")
+            .description("每次批量发送的消息数")
+            .register(meterRegistry);
+        failedCounter = Counter.builder("seckill.mq.send.failed")
+            .description("发送失败的消息数")
+            .register(meterRegistry);
+        spilledCounter = Counter.builder("seckill.mq.send.spilled")
+            .description("超出在途上限写入本地溢出文件的消息数")
+            .register(meterRegistry);
+        rejectedCounter = Counter.builder("seckill.mq.send.rejected")
+            .description("超出在途上限被拒绝的消息数")
+            .register(meterRegistry);
+        meterRegistry.gauge("seckill.mq.send.in-flight", permits, p -> maxInFlight - p.availablePermits());
+        
+        running = true;
+        sender = new Thread(this::sendLoop, "mq-batch-sender");
+        sender.setDaemon(true);
+        sender.start();
+        log.info("批量消息发送器启动完成，在途上限: {}, 批量上限: {}, 溢出处理: {}", maxInFlight, batchSize, overflow);
+    }
+    
+    /**
+     * 停止发送线程，未发送的消息写入溢出文件
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        sender.join(TimeUnit.SECONDS.toMillis(5));
+        PendingMessage pending;
+        while ((pending = queue.poll()) != null) {
+            permits.release();
+            overflow(pending);
+        }
+        synchronized (spillLock) {
+            closeSpillWriter();
+        }
+    }
+    
+    /**
+     * 发送消息，不等待Broker确认
+     * 
+     * @param topic 主题
+     * @param key 消息key
+     * @param body 消息体
+     * @return 发送结果：Broker确认或写入溢出文件时正常完成，发送失败或被拒绝时异常完成
+     */
+    public CompletableFuture<Void> send(String topic, String key, String body) {
+        PendingMessage pending = new PendingMessage(topic, key, body);
+        if (running && acquire()) {
+            if (queue.offer(pending)) {
+                return pending.future;
+            }
+            permits.release();
+        }
+        return overflow(pending);
+    }
+    
+    /**
+     * 定时重放溢出文件，在途消息降到上限一半以下时才开始，避免加重Broker压力
+     */
+    @Scheduled(fixedDelayString = "${seckill.mq.producer.spill-replay-interval-ms:5000}")
+    public void replaySpilled() {
+        if (permits.availablePermits() < maxInFlight / 2) {
+            return;
+        }
+        File[] files;
+        synchronized (spillLock) {
+            // 关闭当前文件后再列出，正在写入的新文件不在本轮重放范围内
+            closeSpillWriter();
+            files = new File(spillDir).listFiles((dir, name) -> name.startsWith(SPILL_FILE_PREFIX) && name.endsWith(SPILL_FILE_SUFFIX));
+        }
+        if (files == null || files.length == 0) {
+            return;
+        }
+        Arrays.sort(files);
+        DefaultMQProducer producer = rocketMQTemplate.getProducer();
+        for (File file : files) {
+            try {
+                List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+                Map<String, List<Message>> byTopic = new LinkedHashMap<>();
+                for (String line : lines) {
+                    if (line.isEmpty()) {
+                        continue;
+                    }
+                    JSONObject json = JSON.parseObject(line);
+                    byTopic.computeIfAbsent(json.getString("topic"), t -> new ArrayList<>())
+                        .add(toMessage(json.getString("topic"), json.getString("key"), json.getString("body")));
+                }
+                for (List<Message> messages : byTopic.values()) {
+                    for (int i = 0; i < messages.size(); i += batchSize) {
+                        producer.send(messages.subList(i, Math.min(i + batchSize, messages.size())));
+                    }
+                }
+                Files.delete(file.toPath());
+                log.info("溢出文件重放完成，文件: {}, 消息数: {}", file.getName(), lines.size());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // 文件保留到下次重放，已发送的部分会重复投递，由消费端按订单号去重
+                log.error("重放溢出文件失败，文件: {}, 错误: {}", file.getName(), e.getMessage(), e);
+                return;
+            }
+        }
+    }
+    
+    /**
+     * 发送线程主循环：阻塞等待第一条消息，然后在时间窗口内继续攒批
+     */
+    private void sendLoop() {
+        List<PendingMessage> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingMessage first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        queue.drainTo(batch, batchSize - batch.size());
+                        break;
+                    }
+                    PendingMessage next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                dispatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                dispatch(batch);
+                return;
+            } catch (Throwable e) {
+                log.error("批量发送消息异常: {}", e.getMessage(), e);
+                List<PendingMessage> unsent = new ArrayList<>(batch.size());
+                for (PendingMessage pending : batch) {
+                    if (!pending.future.isDone()) {
+                        unsent.add(pending);
+                    }
+                }
+                complete(unsent, e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+    
+    /**
+     * 按主题分组后异步批量发送（RocketMQ批量消息要求同一主题）
+     */
+    private void dispatch(List<PendingMessage> batch) {
+        Map<String, List<PendingMessage>> byTopic = new LinkedHashMap<>();
+        for (PendingMessage pending : batch) {
+            byTopic.computeIfAbsent(pending.topic, t -> new ArrayList<>()).add(pending);
+        }
+        DefaultMQProducer producer = rocketMQTemplate.getProducer();
+        for (List<PendingMessage> group : byTopic.values()) {
+            List<Message> messages = new ArrayList<>(group.size());
+            for (PendingMessage pending : group) {
+                messages.add(toMessage(pending.topic, pending.key, pending.body));
+            }
+            long start = System.nanoTime();
+            batchSizeSummary.record(group.size());
+            try {
+                producer.send(messages, new SendCallback() {
+                    @Override
+                    public void onSuccess(SendResult sendResult) {
+                        sendLatencyTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        complete(group, null);
+                    }
+                    
+                    @Override
+                    public void onException(Throwable e) {
+                        log.error("批量发送消息失败，主题: {}, 消息数: {}, 错误: {}", group.get(0).topic, group.size(), e.getMessage());
+                        complete(group, e);
+                    }
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                complete(group, e);
+            } catch (Exception e) {
+                log.error("批量发送消息失败，主题: {}, 消息数: {}, 错误: {}", group.get(0).topic, group.size(), e.getMessage());
+                complete(group, e);
+            }
+        }
+    }
+    
+    /**
+     * 完成一组消息的发送结果并归还许可
+     */
+    private void complete(List<PendingMessage> group, Throwable error) {
+        permits.release(group.size());
+        if (error != null) {
+            failedCounter.increment(group.size());
+        }
+        for (PendingMessage pending : group) {
+            if (error == null) {
+                pending.future.complete(null);
+            } else {
+                pending.future.completeExceptionally(error);
+            }
+        }
+    }
+    
+    private boolean acquire() {
+        try {
+            return permits.tryAcquire(offerTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+    
+    /**
+     * 超出在途上限：写入溢出文件或拒绝
+     */
+    private CompletableFuture<Void> overflow(PendingMessage pending) {
+        if (!"spill".equals(overflow)) {
+            rejectedCounter.increment();
+            pending.future.completeExceptionally(new RuntimeException("系统繁忙，请稍后重试"));
+            return pending.future;
+        }
+        try {
+            spill(pending);
+            spilledCounter.increment();
+            pending.future.complete(null);
+        } catch (IOException e) {
+            log.error("写入消息溢出文件失败，主题: {}, key: {}, 错误: {}", pending.topic, pending.key, e.getMessage(), e);
+            failedCounter.increment();
+            pending.future.completeExceptionally(e);
+        }
+        return pending.future;
+    }
+    
+    private void spill(PendingMessage pending) throws IOException {
+        String line = new JSONObject()
+            .fluentPut("topic", pending.topic)
+            .fluentPut("key", pending.key)
+            .fluentPut("body", pending.body)
+            .toJSONString();
+        synchronized (spillLock) {
+            if (spillWriter == null) {
+                // 文件名按创建时间递增，重放时按顺序处理
+                Path file = Paths.get(spillDir, SPILL_FILE_PREFIX + System.currentTimeMillis() + "-" + (spillSequence++) + SPILL_FILE_SUFFIX);
+                spillWriter = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            spillWriter.write(line);
+            spillWriter.newLine();
+            spillWriter.flush();
+        }
+    }
+    
+    private void closeSpillWriter() {
+        if (spillWriter == null) {
+            return;
+        }
+        try {
+            spillWriter.close();
+        } catch (IOException e) {
+            log.warn("关闭消息溢出文件失败: {}", e.getMessage());
+        }
+        spillWriter = null;
+    }
+    
+    private static Message toMessage(String topic, String key, String body) {
+        Message message = new Message(topic, body.getBytes(StandardCharsets.UTF_8));
+        if (key != null) {
+            message.setKeys(key);
+        }
+        return message;
+    }
+    
+    /**
+     * 等待发送的消息
+     */
+    private static final class PendingMessage {
+        
+        private final String topic;
+        
+        private final String key;
+        
+        private final String body;
+        
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        
+        private PendingMessage(String topic, String key, String body) {
+            this.topic = topic;
+            this.key = key;
+            this.body = body;
+        }
+    }
+}
\ No newline at end of file
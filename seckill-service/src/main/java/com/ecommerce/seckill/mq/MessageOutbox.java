@@ -0,0 +1,84 @@
+package com.ecommerce.seckill.mq;
+
+import com.alibaba.fastjson2.JSON;
+import com.ecommerce.seckill.dao.SeckillOutboxMapper;
+import com.ecommerce.seckill.entity.SeckillOutbox;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 消息发件箱
+ * 订单相关消息与订单数据在同一事务中写入seckill_outbox，由{@link OutboxRelay}异步投递到RocketMQ，
+ * 请求线程不访问MQ，事务提交即保证消息最终送达
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+@Component
+public class MessageOutbox {
+    
+    /**
+     * 订单超时消息主题
+     */
+    public static final String ORDER_TIMEOUT_TOPIC = "ORDER_TIMEOUT_TOPIC";
+    
+    /**
+     * 支付成功消息主题，消息体为订单号JSON数组
+     */
+    public static final String PAYMENT_SUCCESS_TOPIC = "PAYMENT_SUCCESS_TOPIC";
+    
+    @Autowired
+    private SeckillOutboxMapper seckillOutboxMapper;
+    
+    /**
+     * 写入一条以订单号为key和消息体的消息
+     * 
+     * @param topic 消息主题
+     * @param orderNo 订单号
+     */
+    public void add(String topic, Long orderNo) {
+        addAll(topic, Collections.singletonList(orderNo));
+    }
+    
+    /**
+     * 批量写入以订单号为key和消息体的消息
+     * 
+     * @param topic 消息主题
+     * @param orderNos 订单号列表
+     */
+    public void addAll(String topic, List<Long> orderNos) {
+        if (orderNos.isEmpty()) {
+            return;
+        }
+        List<SeckillOutbox> messages = new ArrayList<>(orderNos.size());
+        for (Long orderNo : orderNos) {
+            SeckillOutbox message = new SeckillOutbox();
+            message.setTopic(topic);
+            message.setMessageKey(String.valueOf(orderNo));
+            message.setBody(String.valueOf(orderNo));
+            messages.add(message);
+        }
+        seckillOutboxMapper.batchInsert(messages);
+    }
+    
+    /**
+     * 将一批订单写入一条聚合消息，消息体为订单号JSON数组，key为第一个订单号
+     * 
+     * @param topic 消息主题
+     * @param orderNos 订单号列表
+     */
+    public void addBatch(String topic, List<Long> orderNos) {
+        if (orderNos.isEmpty()) {
+            return;
+        }
+        SeckillOutbox message = new SeckillOutbox();
+        message.setTopic(topic);
+        message.setMessageKey(String.valueOf(orderNos.get(0)));
+        message.setBody(JSON.toJSONString(orderNos));
+        seckillOutboxMapper.batchInsert(Collections.singletonList(message));
+    }
+}
\ No newline at end of file
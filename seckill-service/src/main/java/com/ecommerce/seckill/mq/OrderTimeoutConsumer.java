@@ -0,0 +1,83 @@
+package com.ecommerce.seckill.mq;
+
+import com.ecommerce.seckill.order.OrderExpiryEngine;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.rocketmq.client.consumer.DefaultMQPushConsumer;
+import org.apache.rocketmq.client.consumer.listener.ConsumeConcurrentlyStatus;
+import org.apache.rocketmq.client.exception.MQClientException;
+import org.apache.rocketmq.common.message.MessageExt;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 订单超时消息消费者
+ * 订单创建时经发件箱投递超时消息，消费者批量将订单登记到订单超时引擎
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class OrderTimeoutConsumer {
+    
+    @Autowired
+    private OrderExpiryEngine orderExpiryEngine;
+    
+    @Autowired
+    private BatchConsumerFactory batchConsumerFactory;
+    
+    @Value("${seckill.order.expiry.consumer.group:seckill-order-timeout-consumer-group}")
+    private String consumerGroup;
+    
+    /**
+     * 单次消费的最大消息数
+     */
+    @Value("${seckill.order.expiry.consumer.batch-size:200}")
+    private Integer batchSize;
+    
+    private DefaultMQPushConsumer consumer;
+    
+    /**
+     * 启动消费者
+     */
+    @PostConstruct
+    public void start() throws MQClientException {
+        consumer = batchConsumerFactory.start(consumerGroup, MessageOutbox.ORDER_TIMEOUT_TOPIC, batchSize,
+            (messages, context) -> consume(messages));
+    }
+    
+    /**
+     * 关闭消费者
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (consumer != null) {
+            consumer.shutdown();
+        }
+    }
+    
+    /**
+     * 批量登记订单超时，登记失败时整批重新消费（重复登记幂等）
+     */
+    private ConsumeConcurrentlyStatus consume(List<MessageExt> messages) {
+        List<Long> orderNos = new ArrayList<>(messages.size());
+        for (MessageExt message : messages) {
+            orderNos.add(Long.valueOf(new String(message.getBody(), StandardCharsets.UTF_8)));
+        }
+        
+        try {
+            orderExpiryEngine.scheduleAll(orderNos);
+            return ConsumeConcurrentlyStatus.CONSUME_SUCCESS;
+        } catch (Exception e) {
+            log.error("登记订单超时失败，订单数: {}, 错误: {}", orderNos.size(), e.getMessage(), e);
+            return ConsumeConcurrentlyStatus.RECONSUME_LATER;
+        }
+    }
+}
\ No newline at end of file
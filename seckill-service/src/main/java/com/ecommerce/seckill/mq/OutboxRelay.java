@@ -0,0 +1,207 @@
+package com.ecommerce.seckill.mq;
+
+import com.ecommerce.seckill.dao.SeckillOutboxMapper;
+import com.ecommerce.seckill.entity.SeckillOutbox;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.rocketmq.client.producer.DefaultMQProducer;
+import org.apache.rocketmq.common.message.Message;
+import org.apache.rocketmq.common.message.MessageQueue;
+import org.apache.rocketmq.spring.core.RocketMQTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 发件箱投递任务
+ * 定时按ID顺序认领一批到期消息，同一队列的消息合并为一次批量发送；
+ * 消息按key（订单号）哈希选择队列，同一key的消息总在同一队列中按写入顺序发送，前一条未送达时后续消息不投递；
+ * 发送失败按失败次数指数退避重试，节点宕机时认领到期后由其他节点接管
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class OutboxRelay {
+    
+    @Autowired
+    private SeckillOutboxMapper seckillOutboxMapper;
+    
+    @Autowired
+    private RocketMQTemplate rocketMQTemplate;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    /**
+     * 每批认领的最大消息数
+     */
+    @Value("${seckill.outbox.batch-size:200}")
+    private Integer batchSize;
+    
+    /**
+     * 认领有效期（秒），超过后未完成的消息可被其他节点重新认领
+     */
+    @Value("${seckill.outbox.lease-seconds:30}")
+    private Integer leaseSeconds;
+    
+    /**
+     * 失败重试的最大退避时间（秒）
+     */
+    @Value("${seckill.outbox.max-backoff-seconds:60}")
+    private Integer maxBackoffSeconds;
+    
+    /**
+     * 当前实例的认领标识
+     */
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName() + ":" + UUID.randomUUID();
+    
+    /**
+     * 最早一条未投递消息的等待时间（毫秒）
+     */
+    private final AtomicLong lagMillis = new AtomicLong();
+    
+    private Counter sentCounter;
+    
+    private Counter failedCounter;
+    
+    @PostConstruct
+    public void init() {
+        sentCounter = Counter.builder("seckill.outbox.sent")
+            .description("发件箱投递成功的消息数")
+            .register(meterRegistry);
+        failedCounter = Counter.builder("seckill.outbox.failed")
+            .description("发件箱投递失败的消息数")
+            .register(meterRegistry);
+        TimeGauge.builder("seckill.outbox.lag", lagMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+            .description("最早一条未投递消息的等待时间")
+            .register(meterRegistry);
+        log.info("发件箱投递任务初始化完成，批量大小: {}, 认领标识: {}", batchSize, owner);
+    }
+    
+    /**
+     * 定时投递，认领满一批且全部送达时继续投递下一批
+     */
+    @Scheduled(fixedDelayString = "${seckill.outbox.relay-interval-ms:200}")
+    public void relay() {
+        try {
+            while (relayBatch()) {
+                // 继续投递积压的消息
+            }
+        } catch (Exception e) {
+            log.error("发件箱投递失败: {}", e.getMessage(), e);
+        } finally {
+            try {
+                seckillOutboxMapper.releaseClaim(owner);
+                updateLag();
+            } catch (Exception e) {
+                log.error("释放发件箱认领失败: {}", e.getMessage(), e);
+            }
+        }
+    }
+    
+    /**
+     * 认领并投递一批消息
+     * 
+     * @return 是否需要继续投递下一批
+     */
+    private boolean relayBatch() {
+        int claimed = seckillOutboxMapper.claim(owner, leaseSeconds, batchSize);
+        if (claimed == 0) {
+            return false;
+        }
+        List<SeckillOutbox> messages = seckillOutboxMapper.selectClaimed(owner);
+        List<Long> sentIds = new ArrayList<>(messages.size());
+        List<Long> failedIds = new ArrayList<>();
+        
+        DefaultMQProducer producer = rocketMQTemplate.getProducer();
+        for (Map.Entry<MessageQueue, List<SeckillOutbox>> entry : groupByQueue(producer, messages, failedIds).entrySet()) {
+            List<Message> batch = new ArrayList<>(entry.getValue().size());
+            for (SeckillOutbox outbox : entry.getValue()) {
+                Message message = new Message(outbox.getTopic(), outbox.getBody().getBytes(StandardCharsets.UTF_8));
+                message.setKeys(outbox.getMessageKey());
+                batch.add(message);
+            }
+            try {
+                producer.send(batch, entry.getKey());
+                collectIds(entry.getValue(), sentIds);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                collectIds(entry.getValue(), failedIds);
+                break;
+            } catch (Exception e) {
+                log.warn("发件箱批量发送失败，主题: {}, 队列: {}, 消息数: {}, 错误: {}",
+                    entry.getKey().getTopic(), entry.getKey().getQueueId(), batch.size(), e.getMessage());
+                collectIds(entry.getValue(), failedIds);
+            }
+        }
+        
+        if (!sentIds.isEmpty()) {
+            seckillOutboxMapper.deleteByIds(sentIds);
+            sentCounter.increment(sentIds.size());
+        }
+        if (!failedIds.isEmpty()) {
+            seckillOutboxMapper.markFailed(failedIds, maxBackoffSeconds);
+            failedCounter.increment(failedIds.size());
+        }
+        seckillOutboxMapper.releaseClaim(owner);
+        // 有消息因顺序约束跳过或发送失败时等待下一轮，避免空转
+        return claimed >= batchSize && sentIds.size() == claimed;
+    }
+    
+    /**
+     * 按消息key哈希将消息分配到主题的队列，保持ID顺序；获取队列失败的消息记为失败
+     */
+    private Map<MessageQueue, List<SeckillOutbox>> groupByQueue(DefaultMQProducer producer, List<SeckillOutbox> messages, List<Long> failedIds) {
+        Map<String, List<MessageQueue>> queuesByTopic = new HashMap<>();
+        Map<MessageQueue, List<SeckillOutbox>> grouped = new LinkedHashMap<>();
+        for (SeckillOutbox message : messages) {
+            List<MessageQueue> queues = queuesByTopic.get(message.getTopic());
+            if (queues == null) {
+                try {
+                    queues = producer.fetchPublishMessageQueues(message.getTopic());
+                } catch (Exception e) {
+                    log.warn("获取主题队列失败，主题: {}, 错误: {}", message.getTopic(), e.getMessage());
+                    queues = new ArrayList<>();
+                }
+                queuesByTopic.put(message.getTopic(), queues);
+            }
+            if (queues.isEmpty()) {
+                failedIds.add(message.getId());
+                continue;
+            }
+            MessageQueue queue = queues.get(Math.floorMod(message.getMessageKey().hashCode(), queues.size()));
+            grouped.computeIfAbsent(queue, q -> new ArrayList<>()).add(message);
+        }
+        return grouped;
+    }
+    
+    private void updateLag() {
+        LocalDateTime oldest = seckillOutboxMapper.selectOldestCreateTime();
+        lagMillis.set(oldest != null ? Math.max(0, Duration.between(oldest, LocalDateTime.now()).toMillis()) : 0);
+    }
+    
+    private static void collectIds(List<SeckillOutbox> messages, List<Long> ids) {
+        for (SeckillOutbox message : messages) {
+            ids.add(message.getId());
+        }
+    }
+}
\ No newline at end of file
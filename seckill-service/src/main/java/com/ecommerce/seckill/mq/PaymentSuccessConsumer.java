@@ -0,0 +1,101 @@
+package com.ecommerce.seckill.mq;
+
+import com.alibaba.fastjson2.JSON;
+import com.ecommerce.seckill.search.ItemIndexSyncer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.rocketmq.client.consumer.DefaultMQPushConsumer;
+import org.apache.rocketmq.client.consumer.listener.ConsumeConcurrentlyStatus;
+import org.apache.rocketmq.client.exception.MQClientException;
+import org.apache.rocketmq.common.message.MessageExt;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 支付成功消息消费者
+ * 批量登记已支付订单涉及的商品，等待所在合并窗口写入ES后确认消息，写入失败时重新消费
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class PaymentSuccessConsumer {
+    
+    @Autowired
+    private ItemIndexSyncer itemIndexSyncer;
+    
+    @Autowired
+    private BatchConsumerFactory batchConsumerFactory;
+    
+    @Value("${seckill.search.sync.consumer.group:seckill-payment-sync-consumer-group}")
+    private String consumerGroup;
+    
+    /**
+     * 单次消费的最大消息数
+     */
+    @Value("${seckill.search.sync.consumer.batch-size:100}")
+    private Integer batchSize;
+    
+    /**
+     * 等待窗口写入完成的最长时间（毫秒），超时后重新消费
+     */
+    @Value("${seckill.search.sync.consumer.ack-timeout-ms:30000}")
+    private Long ackTimeoutMillis;
+    
+    private DefaultMQPushConsumer consumer;
+    
+    /**
+     * 启动消费者
+     */
+    @PostConstruct
+    public void start() throws MQClientException {
+        consumer = batchConsumerFactory.start(consumerGroup, MessageOutbox.PAYMENT_SUCCESS_TOPIC, batchSize,
+            (messages, context) -> consume(messages));
+    }
+    
+    /**
+     * 关闭消费者
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (consumer != null) {
+            consumer.shutdown();
+        }
+    }
+    
+    /**
+     * 批量消费支付成功消息，消息体为订单号JSON数组（兼容单个订单号）
+     */
+    private ConsumeConcurrentlyStatus consume(List<MessageExt> messages) {
+        List<Long> orderNos = new ArrayList<>();
+        long eventTime = Long.MAX_VALUE;
+        for (MessageExt message : messages) {
+            String body = new String(message.getBody(), StandardCharsets.UTF_8).trim();
+            if (body.startsWith("[")) {
+                orderNos.addAll(JSON.parseArray(body, Long.class));
+            } else {
+                orderNos.add(Long.valueOf(body));
+            }
+            eventTime = Math.min(eventTime, message.getStoreTimestamp());
+        }
+        
+        try {
+            itemIndexSyncer.submitOrders(orderNos, eventTime).get(ackTimeoutMillis, TimeUnit.MILLISECONDS);
+            return ConsumeConcurrentlyStatus.CONSUME_SUCCESS;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ConsumeConcurrentlyStatus.RECONSUME_LATER;
+        } catch (Exception e) {
+            log.error("同步支付成功订单到ES失败，订单数: {}, 错误: {}", orderNos.size(), e.getMessage());
+            return ConsumeConcurrentlyStatus.RECONSUME_LATER;
+        }
+    }
+}
\ No newline at end of file
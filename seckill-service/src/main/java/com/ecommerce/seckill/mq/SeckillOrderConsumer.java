@@ -0,0 +1,108 @@
+package com.ecommerce.seckill.mq;
+
+import com.alibaba.fastjson2.JSON;
+import com.ecommerce.seckill.entity.SeckillOrder;
+import com.ecommerce.seckill.service.SeckillService;
+import com.ecommerce.seckill.service.impl.SeckillServiceImpl;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.rocketmq.client.consumer.DefaultMQPushConsumer;
+import org.apache.rocketmq.client.consumer.listener.ConsumeConcurrentlyStatus;
+import org.apache.rocketmq.client.exception.MQClientException;
+import org.apache.rocketmq.common.message.MessageExt;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 异步下单消费者
+ * 每次拉取一批下单消息，以一条多值INSERT落库
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class SeckillOrderConsumer {
+    
+    @Autowired
+    private SeckillService seckillService;
+    
+    @Autowired
+    private BatchConsumerFactory batchConsumerFactory;
+    
+    /**
+     * 是否启用异步下单，未启用时不启动消费者
+     */
+    @Value("${seckill.order.async-enabled:false}")
+    private Boolean asyncOrder;
+    
+    @Value("${seckill.order.consumer.group:seckill-order-consumer-group}")
+    private String consumerGroup;
+    
+    /**
+     * 单次消费的最大消息数，即单次批量插入的最大行数
+     */
+    @Value("${seckill.order.consumer.batch-size:100}")
+    private Integer batchSize;
+    
+    /**
+     * 最大重试次数，超过后标记订单失败并回滚库存
+     */
+    @Value("${seckill.order.consumer.max-reconsume-times:5}")
+    private Integer maxReconsumeTimes;
+    
+    private DefaultMQPushConsumer consumer;
+    
+    /**
+     * 启动消费者
+     */
+    @PostConstruct
+    public void start() throws MQClientException {
+        if (!asyncOrder) {
+            log.info("异步下单未启用，不启动异步下单消费者");
+            return;
+        }
+        consumer = batchConsumerFactory.start(consumerGroup, SeckillServiceImpl.ORDER_TOPIC, batchSize,
+            (messages, context) -> consume(messages));
+    }
+    
+    /**
+     * 关闭消费者
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (consumer != null) {
+            consumer.shutdown();
+        }
+    }
+    
+    /**
+     * 批量消费下单消息
+     */
+    private ConsumeConcurrentlyStatus consume(List<MessageExt> messages) {
+        List<SeckillOrder> orders = new ArrayList<>(messages.size());
+        int reconsumeTimes = 0;
+        for (MessageExt message : messages) {
+            orders.add(JSON.parseObject(new String(message.getBody(), StandardCharsets.UTF_8), SeckillOrder.class));
+            reconsumeTimes = Math.max(reconsumeTimes, message.getReconsumeTimes());
+        }
+        
+        try {
+            seckillService.saveOrders(orders);
+            return ConsumeConcurrentlyStatus.CONSUME_SUCCESS;
+        } catch (Exception e) {
+            log.error("批量创建订单失败，订单数: {}, 重试次数: {}, 错误: {}", orders.size(), reconsumeTimes, e.getMessage(), e);
+            if (reconsumeTimes >= maxReconsumeTimes) {
+                seckillService.failOrders(orders);
+                return ConsumeConcurrentlyStatus.CONSUME_SUCCESS;
+            }
+            return ConsumeConcurrentlyStatus.RECONSUME_LATER;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,261 @@
+package com.ecommerce.seckill.order;
+
+import com.ecommerce.seckill.dao.SeckillOrderMapper;
+import com.ecommerce.seckill.entity.SeckillOrder;
+import com.ecommerce.seckill.mq.MessageOutbox;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单组提交写入器
+ * 汇集并发请求的订单，在时间窗口内或达到批量上限时以一条多值INSERT写入，
+ * 多个订单共享一次事务提交和刷盘，再分别完成各自调用方的Future；订单超时消息在同一事务中写入发件箱
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class OrderBatchWriter {
+    
+    @Autowired
+    private SeckillOrderMapper seckillOrderMapper;
+    
+    @Autowired
+    private MessageOutbox messageOutbox;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    /**
+     * 攒批时间窗口（毫秒）
+     */
+    @Value("${seckill.order.group-commit.window-ms:2}")
+    private Long windowMillis;
+    
+    /**
+     * 单批最大订单数
+     */
+    @Value("${seckill.order.group-commit.batch-size:50}")
+    private Integer batchSize;
+    
+    /**
+     * 等待写入队列容量，队列满时拒绝下单
+     */
+    @Value("${seckill.order.group-commit.queue-capacity:10000}")
+    private Integer queueCapacity;
+    
+    /**
+     * 写入线程数
+     */
+    @Value("${seckill.order.group-commit.writer-threads:2}")
+    private Integer writerThreads;
+    
+    private BlockingQueue<PendingOrder> queue;
+    
+    private final List<Thread> writers = new ArrayList<>();
+    
+    private volatile boolean running;
+    
+    private DistributionSummary batchSizeSummary;
+    
+    private Timer batchLatencyTimer;
+    
+    private Timer queueWaitTimer;
+    
+    private Counter fallbackCounter;
+    
+    /**
+     * 启动写入线程
+     */
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        batchSizeSummary = DistributionSummary.builder("seckill.order.batch.size")
+            .description("每批写入的订单数")
+            .register(meterRegistry);
+        batchLatencyTimer = Timer.builder("seckill.order.batch.latency")
+            .description("每批INSERT耗时")
+            .register(meterRegistry);
+        queueWaitTimer = Timer.builder("seckill.order.batch.queue-wait")
+            .description("订单入队到开始写入的等待时间")
+            .register(meterRegistry);
+        fallbackCounter = Counter.builder("seckill.order.batch.fallback")
+            .description("批量写入失败后降级为逐条写入的批次数")
+            .register(meterRegistry);
+        meterRegistry.gauge("seckill.order.batch.queue-size", queue, BlockingQueue::size);
+        
+        running = true;
+        for (int i = 0; i < writerThreads; i++) {
+            Thread writer = new Thread(this::writeLoop, "order-batch-writer-" + i);
+            writer.setDaemon(true);
+            writer.start();
+            writers.add(writer);
+        }
+        log.info("订单组提交写入器启动完成，时间窗口: {}ms, 批量上限: {}, 写入线程数: {}", windowMillis, batchSize, writerThreads);
+    }
+    
+    /**
+     * 停止写入线程，已入队的订单写完后退出
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        for (Thread writer : writers) {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+    
+    /**
+     * 提交订单等待写入
+     * 
+     * @param order 订单
+     * @return 写入结果，成功时完成为订单本身，失败时以异常完成
+     */
+    public CompletableFuture<SeckillOrder> submit(SeckillOrder order) {
+        PendingOrder pending = new PendingOrder(order);
+        if (!running || !queue.offer(pending)) {
+            pending.future.completeExceptionally(new RuntimeException("系统繁忙，请稍后重试"));
+        }
+        return pending.future;
+    }
+    
+    /**
+     * 撤回尚未被写入线程取出的订单（调用方等待超时时使用）
+     * 
+     * @param future submit返回的Future
+     * @return 是否撤回成功，撤回后订单不会再写入；失败表示订单已在写入中或已完成，结果以Future为准
+     */
+    public boolean withdraw(CompletableFuture<SeckillOrder> future) {
+        for (PendingOrder pending : queue) {
+            if (pending.future == future) {
+                // 出队与撤回在队列锁内互斥，只有一方成功
+                if (!queue.remove(pending)) {
+                    return false;
+                }
+                pending.future.completeExceptionally(new RuntimeException("订单写入超时，已撤回"));
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * 写入线程主循环：阻塞等待第一个订单，然后在时间窗口内继续攒批
+     */
+    private void writeLoop() {
+        List<PendingOrder> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingOrder first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMillis);
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        queue.drainTo(batch, batchSize - batch.size());
+                        break;
+                    }
+                    PendingOrder next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                write(batch);
+                return;
+            } catch (Throwable e) {
+                log.error("订单组提交写入异常: {}", e.getMessage(), e);
+                for (PendingOrder pending : batch) {
+                    pending.future.completeExceptionally(e);
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+    
+    /**
+     * 写入一批订单，失败时降级为逐条写入，使每个调用方拿到各自的结果
+     */
+    private void write(List<PendingOrder> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        List<SeckillOrder> orders = new ArrayList<>(batch.size());
+        List<Long> orderNos = new ArrayList<>(batch.size());
+        for (PendingOrder pending : batch) {
+            queueWaitTimer.record(now - pending.enqueueNanos, TimeUnit.NANOSECONDS);
+            orders.add(pending.order);
+            orderNos.add(pending.order.getOrderNo());
+        }
+        
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                seckillOrderMapper.batchInsert(orders);
+                messageOutbox.addAll(MessageOutbox.ORDER_TIMEOUT_TOPIC, orderNos);
+            });
+            batchLatencyTimer.record(System.nanoTime() - now, TimeUnit.NANOSECONDS);
+            batchSizeSummary.record(orders.size());
+            for (PendingOrder pending : batch) {
+                pending.future.complete(pending.order);
+            }
+        } catch (Exception e) {
+            log.warn("批量写入订单失败，降级为逐条写入，订单数: {}, 错误: {}", orders.size(), e.getMessage());
+            fallbackCounter.increment();
+            for (PendingOrder pending : batch) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        seckillOrderMapper.insert(pending.order);
+                        messageOutbox.add(MessageOutbox.ORDER_TIMEOUT_TOPIC, pending.order.getOrderNo());
+                    });
+                    pending.future.complete(pending.order);
+                } catch (Exception rowError) {
+                    pending.future.completeExceptionally(rowError);
+                }
+            }
+        }
+    }
+    
+    /**
+     * 等待写入的订单
+     */
+    private static final class PendingOrder {
+        
+        private final SeckillOrder order;
+        
+        private final CompletableFuture<SeckillOrder> future = new CompletableFuture<>();
+        
+        private final long enqueueNanos = System.nanoTime();
+        
+        private PendingOrder(SeckillOrder order) {
+            this.order = order;
+        }
+    }
+}
\ No newline at end of file
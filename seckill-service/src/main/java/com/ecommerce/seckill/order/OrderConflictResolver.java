@@ -0,0 +1,78 @@
+package com.ecommerce.seckill.order;
+
+import com.ecommerce.seckill.dao.SeckillOrderMapper;
+import com.ecommerce.seckill.entity.SeckillOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+
+/**
+ * 订单唯一约束冲突判定
+ * seckill_order同时有order_no唯一约束和(user_id, item_id)唯一约束，插入冲突时按订单号查询已有订单区分：
+ * 已有订单属于同一用户和商品时为重复写入，属于其他用户或商品时为订单号冲突，不存在时为用户重复购买
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+@Component
+public class OrderConflictResolver {
+    
+    /**
+     * 订单号冲突时最多换号重试的次数
+     */
+    public static final int MAX_RENUMBER_ATTEMPTS = 3;
+    
+    @Autowired
+    private SeckillOrderMapper seckillOrderMapper;
+    
+    @Autowired
+    private OrderIdGenerator orderIdGenerator;
+    
+    /**
+     * 判定插入订单时唯一约束冲突的原因（须在捕获DuplicateKeyException后调用）
+     * 
+     * @param order 插入失败的订单
+     * @return 冲突类型
+     */
+    public Conflict resolve(SeckillOrder order) {
+        SeckillOrder existing = seckillOrderMapper.selectByOrderNo(order.getOrderNo());
+        if (existing == null) {
+            return Conflict.DUPLICATE_PURCHASE;
+        }
+        if (Objects.equals(existing.getUserId(), order.getUserId()) && Objects.equals(existing.getItemId(), order.getItemId())) {
+            return Conflict.ALREADY_CREATED;
+        }
+        return Conflict.ORDER_NO_COLLISION;
+    }
+    
+    /**
+     * 订单号冲突时为订单重新生成订单号
+     * 
+     * @param order 订单
+     */
+    public void renumber(SeckillOrder order) {
+        order.setOrderNo(orderIdGenerator.nextId(order.getItemId()));
+    }
+    
+    /**
+     * 冲突类型
+     */
+    public enum Conflict {
+        
+        /**
+         * 订单已写入（消息重复投递）
+         */
+        ALREADY_CREATED,
+        
+        /**
+         * 用户已有该商品的其他订单
+         */
+        DUPLICATE_PURCHASE,
+        
+        /**
+         * 订单号与其他订单冲突，换号后重试
+         */
+        ORDER_NO_COLLISION
+    }
+}
\ No newline at end of file
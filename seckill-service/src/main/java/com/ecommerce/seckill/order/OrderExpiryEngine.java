@@ -0,0 +1,288 @@
+package com.ecommerce.seckill.order;
+
+import com.ecommerce.seckill.script.RedisScriptRegistry;
+import com.ecommerce.seckill.script.SeckillScript;
+import com.ecommerce.seckill.service.SeckillService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单超时引擎
+ * 待支付订单的到期时间持久化在Redis有序集合中（score为到期时间），本节点接收的订单同时放入内存分层时间轮，到期时准时触发；
+ * 触发时以Lua脚本将订单的score推后为认领租约到期时间，多个节点只有一个认领成功，再批量走取消订单流程，取消提交后才从有序集合中移除。
+ * 时间轮中没有的订单（节点重启、其他节点宕机、超出本地容量）以及认领后未完成取消的订单由定时扫描有序集合中已过期的订单兜底触发
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class OrderExpiryEngine {
+    
+    /**
+     * 订单到期时间有序集合key
+     */
+    private static final String EXPIRY_KEY = "seckill:order:expiry";
+    
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    
+    @Autowired
+    private RedisScriptRegistry redisScriptRegistry;
+    
+    @Autowired
+    private SeckillService seckillService;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    /**
+     * 订单超时时间（分钟）
+     */
+    @Value("${seckill.order.timeout:30}")
+    private Integer orderTimeout;
+    
+    /**
+     * 时间轮第0层每格时长（毫秒）
+     */
+    @Value("${seckill.order.expiry.tick-ms:1000}")
+    private Long tickMillis;
+    
+    /**
+     * 时间轮每层格数
+     */
+    @Value("${seckill.order.expiry.wheel-size:64}")
+    private Integer wheelSize;
+    
+    /**
+     * 时间轮层数
+     */
+    @Value("${seckill.order.expiry.levels:3}")
+    private Integer levels;
+    
+    /**
+     * 本节点时间轮最多容纳的订单数，超出部分只写入Redis，由扫描触发
+     */
+    @Value("${seckill.order.expiry.max-local-entries:2000000}")
+    private Integer maxLocalEntries;
+    
+    /**
+     * 单次认领和取消的最大订单数
+     */
+    @Value("${seckill.order.expiry.batch-size:500}")
+    private Integer batchSize;
+    
+    /**
+     * 扫描时只处理已过期超过该时长的订单（毫秒），留给时间轮准时触发
+     */
+    @Value("${seckill.order.expiry.grace-ms:5000}")
+    private Long graceMillis;
+    
+    /**
+     * 认领租约（毫秒），认领节点在租约内未完成取消时由扫描重新触发
+     */
+    @Value("${seckill.order.expiry.claim-lease-ms:60000}")
+    private Long claimLeaseMillis;
+    
+    /**
+     * 取消失败后重新到期的延迟（毫秒）
+     */
+    @Value("${seckill.order.expiry.retry-delay-ms:10000}")
+    private Long retryDelayMillis;
+    
+    private TimingWheel timingWheel;
+    
+    private ScheduledExecutorService ticker;
+    
+    private final TimingWheel.LongList expired = new TimingWheel.LongList();
+    
+    private Counter firedCounter;
+    
+    private Counter sweptCounter;
+    
+    @PostConstruct
+    public void init() {
+        timingWheel = new TimingWheel(tickMillis, wheelSize, levels, System.currentTimeMillis());
+        firedCounter = Counter.builder("seckill.order.expiry.fired")
+            .description("时间轮触发的到期订单数")
+            .register(meterRegistry);
+        sweptCounter = Counter.builder("seckill.order.expiry.swept")
+            .description("扫描有序集合触发的到期订单数")
+            .register(meterRegistry);
+        Gauge.builder("seckill.order.expiry.pending", this, engine -> engine.localSize())
+            .description("本节点时间轮中待到期的订单数")
+            .register(meterRegistry);
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-expiry-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleWithFixedDelay(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        log.info("订单超时引擎初始化完成，超时时间: {}分钟, 时间轮: {}ms x {} x {}层", orderTimeout, tickMillis, wheelSize, levels);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+    
+    /**
+     * 登记一批订单的超时：先写入Redis有序集合，再放入本节点时间轮，已到期的订单立即取消
+     * 到期时间由订单号中的创建时间推算，重复登记幂等
+     * 
+     * @param orderNos 订单号列表
+     */
+    public void scheduleAll(List<Long> orderNos) {
+        if (orderNos.isEmpty()) {
+            return;
+        }
+        long timeoutMillis = TimeUnit.MINUTES.toMillis(orderTimeout);
+        Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>(orderNos.size() * 2);
+        for (Long orderNo : orderNos) {
+            tuples.add(new DefaultTypedTuple<>(String.valueOf(orderNo), (double) (OrderIdGenerator.timestampOf(orderNo) + timeoutMillis)));
+        }
+        stringRedisTemplate.opsForZSet().add(EXPIRY_KEY, tuples);
+        
+        List<Long> due = new ArrayList<>();
+        synchronized (timingWheel) {
+            for (Long orderNo : orderNos) {
+                if (timingWheel.size() >= maxLocalEntries) {
+                    break;
+                }
+                if (!timingWheel.add(orderNo, OrderIdGenerator.timestampOf(orderNo) + timeoutMillis)) {
+                    due.add(orderNo);
+                }
+            }
+        }
+        if (!due.isEmpty()) {
+            fire(due);
+        }
+    }
+    
+    /**
+     * 定时扫描有序集合中过期已超过宽限时间的订单，接管重启前或其他节点未触发的订单
+     */
+    @Scheduled(fixedDelayString = "${seckill.order.expiry.sweep-interval-ms:5000}")
+    public void sweep() {
+        try {
+            while (true) {
+                Set<String> members = stringRedisTemplate.opsForZSet()
+                    .rangeByScore(EXPIRY_KEY, 0, System.currentTimeMillis() - graceMillis, 0, batchSize);
+                if (members == null || members.isEmpty()) {
+                    return;
+                }
+                List<Long> orderNos = new ArrayList<>(members.size());
+                for (String member : members) {
+                    orderNos.add(Long.valueOf(member));
+                }
+                sweptCounter.increment(fire(orderNos));
+                if (members.size() < batchSize) {
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            log.error("扫描到期订单失败: {}", e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * 推进时间轮，分批触发到期订单
+     */
+    private void tick() {
+        try {
+            List<Long> due;
+            synchronized (timingWheel) {
+                timingWheel.advance(System.currentTimeMillis(), expired);
+                due = new ArrayList<>(expired.size());
+                for (int i = 0; i < expired.size(); i++) {
+                    due.add(expired.get(i));
+                }
+                expired.clear();
+            }
+            for (int from = 0; from < due.size(); from += batchSize) {
+                firedCounter.increment(fire(due.subList(from, Math.min(from + batchSize, due.size()))));
+            }
+        } catch (Exception e) {
+            log.error("时间轮触发到期订单失败: {}", e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * 认领并取消一批到期订单，取消提交后从有序集合中移除，取消失败时延迟后重新到期
+     * 
+     * @return 认领成功的订单数
+     */
+    private int fire(List<Long> orderNos) {
+        List<Long> claimed = claim(orderNos);
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+        try {
+            seckillService.expireOrders(claimed);
+        } catch (Exception e) {
+            log.error("批量取消到期订单失败，订单数: {}, 错误: {}", claimed.size(), e.getMessage(), e);
+            Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>(claimed.size() * 2);
+            double retryAt = System.currentTimeMillis() + retryDelayMillis;
+            for (Long orderNo : claimed) {
+                tuples.add(new DefaultTypedTuple<>(String.valueOf(orderNo), retryAt));
+            }
+            stringRedisTemplate.opsForZSet().add(EXPIRY_KEY, tuples);
+            return claimed.size();
+        }
+        // 取消已提交，移除失败时租约到期后重复触发，取消订单幂等
+        stringRedisTemplate.opsForZSet().remove(EXPIRY_KEY, claimed.stream().map(String::valueOf).toArray());
+        return claimed.size();
+    }
+    
+    /**
+     * 认领已到期的订单（时间轮按格触发，允许提前一格），返回本节点认领成功的订单号
+     */
+    private List<Long> claim(List<Long> orderNos) {
+        long now = System.currentTimeMillis();
+        Object[] args = new Object[orderNos.size() + 2];
+        args[0] = now + tickMillis;
+        args[1] = now + claimLeaseMillis;
+        for (int i = 0; i < orderNos.size(); i++) {
+            args[i + 2] = orderNos.get(i);
+        }
+        List<Object> leased = redisScriptRegistry.execute(SeckillScript.EXPIRY_CLAIM,
+            Collections.singletonList(EXPIRY_KEY), args);
+        if (leased == null || leased.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Long> claimed = new ArrayList<>(leased.size());
+        for (Object member : leased) {
+            claimed.add(Long.valueOf(new String((byte[]) member, StandardCharsets.UTF_8)));
+        }
+        return claimed;
+    }
+    
+    private int localSize() {
+        synchronized (timingWheel) {
+            return timingWheel.size();
+        }
+    }
+}
\ No newline at end of file
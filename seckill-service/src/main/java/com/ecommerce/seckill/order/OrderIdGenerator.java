@@ -0,0 +1,273 @@
+package com.ecommerce.seckill.order;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单号生成器
+ * 64位趋势递增ID：1位符号 | 41位毫秒时间戳 | 10位节点ID | 12位序列号，
+ * 开启商品分片位时从序列号中划出低位存放商品ID的低位，订单号可直接路由到商品分片；
+ * 节点ID通过Redis租约在实例间分配，租约丢失时停止发号直到重新获得节点ID；
+ * Redis不可达、无法确认租约时在租约到期后最多再保留一个租约时长继续发号，覆盖短时故障期间的MySQL降级扣减，
+ * 超过后停止发号，避免部分网络分区时其他实例占用同一节点ID后发出重复订单号
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class OrderIdGenerator {
+    
+    /**
+     * 起始时间 2024-01-01 00:00:00 UTC
+     */
+    private static final long EPOCH = 1704067200000L;
+    
+    private static final int NODE_BITS = 10;
+    
+    private static final int SEQUENCE_BITS = 12;
+    
+    private static final int TIMESTAMP_SHIFT = NODE_BITS + SEQUENCE_BITS;
+    
+    private static final int MAX_NODE = (1 << NODE_BITS) - 1;
+    
+    /**
+     * 允许等待的最大时钟回拨（毫秒），超过时拒绝发号
+     */
+    private static final long MAX_BACKWARD_MILLIS = 5;
+    
+    /**
+     * 节点ID租约key前缀
+     */
+    private static final String NODE_KEY_PREFIX = "seckill:order-id:node:";
+    
+    /**
+     * 续约脚本：租约仍属于当前实例时延长有效期；Redis不可达期间租约已过期删除时重新占用，其他实例已占用时返回0
+     */
+    private static final DefaultRedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+        "local holder = redis.call('GET', KEYS[1]) "
+            + "if holder == ARGV[1] then return redis.call('PEXPIRE', KEYS[1], ARGV[2]) end "
+            + "if not holder then redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2]) return 1 end return 0",
+        Long.class);
+    
+    /**
+     * 释放脚本：仅删除属于当前实例的租约
+     */
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0",
+        Long.class);
+    
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    /**
+     * 商品分片位数，从序列号位中划分，0表示不嵌入商品分片
+     */
+    @Value("${seckill.order.id.shard-bits:0}")
+    private Integer shardBits;
+    
+    /**
+     * 节点ID租约有效期（秒），续约间隔为三分之一
+     */
+    @Value("${seckill.order.id.lease-seconds:30}")
+    private Long leaseSeconds;
+    
+    /**
+     * 当前实例的租约标识
+     */
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName() + ":" + UUID.randomUUID();
+    
+    /**
+     * 当前节点ID，-1表示未持有租约
+     */
+    private volatile int nodeId = -1;
+    
+    /**
+     * 租约到期时间，超过后即使续约线程未发现丢失也停止发号
+     */
+    private volatile long leaseExpireAt;
+    
+    /**
+     * 续约因Redis不可达而无法确认租约，此期间发号期限延长一个租约时长，Redis恢复后由续约结果决定是否保留节点ID
+     */
+    private volatile boolean leaseUnverified;
+    
+    private long lastTimestamp = -1L;
+    
+    private long sequence;
+    
+    private long sequenceMask;
+    
+    @PostConstruct
+    public void init() {
+        if (shardBits < 0 || shardBits >= SEQUENCE_BITS) {
+            throw new IllegalStateException("seckill.order.id.shard-bits 必须在0到" + (SEQUENCE_BITS - 1) + "之间");
+        }
+        sequenceMask = (1L << (SEQUENCE_BITS - shardBits)) - 1;
+        acquireNodeId();
+        if (nodeId < 0) {
+            throw new IllegalStateException("无法分配订单号节点ID，所有节点ID均被占用");
+        }
+        // 发号不可用时告警，Redis不可达超过租约有效期后仍应保持可用
+        Gauge.builder("seckill.order.id.available", this, generator -> generator.isAvailable() ? 1 : 0)
+            .description("订单号生成器是否可以发号")
+            .register(meterRegistry);
+    }
+    
+    /**
+     * 是否可以发号（持有节点ID且未超过发号期限）
+     */
+    public boolean isAvailable() {
+        return nodeId >= 0 && System.currentTimeMillis() <= issueDeadline();
+    }
+    
+    /**
+     * 释放节点ID租约
+     */
+    @PreDestroy
+    public void shutdown() {
+        int current = nodeId;
+        if (current >= 0) {
+            nodeId = -1;
+            stringRedisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(NODE_KEY_PREFIX + current), owner);
+        }
+    }
+    
+    /**
+     * 生成订单号
+     * 
+     * @param itemId 商品ID，开启商品分片位时取其低位嵌入订单号
+     * @return 订单号
+     */
+    public synchronized long nextId(Long itemId) {
+        int node = nodeId;
+        long now = System.currentTimeMillis();
+        if (node < 0 || now > issueDeadline()) {
+            // 租约失效或无法确认的时间超过宽限期，停止发号
+            throw new IllegalStateException("系统繁忙，请稍后重试");
+        }
+        
+        if (now < lastTimestamp) {
+            // 小幅时钟回拨时等待追上，否则拒绝发号避免产生重复订单号
+            long offset = lastTimestamp - now;
+            if (offset > MAX_BACKWARD_MILLIS) {
+                throw new IllegalStateException("系统时钟回拨" + offset + "ms，拒绝生成订单号");
+            }
+            now = waitUntil(lastTimestamp);
+        }
+        if (now == lastTimestamp) {
+            sequence = (sequence + 1) & sequenceMask;
+            if (sequence == 0) {
+                now = waitUntil(lastTimestamp + 1);
+            }
+        } else {
+            sequence = 0;
+        }
+        lastTimestamp = now;
+        
+        long shard = shardBits > 0 && itemId != null ? itemId & ((1L << shardBits) - 1) : 0;
+        return ((now - EPOCH) << TIMESTAMP_SHIFT)
+            | ((long) node << SEQUENCE_BITS)
+            | (sequence << shardBits)
+            | shard;
+    }
+    
+    /**
+     * 定时续约，租约丢失时重新分配节点ID
+     */
+    @Scheduled(fixedDelayString = "#{${seckill.order.id.lease-seconds:30} * 1000 / 3}")
+    public void renew() {
+        int current = nodeId;
+        try {
+            if (current >= 0) {
+                // 以发起续约前的时间计算到期时间，保证本地判定早于Redis中的实际过期
+                long start = System.currentTimeMillis();
+                Long renewed = stringRedisTemplate.execute(RENEW_SCRIPT,
+                    Collections.singletonList(NODE_KEY_PREFIX + current), owner, String.valueOf(TimeUnit.SECONDS.toMillis(leaseSeconds)));
+                if (renewed != null && renewed == 1) {
+                    leaseExpireAt = start + TimeUnit.SECONDS.toMillis(leaseSeconds);
+                    if (leaseUnverified) {
+                        leaseUnverified = false;
+                        log.info("Redis已恢复，订单号节点ID {} 续约成功", current);
+                    }
+                    return;
+                }
+                log.warn("订单号节点ID {} 租约已被其他实例占用，重新分配", current);
+                nodeId = -1;
+                leaseUnverified = false;
+            }
+            acquireNodeId();
+        } catch (Exception e) {
+            if (current >= 0 && !leaseUnverified) {
+                // 无法确认租约时宽限一个租约时长，超过后停止发号
+                leaseUnverified = true;
+                log.error("订单号节点ID续约失败，节点ID {} 最多继续发号至租约到期后{}秒: {}", current, leaseSeconds, e.getMessage(), e);
+            } else {
+                log.error("订单号节点ID续约失败，节点ID: {}, 错误: {}", current, e.getMessage(), e);
+            }
+        }
+    }
+    
+    /**
+     * 订单号中的创建时间
+     * 
+     * @param orderNo 订单号
+     * @return 创建时间（毫秒时间戳）
+     */
+    public static long timestampOf(long orderNo) {
+        return (orderNo >>> TIMESTAMP_SHIFT) + EPOCH;
+    }
+    
+    /**
+     * 从随机位置开始依次尝试占用节点ID，避免多个实例同时启动时争抢同一个ID
+     */
+    private void acquireNodeId() {
+        int start = (int) (Math.abs((long) owner.hashCode()) % (MAX_NODE + 1));
+        for (int i = 0; i <= MAX_NODE; i++) {
+            int candidate = (start + i) % (MAX_NODE + 1);
+            long now = System.currentTimeMillis();
+            Boolean acquired = stringRedisTemplate.opsForValue()
+                .setIfAbsent(NODE_KEY_PREFIX + candidate, owner, leaseSeconds, TimeUnit.SECONDS);
+            if (Boolean.TRUE.equals(acquired)) {
+                leaseExpireAt = now + TimeUnit.SECONDS.toMillis(leaseSeconds);
+                nodeId = candidate;
+                log.info("订单号节点ID分配完成，节点ID: {}, 商品分片位数: {}", candidate, shardBits);
+                return;
+            }
+        }
+        log.error("订单号节点ID分配失败，所有节点ID均被占用");
+    }
+    
+    /**
+     * 发号期限：租约到期时间，无法确认租约时再延长一个租约时长
+     */
+    private long issueDeadline() {
+        return leaseExpireAt + (leaseUnverified ? TimeUnit.SECONDS.toMillis(leaseSeconds) : 0);
+    }
+    
+    private static long waitUntil(long timestamp) {
+        long now = System.currentTimeMillis();
+        while (now < timestamp) {
+            Thread.yield();
+            now = System.currentTimeMillis();
+        }
+        return now;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,200 @@
+package com.ecommerce.seckill.order;
+
+import java.util.Arrays;
+
+/**
+ * 分层时间轮
+ * 第0层每格一个tick，第n层每格为第n-1层一整圈；加入和到期均为O(1)，
+ * 高层的格到达时整格下沉到低层，最高层放不下的远期任务在该格下沉时重新放回。
+ * 每个格用两个long数组保存任务ID和到期时间，百万级任务不产生对象开销。非线程安全，由调用方加锁
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+public class TimingWheel {
+    
+    private final long tickMillis;
+    
+    private final int wheelSize;
+    
+    /**
+     * 各层每格的时长
+     */
+    private final long[] levelTicks;
+    
+    private final Bucket[][] buckets;
+    
+    /**
+     * 当前时间（按tick对齐），早于该时间的任务均已到期
+     */
+    private long currentTime;
+    
+    private int size;
+    
+    /**
+     * @param tickMillis 第0层每格时长（毫秒）
+     * @param wheelSize 每层格数
+     * @param levels 层数
+     * @param startTime 起始时间（毫秒时间戳）
+     */
+    public TimingWheel(long tickMillis, int wheelSize, int levels, long startTime) {
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.levelTicks = new long[levels];
+        this.buckets = new Bucket[levels][wheelSize];
+        long levelTick = tickMillis;
+        for (int level = 0; level < levels; level++) {
+            levelTicks[level] = levelTick;
+            for (int slot = 0; slot < wheelSize; slot++) {
+                buckets[level][slot] = new Bucket();
+            }
+            levelTick *= wheelSize;
+        }
+        this.currentTime = startTime - startTime % tickMillis;
+    }
+    
+    /**
+     * 加入任务
+     * 
+     * @param id 任务ID
+     * @param deadline 到期时间（毫秒时间戳）
+     * @return 是否加入，false表示已到期，由调用方立即处理
+     */
+    public boolean add(long id, long deadline) {
+        if (deadline < currentTime) {
+            return false;
+        }
+        int top = levelTicks.length - 1;
+        for (int level = 0; level < top; level++) {
+            // 与当前时间处于上一层的同一格内，本层这一圈即可覆盖
+            long upperTick = levelTicks[level + 1];
+            if (deadline / upperTick == currentTime / upperTick) {
+                bucket(level, deadline).add(id, deadline);
+                size++;
+                return true;
+            }
+        }
+        bucket(top, deadline).add(id, deadline);
+        size++;
+        return true;
+    }
+    
+    /**
+     * 推进到指定时间，收集到期的任务ID
+     * 每一步先触发第0层刚走过的格，再下沉在该时刻到达的高层格
+     * 
+     * @param now 当前时间（毫秒时间戳）
+     * @param expired 到期任务ID输出
+     */
+    public void advance(long now, LongList expired) {
+        while (currentTime + tickMillis <= now) {
+            currentTime += tickMillis;
+            Bucket fired = bucket(0, currentTime - tickMillis);
+            size -= fired.size;
+            fired.drainTo(expired);
+            for (int level = levelTicks.length - 1; level > 0; level--) {
+                if (currentTime % levelTicks[level] == 0) {
+                    cascade(level, expired);
+                }
+            }
+        }
+    }
+    
+    /**
+     * 时间轮中的任务数
+     */
+    public int size() {
+        return size;
+    }
+    
+    private void cascade(int level, LongList expired) {
+        Bucket bucket = bucket(level, currentTime);
+        if (bucket.size == 0) {
+            return;
+        }
+        long[] ids = bucket.ids;
+        long[] deadlines = bucket.deadlines;
+        int count = bucket.size;
+        size -= count;
+        bucket.reset();
+        for (int i = 0; i < count; i++) {
+            if (!add(ids[i], deadlines[i])) {
+                expired.add(ids[i]);
+            }
+        }
+    }
+    
+    private Bucket bucket(int level, long time) {
+        return buckets[level][(int) ((time / levelTicks[level]) % wheelSize)];
+    }
+    
+    /**
+     * 时间轮的一格
+     */
+    private static final class Bucket {
+        
+        private static final long[] EMPTY = new long[0];
+        
+        private long[] ids = EMPTY;
+        
+        private long[] deadlines = EMPTY;
+        
+        private int size;
+        
+        private void add(long id, long deadline) {
+            if (size == ids.length) {
+                int capacity = Math.max(8, size * 2);
+                ids = Arrays.copyOf(ids, capacity);
+                deadlines = Arrays.copyOf(deadlines, capacity);
+            }
+            ids[size] = id;
+            deadlines[size] = deadline;
+            size++;
+        }
+        
+        private void drainTo(LongList expired) {
+            for (int i = 0; i < size; i++) {
+                expired.add(ids[i]);
+            }
+            reset();
+        }
+        
+        /**
+         * 清空并释放数组，下沉时原数组交给调用方遍历
+         */
+        private void reset() {
+            ids = EMPTY;
+            deadlines = EMPTY;
+            size = 0;
+        }
+    }
+    
+    /**
+     * 可增长的long列表
+     */
+    public static final class LongList {
+        
+        private long[] values = new long[16];
+        
+        private int size;
+        
+        public void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+        
+        public long get(int index) {
+            return values[index];
+        }
+        
+        public int size() {
+            return size;
+        }
+        
+        public void clear() {
+            size = 0;
+        }
+    }
+}
\ No newline at end of file
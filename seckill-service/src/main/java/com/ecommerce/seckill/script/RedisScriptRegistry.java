@@ -0,0 +1,288 @@
+package com.ecommerce.seckill.script;
+
+import io.lettuce.core.event.connection.ConnectionActivatedEvent;
+import io.lettuce.core.resource.ClientResources;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Redis脚本注册中心
+ * 启动时和每次重新建立连接后将所有秒杀脚本SCRIPT LOAD到Redis，调用统一走EVALSHA，
+ * 遇到NOSCRIPT（如主从切换后脚本缓存为空）时重新加载并重试；
+ * 同时提供管道接口，将脚本与普通命令在一次写出中发送
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class RedisScriptRegistry {
+    
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    
+    @Autowired
+    private ClientResources clientResources;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private final Map<SeckillScript, DefaultRedisScript<Object>> scripts = new EnumMap<>(SeckillScript.class);
+    
+    private final Map<SeckillScript, Counter> hitCounters = new EnumMap<>(SeckillScript.class);
+    
+    private final Map<SeckillScript, Counter> missCounters = new EnumMap<>(SeckillScript.class);
+    
+    private Disposable reconnectSubscription;
+    
+    @PostConstruct
+    public void init() {
+        for (SeckillScript script : SeckillScript.values()) {
+            DefaultRedisScript<Object> redisScript = new DefaultRedisScript<>();
+            redisScript.setLocation(new ClassPathResource(script.getLocation()));
+            scripts.put(script, redisScript);
+            hitCounters.put(script, Counter.builder("seckill.redis.script")
+                .description("EVALSHA直接命中Redis脚本缓存的次数")
+                .tag("script", script.name())
+                .tag("result", "hit")
+                .register(meterRegistry));
+            missCounters.put(script, Counter.builder("seckill.redis.script")
+                .description("EVALSHA返回NOSCRIPT后重新加载脚本的次数")
+                .tag("script", script.name())
+                .tag("result", "miss")
+                .register(meterRegistry));
+        }
+        
+        try {
+            loadAll();
+        } catch (Exception e) {
+            // Redis暂不可用时不阻止启动，连接建立后或首次NOSCRIPT时再加载
+            log.warn("预加载Redis脚本失败: {}", e.getMessage());
+        }
+        
+        // 连接重新建立后（断线重连、主从切换）重新加载，避免切换后的首批请求全部NOSCRIPT
+        reconnectSubscription = clientResources.eventBus().get()
+            .filter(event -> event instanceof ConnectionActivatedEvent)
+            .subscribe(event -> CompletableFuture.runAsync(this::reloadQuietly));
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (reconnectSubscription != null) {
+            reconnectSubscription.dispose();
+        }
+    }
+    
+    /**
+     * 将所有脚本加载到Redis脚本缓存
+     */
+    public void loadAll() {
+        stringRedisTemplate.execute((RedisCallback<Object>) connection -> {
+            for (DefaultRedisScript<Object> script : scripts.values()) {
+                connection.scriptingCommands().scriptLoad(bytes(script.getScriptAsString()));
+            }
+            return null;
+        });
+        log.info("Redis脚本加载完成，脚本数: {}", scripts.size());
+    }
+    
+    /**
+     * 检查所有脚本是否已在Redis脚本缓存中
+     * 
+     * @return 是否全部已加载
+     */
+    public boolean isLoaded() {
+        String[] shas = scripts.values().stream().map(DefaultRedisScript::getSha1).toArray(String[]::new);
+        Boolean loaded = stringRedisTemplate.execute((RedisCallback<Boolean>) connection -> {
+            List<Boolean> exists = connection.scriptingCommands().scriptExists(shas);
+            return exists != null && !exists.isEmpty() && !exists.contains(Boolean.FALSE);
+        });
+        return Boolean.TRUE.equals(loaded);
+    }
+    
+    /**
+     * 通过EVALSHA执行脚本，脚本缓存缺失时加载后重试
+     * 
+     * @param script 脚本
+     * @param keys key列表
+     * @param args 参数列表
+     * @return 脚本返回值：INTEGER类型为Long，MULTI类型为List
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(SeckillScript script, List<String> keys, Object... args) {
+        byte[][] keysAndArgs = keysAndArgs(keys, args);
+        try {
+            T result = stringRedisTemplate.execute((RedisCallback<T>) connection -> (T) evalSha(connection, script, keys.size(), keysAndArgs));
+            hitCounters.get(script).increment();
+            return result;
+        } catch (Exception e) {
+            if (!isNoScript(e)) {
+                throw e;
+            }
+        }
+        missCounters.get(script).increment();
+        return (T) stringRedisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.scriptingCommands().scriptLoad(bytes(scripts.get(script).getScriptAsString()));
+            return evalSha(connection, script, keys.size(), keysAndArgs);
+        });
+    }
+    
+    /**
+     * 以管道方式执行一组脚本和普通命令，所有命令在一次写出中发送
+     * 管道中返回NOSCRIPT的脚本单独重试，其余命令不会重复执行
+     * 
+     * @param commands 管道命令
+     * @return 与命令顺序一致的返回值列表
+     */
+    public List<Object> executePipelined(Consumer<ScriptPipeline> commands) {
+        List<PipelinedScript> pipelinedScripts = new ArrayList<>();
+        List<Object> results;
+        try {
+            results = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                commands.accept(new ScriptPipeline(connection, pipelinedScripts));
+                return null;
+            });
+        } catch (RedisPipelineException e) {
+            results = new ArrayList<>(e.getPipelineResult());
+            for (Object result : results) {
+                if (result instanceof Exception && !isNoScript((Exception) result)) {
+                    throw e;
+                }
+            }
+        }
+        
+        // 管道中的脚本未执行，逐个加载后重试
+        for (PipelinedScript pipelined : pipelinedScripts) {
+            Object result = results.get(pipelined.index);
+            if (result instanceof Exception) {
+                results.set(pipelined.index, execute(pipelined.script, pipelined.keys, pipelined.args));
+            } else {
+                hitCounters.get(pipelined.script).increment();
+            }
+        }
+        return results;
+    }
+    
+    private Object evalSha(RedisConnection connection, SeckillScript script, int numKeys, byte[][] keysAndArgs) {
+        return connection.scriptingCommands().evalSha(scripts.get(script).getSha1(), script.getReturnType(), numKeys, keysAndArgs);
+    }
+    
+    private void reloadQuietly() {
+        try {
+            loadAll();
+        } catch (Exception e) {
+            log.warn("重连后重新加载Redis脚本失败: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * 判断异常是否由NOSCRIPT引起
+     */
+    private static boolean isNoScript(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause.getMessage() != null && cause.getMessage().contains("NOSCRIPT")) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static byte[][] keysAndArgs(List<String> keys, Object[] args) {
+        byte[][] keysAndArgs = new byte[keys.size() + args.length][];
+        for (int i = 0; i < keys.size(); i++) {
+            keysAndArgs[i] = bytes(keys.get(i));
+        }
+        for (int i = 0; i < args.length; i++) {
+            keysAndArgs[keys.size() + i] = bytes(String.valueOf(args[i]));
+        }
+        return keysAndArgs;
+    }
+    
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * 管道命令构建器
+     */
+    public final class ScriptPipeline {
+        
+        private final RedisConnection connection;
+        
+        private final List<PipelinedScript> pipelinedScripts;
+        
+        private int index;
+        
+        private ScriptPipeline(RedisConnection connection, List<PipelinedScript> pipelinedScripts) {
+            this.connection = connection;
+            this.pipelinedScripts = pipelinedScripts;
+        }
+        
+        /**
+         * 追加一次脚本调用
+         * 
+         * @param script 脚本
+         * @param keys key列表
+         * @param args 参数列表
+         * @return 当前构建器
+         */
+        public ScriptPipeline script(SeckillScript script, List<String> keys, Object... args) {
+            pipelinedScripts.add(new PipelinedScript(index++, script, keys, args));
+            evalSha(connection, script, keys.size(), keysAndArgs(keys, args));
+            return this;
+        }
+        
+        /**
+         * 追加一条普通命令，回调中必须恰好发出一条命令
+         * 
+         * @param command 命令
+         * @return 当前构建器
+         */
+        public ScriptPipeline command(Consumer<RedisConnection> command) {
+            index++;
+            command.accept(connection);
+            return this;
+        }
+    }
+    
+    /**
+     * 管道中的脚本调用，用于NOSCRIPT时重试
+     */
+    private static final class PipelinedScript {
+        
+        private final int index;
+        
+        private final SeckillScript script;
+        
+        private final List<String> keys;
+        
+        private final Object[] args;
+        
+        private PipelinedScript(int index, SeckillScript script, List<String> keys, Object[] args) {
+            this.index = index;
+            this.script = script;
+            this.keys = keys;
+            this.args = args;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,80 @@
+package com.ecommerce.seckill.script;
+
+import org.springframework.data.redis.connection.ReturnType;
+
+/**
+ * 秒杀使用的Lua脚本
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+public enum SeckillScript {
+    
+    /**
+     * 库存扣减并防止重复下单
+     */
+    STOCK("scripts/stock.lua", ReturnType.INTEGER),
+    
+    /**
+     * 分桶库存扣减
+     */
+    STOCK_BUCKET("scripts/stock_bucket.lua", ReturnType.INTEGER),
+    
+    /**
+     * 批量库存扣减，返回每个请求的结果数组
+     */
+    STOCK_BATCH("scripts/stock_batch.lua", ReturnType.MULTI),
+    
+    /**
+     * 滑动窗口限流计数
+     */
+    RATE_LIMIT("scripts/rate_limit.lua", ReturnType.INTEGER),
+    
+    /**
+     * 登记购买用户
+     */
+    BUYER_MARK("scripts/buyer_mark.lua", ReturnType.INTEGER),
+    
+    /**
+     * 带栅栏的库存回灌
+     */
+    STOCK_RESEED("scripts/stock_reseed.lua", ReturnType.INTEGER),
+    
+    /**
+     * 库存修正，修正量分摊到所有分桶
+     */
+    STOCK_ADJUST("scripts/stock_adjust.lua", ReturnType.INTEGER),
+    
+    /**
+     * 受理凭证状态迁移，返回每个凭证的迁移结果数组
+     */
+    TICKET_TRANSIT("scripts/ticket_transit.lua", ReturnType.MULTI),
+    
+    /**
+     * 认领到期订单，返回认领成功的订单号数组
+     */
+    EXPIRY_CLAIM("scripts/expiry_claim.lua", ReturnType.MULTI);
+    
+    /**
+     * 脚本文件路径（classpath）
+     */
+    private final String location;
+    
+    /**
+     * 返回值类型
+     */
+    private final ReturnType returnType;
+    
+    SeckillScript(String location, ReturnType returnType) {
+        this.location = location;
+        this.returnType = returnType;
+    }
+    
+    public String getLocation() {
+        return location;
+    }
+    
+    public ReturnType getReturnType() {
+        return returnType;
+    }
+}
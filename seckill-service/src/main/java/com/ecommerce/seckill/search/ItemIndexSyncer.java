@@ -0,0 +1,316 @@
+package com.ecommerce.seckill.search;
+
+import com.ecommerce.seckill.cache.SeckillItemRegistry;
+import com.ecommerce.seckill.dao.SeckillOrderMapper;
+import com.ecommerce.seckill.stock.RedisStockManager;
+import com.ecommerce.seckill.vo.ItemQuantity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.elasticsearch.BulkFailureException;
+import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.UpdateQuery;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 商品索引同步
+ * 支付成功事件只登记受影响的商品，每个时间窗口结束时对窗口内的商品各写一次ES：
+ * 已售数量和剩余库存按当前值覆盖写入（与事件条数无关、重复写入幂等），
+ * 分批走Bulk API，批次间并发受限，失败的文档按退避重试；窗口写入完成后该窗口内登记的事件才算处理完成
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class ItemIndexSyncer {
+    
+    /**
+     * 索引映射，日期字段不带时区，按UTC解析
+     */
+    private static final String MAPPING_LOCATION = "elasticsearch/seckill_item-mapping.json";
+    
+    @Autowired
+    private ElasticsearchRestTemplate elasticsearchTemplate;
+    
+    @Autowired
+    private SeckillOrderMapper seckillOrderMapper;
+    
+    @Autowired
+    private RedisStockManager redisStockManager;
+    
+    @Autowired
+    private SeckillItemRegistry seckillItemRegistry;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    /**
+     * 秒杀商品索引名
+     */
+    @Value("${seckill.search.index:seckill_item}")
+    private String index;
+    
+    /**
+     * 合并窗口（毫秒）
+     */
+    @Value("${seckill.search.sync.window-ms:1000}")
+    private Long windowMillis;
+    
+    /**
+     * 单次Bulk请求的最大文档数
+     */
+    @Value("${seckill.search.sync.bulk-size:200}")
+    private Integer bulkSize;
+    
+    /**
+     * 同时进行的Bulk请求数
+     */
+    @Value("${seckill.search.sync.concurrency:2}")
+    private Integer concurrency;
+    
+    /**
+     * 单批最大重试次数
+     */
+    @Value("${seckill.search.sync.max-retries:3}")
+    private Integer maxRetries;
+    
+    /**
+     * 首次重试的退避时间（毫秒），之后逐次翻倍
+     */
+    @Value("${seckill.search.sync.retry-backoff-ms:200}")
+    private Long retryBackoffMillis;
+    
+    private final Object lock = new Object();
+    
+    /**
+     * 当前窗口内待同步的商品
+     */
+    private Set<Long> dirtyItems = new HashSet<>();
+    
+    /**
+     * 当前窗口写入完成时完成
+     */
+    private CompletableFuture<Void> window = new CompletableFuture<>();
+    
+    /**
+     * 当前窗口内最早事件的产生时间
+     */
+    private long oldestEventTime = Long.MAX_VALUE;
+    
+    /**
+     * 最近一个窗口写入完成时落后于最早事件的时间（毫秒）
+     */
+    private final AtomicLong lagMillis = new AtomicLong();
+    
+    private ScheduledExecutorService flusher;
+    
+    private ExecutorService bulkExecutor;
+    
+    private Counter updatedCounter;
+    
+    private Counter failedCounter;
+    
+    @PostConstruct
+    public void init() {
+        updatedCounter = Counter.builder("seckill.search.sync.updated")
+            .description("写入ES的商品文档数")
+            .register(meterRegistry);
+        failedCounter = Counter.builder("seckill.search.sync.failed")
+            .description("重试后仍写入失败的商品文档数")
+            .register(meterRegistry);
+        TimeGauge.builder("seckill.search.sync.lag", lagMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+            .description("支付成功事件写入ES落后于事件产生的时间")
+            .register(meterRegistry);
+        
+        createIndexIfAbsent();
+        
+        AtomicInteger threadIndex = new AtomicInteger();
+        bulkExecutor = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "item-index-bulk-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "item-index-syncer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+        log.info("商品索引同步初始化完成，索引: {}, 合并窗口: {}ms, Bulk并发: {}", index, windowMillis, concurrency);
+    }
+    
+    /**
+     * 索引不存在时按映射创建，ES不可用时跳过，由外部建索引
+     */
+    private void createIndexIfAbsent() {
+        try {
+            IndexOperations indexOps = elasticsearchTemplate.indexOps(IndexCoordinates.of(index));
+            if (indexOps.exists()) {
+                return;
+            }
+            String mapping = StreamUtils.copyToString(new ClassPathResource(MAPPING_LOCATION).getInputStream(), StandardCharsets.UTF_8);
+            indexOps.create();
+            indexOps.putMapping(Document.parse(mapping));
+            log.info("商品索引不存在，已按映射创建，索引: {}", index);
+        } catch (Exception e) {
+            log.warn("检查商品索引失败，跳过创建，索引: {}, 错误: {}", index, e.getMessage());
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        if (bulkExecutor != null) {
+            bulkExecutor.shutdownNow();
+        }
+    }
+    
+    /**
+     * 登记一批已支付订单涉及的商品，在当前窗口结束时同步
+     * 
+     * @param orderNos 订单号列表
+     * @param eventTime 最早事件的产生时间（毫秒时间戳）
+     * @return 当前窗口写入完成时完成，写入失败时异常完成
+     */
+    public CompletableFuture<Void> submitOrders(List<Long> orderNos, long eventTime) {
+        List<Long> itemIds = seckillOrderMapper.selectItemIdsByOrderNos(orderNos);
+        if (itemIds.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        synchronized (lock) {
+            dirtyItems.addAll(itemIds);
+            oldestEventTime = Math.min(oldestEventTime, eventTime);
+            return window;
+        }
+    }
+    
+    /**
+     * 结束当前窗口，写入窗口内登记的商品
+     */
+    private void flush() {
+        Set<Long> itemIds;
+        CompletableFuture<Void> done;
+        long oldest;
+        synchronized (lock) {
+            if (dirtyItems.isEmpty()) {
+                lagMillis.set(0);
+                return;
+            }
+            itemIds = dirtyItems;
+            done = window;
+            oldest = oldestEventTime;
+            dirtyItems = new HashSet<>();
+            window = new CompletableFuture<>();
+            oldestEventTime = Long.MAX_VALUE;
+        }
+        try {
+            write(new ArrayList<>(itemIds));
+            lagMillis.set(Math.max(0, System.currentTimeMillis() - oldest));
+            done.complete(null);
+        } catch (Exception e) {
+            log.error("同步商品索引失败，商品数: {}, 错误: {}", itemIds.size(), e.getMessage(), e);
+            done.completeExceptionally(e);
+        }
+    }
+    
+    /**
+     * 按当前已售数量和剩余库存生成部分更新，分批并发写入
+     */
+    private void write(List<Long> itemIds) {
+        Map<Long, Long> sold = new HashMap<>();
+        for (ItemQuantity quantity : seckillOrderMapper.sumQuantityByItemIds(itemIds)) {
+            sold.put(quantity.getItemId(), quantity.getQuantity());
+        }
+        Map<Long, Integer> stocks = redisStockManager.getStocks(itemIds, seckillItemRegistry::getStockBuckets);
+        List<UpdateQuery> queries = new ArrayList<>(itemIds.size());
+        for (Long itemId : itemIds) {
+            Document document = Document.create();
+            document.put("sold_count", sold.getOrDefault(itemId, 0L));
+            Integer stock = stocks.get(itemId);
+            if (stock != null) {
+                document.put("stock", stock);
+            }
+            queries.add(UpdateQuery.builder(String.valueOf(itemId)).withDocument(document).build());
+        }
+        
+        List<CompletableFuture<Void>> batches = new ArrayList<>();
+        for (int from = 0; from < queries.size(); from += bulkSize) {
+            List<UpdateQuery> batch = queries.subList(from, Math.min(from + bulkSize, queries.size()));
+            batches.add(CompletableFuture.runAsync(() -> bulkUpdate(batch), bulkExecutor));
+        }
+        CompletableFuture.allOf(batches.toArray(new CompletableFuture[0])).join();
+    }
+    
+    /**
+     * 写入一批部分更新，只重试失败的文档；索引中不存在的商品跳过
+     */
+    private void bulkUpdate(List<UpdateQuery> queries) {
+        IndexCoordinates coordinates = IndexCoordinates.of(index);
+        List<UpdateQuery> pending = queries;
+        for (int attempt = 0; ; attempt++) {
+            try {
+                elasticsearchTemplate.bulkUpdate(pending, coordinates);
+                updatedCounter.increment(pending.size());
+                return;
+            } catch (BulkFailureException e) {
+                Map<String, String> failed = e.getFailedDocuments();
+                List<UpdateQuery> retry = new ArrayList<>();
+                for (UpdateQuery query : pending) {
+                    String reason = failed.get(query.getId());
+                    if (reason != null && !reason.contains("document_missing_exception")) {
+                        retry.add(query);
+                    }
+                }
+                updatedCounter.increment(pending.size() - failed.size());
+                if (retry.isEmpty()) {
+                    return;
+                }
+                pending = retry;
+                if (attempt >= maxRetries) {
+                    failedCounter.increment(pending.size());
+                    throw e;
+                }
+            } catch (RuntimeException e) {
+                if (attempt >= maxRetries) {
+                    failedCounter.increment(pending.size());
+                    throw e;
+                }
+                log.warn("写入商品索引失败，第{}次重试，文档数: {}, 错误: {}", attempt + 1, pending.size(), e.getMessage());
+            }
+            try {
+                Thread.sleep(retryBackoffMillis << attempt);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("写入商品索引被中断", e);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,553 @@
+package com.ecommerce.seckill.search;
+
+import com.ecommerce.seckill.cache.SeckillItemRegistry;
+import com.ecommerce.seckill.dao.SeckillItemMapper;
+import com.ecommerce.seckill.entity.SeckillItem;
+import com.ecommerce.seckill.vo.SearchPage;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 本地商品倒排索引
+ * ES不可用时的搜索降级，查询只访问进程内的索引，不访问MySQL：
+ * 标题和描述按CJK单字、相邻二字及英文数字整词分词，商品按创建时间、ID倒序编号，
+ * 倒排表为升序int数组，求交集的顺序即结果顺序，游标翻页按编号二分定位。
+ * 启动时分批加载已激活商品，之后按update_time增量拉取变更，删除通过商品失效广播回查；
+ * 分词和创建时间不变的变更原地替换商品，否则在内存中重建索引后整体替换
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class LocalItemIndex implements MessageListener {
+    
+    /**
+     * 索引外的字段，不随商品保存
+     */
+    private static final String[] EXCLUDED_FIELDS = {
+        "description", "totalStock", "admissionRate", "admissionBurst", "updateTime"
+    };
+    
+    /**
+     * 创建时间、ID倒序
+     */
+    private static final Comparator<IndexedItem> ORDER = Comparator
+        .comparingLong((IndexedItem indexed) -> indexed.createTime)
+        .thenComparingLong(indexed -> indexed.item.getId())
+        .reversed();
+    
+    @Autowired
+    private SeckillItemMapper seckillItemMapper;
+    
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    /**
+     * 是否启用本地索引
+     */
+    @Value("${seckill.search.local-index.enabled:true}")
+    private Boolean enabled;
+    
+    /**
+     * 全量加载时每批查询的商品数
+     */
+    @Value("${seckill.search.local-index.load-batch-size:1000}")
+    private Integer loadBatchSize;
+    
+    /**
+     * 已索引的商品，按商品ID
+     */
+    private final Map<Long, IndexedItem> indexedItems = new HashMap<>();
+    
+    /**
+     * 收到失效广播、待回查的商品
+     */
+    private final Set<Long> invalidated = ConcurrentHashMap.newKeySet();
+    
+    /**
+     * 当前索引，未加载时为null
+     */
+    private volatile Snapshot snapshot;
+    
+    /**
+     * 已加载的最大更新时间，作为增量刷新的起点
+     */
+    private LocalDateTime lastUpdateTime;
+    
+    /**
+     * 已应用但尚未重建索引的变更，刷新中途失败时下次刷新继续重建
+     */
+    private boolean dirty;
+    
+    /**
+     * 订阅商品失效广播并加载索引
+     */
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        Gauge.builder("seckill.search.local-index.items", this, index -> index.size())
+            .description("本地倒排索引中的商品数")
+            .register(meterRegistry);
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(SeckillItemRegistry.CHANNEL));
+        try {
+            loadAll();
+        } catch (Exception e) {
+            // 加载失败时由定时刷新重试，期间降级查询回源MySQL
+            log.error("加载本地商品索引失败: {}", e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * 索引是否已加载
+     * 
+     * @return 是否可查询
+     */
+    public boolean isReady() {
+        return snapshot != null;
+    }
+    
+    /**
+     * 搜索商品，语义与ES查询一致：只含已激活商品，按创建时间、ID倒序
+     * 
+     * @param keyword 规范化后的关键词，所有分词都命中的商品才返回
+     * @param size 每页数量
+     * @param after 上一页游标，第一页为null
+     * @return 商品列表页（商品为副本）
+     */
+    public SearchPage search(String keyword, int size, SearchCursor after) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            throw new RuntimeException("本地商品索引未加载");
+        }
+        return current.search(queryTokens(keyword), size, after);
+    }
+    
+    /**
+     * 分批加载所有已激活商品并重建索引
+     */
+    public synchronized void loadAll() {
+        Map<Long, IndexedItem> loaded = new HashMap<>();
+        LocalDateTime maxUpdateTime = null;
+        long afterId = 0;
+        List<SeckillItem> batch;
+        do {
+            batch = seckillItemMapper.selectActiveAfterId(afterId, loadBatchSize);
+            for (SeckillItem item : batch) {
+                loaded.put(item.getId(), IndexedItem.of(item));
+                maxUpdateTime = max(maxUpdateTime, item.getUpdateTime());
+                afterId = item.getId();
+            }
+        } while (batch.size() == loadBatchSize);
+        indexedItems.clear();
+        indexedItems.putAll(loaded);
+        lastUpdateTime = maxUpdateTime != null ? maxUpdateTime : LocalDateTime.now();
+        rebuild();
+        log.info("本地商品索引加载完成，商品数: {}, 分词数: {}", snapshot.size(), snapshot.postings.size());
+    }
+    
+    /**
+     * 按update_time增量刷新，并回查收到失效广播的商品
+     */
+    @Scheduled(fixedDelayString = "${seckill.search.local-index.refresh-interval-ms:5000}")
+    public synchronized void refresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (snapshot == null) {
+                loadAll();
+                return;
+            }
+            // update_time精度为秒，按大于等于查询，同一秒内更新时间未变的商品跳过
+            List<SeckillItem> items = seckillItemMapper.selectUpdatedSince(lastUpdateTime);
+            LocalDateTime maxUpdateTime = lastUpdateTime;
+            for (SeckillItem item : items) {
+                dirty |= apply(item.getId(), item, false);
+                maxUpdateTime = max(maxUpdateTime, item.getUpdateTime());
+            }
+            lastUpdateTime = maxUpdateTime;
+            
+            // 删除不会留下update_time，按失效广播逐个回查
+            List<Long> itemIds = new ArrayList<>(invalidated);
+            for (Long itemId : itemIds) {
+                dirty |= apply(itemId, seckillItemMapper.selectById(itemId), true);
+            }
+            invalidated.removeAll(itemIds);
+            
+            if (dirty) {
+                rebuild();
+            }
+        } catch (Exception e) {
+            log.error("增量刷新本地商品索引失败: {}", e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            invalidated.add(Long.valueOf(body));
+        } catch (Exception e) {
+            log.warn("处理商品失效广播失败，消息: {}, 错误: {}", body, e.getMessage());
+        }
+    }
+    
+    /**
+     * 应用单个商品的变更
+     * 
+     * @param itemId 商品ID
+     * @param item 最新商品，已删除时为null
+     * @param force 更新时间未变时是否仍然应用
+     * @return 是否需要重建索引
+     */
+    private boolean apply(Long itemId, SeckillItem item, boolean force) {
+        if (item == null || item.getIsActive() == null || item.getIsActive() != 1) {
+            return indexedItems.remove(itemId) != null;
+        }
+        IndexedItem current = indexedItems.get(itemId);
+        if (current != null && !force && equalsNullable(current.updateTime, item.getUpdateTime())) {
+            return false;
+        }
+        IndexedItem next = IndexedItem.of(item);
+        indexedItems.put(itemId, next);
+        if (current == null || current.createTime != next.createTime || !Arrays.equals(current.tokens, next.tokens)) {
+            return true;
+        }
+        // 分词和排序位置不变（如价格、库存变更），原地替换商品
+        return !snapshot.replace(next);
+    }
+    
+    /**
+     * 按创建时间、ID倒序编号，生成倒排表后整体替换当前索引
+     */
+    private void rebuild() {
+        List<IndexedItem> sorted = new ArrayList<>(indexedItems.values());
+        sorted.sort(ORDER);
+        int count = sorted.size();
+        long[] createTimes = new long[count];
+        long[] ids = new long[count];
+        AtomicReferenceArray<SeckillItem> items = new AtomicReferenceArray<>(count);
+        Map<String, IntList> building = new HashMap<>();
+        for (int ordinal = 0; ordinal < count; ordinal++) {
+            IndexedItem indexed = sorted.get(ordinal);
+            createTimes[ordinal] = indexed.createTime;
+            ids[ordinal] = indexed.item.getId();
+            items.set(ordinal, indexed.item);
+            for (String token : indexed.tokens) {
+                building.computeIfAbsent(token, key -> new IntList()).add(ordinal);
+            }
+        }
+        Map<String, int[]> postings = new HashMap<>(building.size() * 4 / 3 + 1);
+        for (Map.Entry<String, IntList> entry : building.entrySet()) {
+            postings.put(entry.getKey(), entry.getValue().toArray());
+        }
+        snapshot = new Snapshot(createTimes, ids, items, postings);
+        dirty = false;
+        log.debug("本地商品索引已重建，商品数: {}, 分词数: {}", count, postings.size());
+    }
+    
+    private int size() {
+        Snapshot current = snapshot;
+        return current != null ? current.size() : 0;
+    }
+    
+    /**
+     * 文档分词：CJK字符的单字和相邻二字，其他字母数字按整词，均转小写
+     */
+    static String[] documentTokens(String... texts) {
+        Set<String> tokens = new TreeSet<>();
+        for (String text : texts) {
+            if (text == null) {
+                continue;
+            }
+            String normalized = text.toLowerCase(Locale.ROOT);
+            int length = normalized.length();
+            int wordStart = -1;
+            for (int i = 0; i < length; i++) {
+                char c = normalized.charAt(i);
+                if (isCjk(c)) {
+                    tokens.add(String.valueOf(c));
+                    if (i + 1 < length && isCjk(normalized.charAt(i + 1))) {
+                        tokens.add(normalized.substring(i, i + 2));
+                    }
+                }
+                if (Character.isLetterOrDigit(c) && !isCjk(c)) {
+                    if (wordStart < 0) {
+                        wordStart = i;
+                    }
+                } else if (wordStart >= 0) {
+                    tokens.add(normalized.substring(wordStart, i));
+                    wordStart = -1;
+                }
+            }
+            if (wordStart >= 0) {
+                tokens.add(normalized.substring(wordStart));
+            }
+        }
+        return tokens.toArray(new String[0]);
+    }
+    
+    /**
+     * 查询分词：连续CJK字符取相邻二字（单个字符取单字），其他字母数字按整词
+     */
+    static List<String> queryTokens(String keyword) {
+        if (keyword == null || keyword.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Set<String> tokens = new LinkedHashSet<>();
+        String normalized = keyword.toLowerCase(Locale.ROOT);
+        int length = normalized.length();
+        int i = 0;
+        while (i < length) {
+            char c = normalized.charAt(i);
+            int start = i;
+            if (isCjk(c)) {
+                while (i < length && isCjk(normalized.charAt(i))) {
+                    i++;
+                }
+                if (i - start == 1) {
+                    tokens.add(String.valueOf(c));
+                }
+                for (int j = start; j + 1 < i; j++) {
+                    tokens.add(normalized.substring(j, j + 2));
+                }
+            } else if (Character.isLetterOrDigit(c)) {
+                while (i < length && Character.isLetterOrDigit(normalized.charAt(i)) && !isCjk(normalized.charAt(i))) {
+                    i++;
+                }
+                tokens.add(normalized.substring(start, i));
+            } else {
+                i++;
+            }
+        }
+        return new ArrayList<>(tokens);
+    }
+    
+    private static boolean isCjk(char c) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(c);
+        return script == Character.UnicodeScript.HAN
+            || script == Character.UnicodeScript.HIRAGANA
+            || script == Character.UnicodeScript.KATAKANA
+            || script == Character.UnicodeScript.HANGUL;
+    }
+    
+    private static LocalDateTime max(LocalDateTime a, LocalDateTime b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        return a.isAfter(b) ? a : b;
+    }
+    
+    private static boolean equalsNullable(LocalDateTime a, LocalDateTime b) {
+        return a == null ? b == null : a.equals(b);
+    }
+    
+    /**
+     * 已索引商品：列表展示字段、排序值和分词
+     */
+    private static final class IndexedItem {
+        
+        private final SeckillItem item;
+        
+        private final long createTime;
+        
+        private final LocalDateTime updateTime;
+        
+        /**
+         * 去重排序后的分词
+         */
+        private final String[] tokens;
+        
+        private IndexedItem(SeckillItem item, long createTime, LocalDateTime updateTime, String[] tokens) {
+            this.item = item;
+            this.createTime = createTime;
+            this.updateTime = updateTime;
+            this.tokens = tokens;
+        }
+        
+        private static IndexedItem of(SeckillItem source) {
+            SeckillItem item = new SeckillItem();
+            BeanUtils.copyProperties(source, item, EXCLUDED_FIELDS);
+            return new IndexedItem(item, SearchCursor.of(source).getCreateTime(), source.getUpdateTime(),
+                documentTokens(source.getTitle(), source.getDescription()));
+        }
+    }
+    
+    /**
+     * 不可变的倒排索引（商品引用可原地替换）
+     */
+    private static final class Snapshot {
+        
+        /**
+         * 按编号的创建时间（毫秒时间戳）
+         */
+        private final long[] createTimes;
+        
+        /**
+         * 按编号的商品ID
+         */
+        private final long[] ids;
+        
+        /**
+         * 按编号的商品
+         */
+        private final AtomicReferenceArray<SeckillItem> items;
+        
+        /**
+         * 分词到升序商品编号
+         */
+        private final Map<String, int[]> postings;
+        
+        private Snapshot(long[] createTimes, long[] ids, AtomicReferenceArray<SeckillItem> items, Map<String, int[]> postings) {
+            this.createTimes = createTimes;
+            this.ids = ids;
+            this.items = items;
+            this.postings = postings;
+        }
+        
+        private int size() {
+            return ids.length;
+        }
+        
+        private SearchPage search(List<String> tokens, int size, SearchCursor after) {
+            int from = after == null ? 0 : firstAfter(after.getCreateTime(), after.getId());
+            List<SeckillItem> result = new ArrayList<>(Math.min(size, ids.length));
+            if (tokens.isEmpty()) {
+                for (int ordinal = from; ordinal < ids.length && result.size() < size; ordinal++) {
+                    result.add(copy(items.get(ordinal)));
+                }
+                return page(result, size);
+            }
+            
+            int[][] lists = new int[tokens.size()][];
+            for (int i = 0; i < lists.length; i++) {
+                lists[i] = postings.get(tokens.get(i));
+                if (lists[i] == null) {
+                    return new SearchPage(result, null);
+                }
+            }
+            // 以最短的倒排表驱动，其余倒排表按单调前进的位置二分查找
+            Arrays.sort(lists, Comparator.comparingInt(list -> list.length));
+            int[] positions = new int[lists.length];
+            int[] driver = lists[0];
+            int start = Arrays.binarySearch(driver, from);
+            for (int i = start >= 0 ? start : -start - 1; i < driver.length && result.size() < size; i++) {
+                if (containsAll(lists, positions, driver[i])) {
+                    result.add(copy(items.get(driver[i])));
+                }
+            }
+            return page(result, size);
+        }
+        
+        /**
+         * 原地替换排序位置不变的商品
+         * 
+         * @return 是否找到并替换
+         */
+        private boolean replace(IndexedItem indexed) {
+            int ordinal = firstAfter(indexed.createTime, indexed.item.getId() + 1);
+            if (ordinal >= ids.length || ids[ordinal] != indexed.item.getId() || createTimes[ordinal] != indexed.createTime) {
+                return false;
+            }
+            items.set(ordinal, indexed.item);
+            return true;
+        }
+        
+        /**
+         * 排序在(createTime, id)之后的第一个编号
+         */
+        private int firstAfter(long createTime, long id) {
+            int low = 0;
+            int high = ids.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (createTimes[mid] > createTime || (createTimes[mid] == createTime && ids[mid] >= id)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+        
+        private static boolean containsAll(int[][] lists, int[] positions, int ordinal) {
+            for (int i = 1; i < lists.length; i++) {
+                int found = Arrays.binarySearch(lists[i], positions[i], lists[i].length, ordinal);
+                if (found < 0) {
+                    positions[i] = -found - 1;
+                    return false;
+                }
+                positions[i] = found;
+            }
+            return true;
+        }
+        
+        private static SearchPage page(List<SeckillItem> items, int size) {
+            String nextCursor = items.size() == size ? SearchCursor.of(items.get(items.size() - 1)).toString() : null;
+            return new SearchPage(items, nextCursor);
+        }
+        
+        private static SeckillItem copy(SeckillItem item) {
+            SeckillItem copy = new SeckillItem();
+            BeanUtils.copyProperties(item, copy);
+            return copy;
+        }
+    }
+    
+    /**
+     * 构建倒排表用的int动态数组
+     */
+    private static final class IntList {
+        
+        private int[] values = new int[4];
+        
+        private int size;
+        
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+        
+        private int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
\ No newline at end of file
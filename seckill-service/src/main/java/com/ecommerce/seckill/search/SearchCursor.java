@@ -0,0 +1,87 @@
+package com.ecommerce.seckill.search;
+
+import com.ecommerce.seckill.entity.SeckillItem;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * 搜索分页游标
+ * 结果按创建时间、商品ID倒序排列，游标为上一页最后一个商品的排序值，格式为"创建时间毫秒_商品ID"。
+ * 数据库中的创建时间不带时区，写入ES时同样不带时区，ES按UTC解析（见elasticsearch/seckill_item-mapping.json），
+ * 因此游标与时间之间统一按{@link #ZONE}换算，ES、本地倒排索引和数据库降级查询产生的游标可以互相续翻
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+public final class SearchCursor {
+    
+    /**
+     * 创建时间与排序值换算使用的时区，与ES解析不带时区日期的时区一致
+     */
+    public static final ZoneId ZONE = ZoneOffset.UTC;
+    
+    private final long createTime;
+    
+    private final long id;
+    
+    public SearchCursor(long createTime, long id) {
+        this.createTime = createTime;
+        this.id = id;
+    }
+    
+    /**
+     * 解析游标
+     * 
+     * @param cursor 游标字符串
+     * @return 游标，为空时返回null（第一页）
+     */
+    public static SearchCursor parse(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        int separator = cursor.indexOf('_');
+        try {
+            return new SearchCursor(Long.parseLong(cursor.substring(0, separator)), Long.parseLong(cursor.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new RuntimeException("无效的分页游标");
+        }
+    }
+    
+    /**
+     * 以商品的排序值生成游标
+     * 
+     * @param item 商品
+     * @return 游标
+     */
+    public static SearchCursor of(SeckillItem item) {
+        long createTime = item.getCreateTime() != null
+            ? item.getCreateTime().atZone(ZONE).toInstant().toEpochMilli() : 0;
+        return new SearchCursor(createTime, item.getId());
+    }
+    
+    /**
+     * 创建时间（毫秒时间戳），即ES中create_time的排序值
+     */
+    public long getCreateTime() {
+        return createTime;
+    }
+    
+    /**
+     * 创建时间（与数据库中一致的不带时区时间），用于数据库查询
+     */
+    public LocalDateTime getCreateDateTime() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(createTime), ZONE);
+    }
+    
+    public long getId() {
+        return id;
+    }
+    
+    @Override
+    public String toString() {
+        return createTime + "_" + id;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,238 @@
+package com.ecommerce.seckill.search;
+
+import com.ecommerce.seckill.entity.SeckillItem;
+import com.ecommerce.seckill.vo.SearchPage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * 搜索结果缓存
+ * 按规范化后的关键词和每页数量缓存第一页索引查询结果（不含实时库存），翻页请求不经过缓存：
+ * 有效期内直接返回；过期但仍在容忍期内时先返回旧结果，后台刷新；
+ * 同一关键词同时只有一个查询在执行，并发未命中的请求共享该查询的结果。
+ * 返回的是缓存结果的副本，调用方可在副本上叠加实时库存
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class SearchResultCache {
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    /**
+     * 是否启用搜索结果缓存
+     */
+    @Value("${seckill.search.cache.enabled:true}")
+    private Boolean enabled;
+    
+    /**
+     * 缓存有效期（毫秒）
+     */
+    @Value("${seckill.search.cache.ttl-ms:2000}")
+    private Long ttlMillis;
+    
+    /**
+     * 过期后仍可返回旧结果并后台刷新的时长（毫秒）
+     */
+    @Value("${seckill.search.cache.stale-ms:30000}")
+    private Long staleMillis;
+    
+    /**
+     * 缓存的关键词数上限
+     */
+    @Value("${seckill.search.cache.max-size:1000}")
+    private Integer maxSize;
+    
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    
+    /**
+     * 进行中的查询
+     */
+    private final Map<String, CompletableFuture<SearchPage>> loading = new ConcurrentHashMap<>();
+    
+    private ExecutorService refresher;
+    
+    private Counter hitCounter;
+    
+    private Counter staleCounter;
+    
+    private Counter missCounter;
+    
+    private Timer loadTimer;
+    
+    @PostConstruct
+    public void init() {
+        hitCounter = result("hit");
+        staleCounter = result("stale");
+        missCounter = result("miss");
+        loadTimer = Timer.builder("seckill.search.cache.load")
+            .description("搜索结果缓存回源查询耗时")
+            .register(meterRegistry);
+        refresher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "search-cache-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("搜索结果缓存初始化完成，启用: {}, 有效期: {}ms, 容忍期: {}ms", enabled, ttlMillis, staleMillis);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+    
+    /**
+     * 查询第一页缓存，未命中时回源
+     * 
+     * @param keyword 关键词
+     * @param size 每页数量
+     * @param loader 回源查询，参数为规范化后的关键词，失败时抛出异常（不缓存）
+     * @return 缓存结果的副本
+     */
+    public SearchPage get(String keyword, int size, Function<String, SearchPage> loader) {
+        String normalized = normalize(keyword);
+        if (!enabled) {
+            return loader.apply(normalized);
+        }
+        String key = size + ":" + normalized;
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(key);
+        if (entry != null && now - entry.loadTime < ttlMillis) {
+            hitCounter.increment();
+            return copy(entry.page);
+        }
+        if (entry != null && now - entry.loadTime < ttlMillis + staleMillis) {
+            staleCounter.increment();
+            refreshAsync(key, normalized, loader);
+            return copy(entry.page);
+        }
+        missCounter.increment();
+        return copy(load(key, normalized, loader));
+    }
+    
+    /**
+     * 规范化关键词：去除首尾空白、合并连续空白、转小写
+     */
+    public static String normalize(String keyword) {
+        if (keyword == null) {
+            return "";
+        }
+        return keyword.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+    
+    /**
+     * 单飞加载：未有进行中的查询时由当前线程查询，否则等待进行中的查询
+     */
+    private SearchPage load(String key, String keyword, Function<String, SearchPage> loader) {
+        CompletableFuture<SearchPage> future = new CompletableFuture<>();
+        CompletableFuture<SearchPage> existing = loading.putIfAbsent(key, future);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+        try {
+            SearchPage page = loadTimer.record(() -> loader.apply(keyword));
+            put(key, page);
+            future.complete(page);
+            return page;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+    
+    /**
+     * 后台刷新，已有进行中的查询时跳过
+     */
+    private void refreshAsync(String key, String keyword, Function<String, SearchPage> loader) {
+        if (loading.containsKey(key)) {
+            return;
+        }
+        try {
+            refresher.execute(() -> {
+                try {
+                    load(key, keyword, loader);
+                } catch (Exception e) {
+                    log.warn("后台刷新搜索结果失败，关键词: {}, 错误: {}", key, e.getMessage());
+                }
+            });
+        } catch (Exception e) {
+            log.warn("提交搜索结果刷新任务失败: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * 写入缓存，达到上限时先清除超过容忍期的条目，仍满时不缓存
+     */
+    private void put(String key, SearchPage page) {
+        long now = System.currentTimeMillis();
+        if (entries.size() >= maxSize && !entries.containsKey(key)) {
+            entries.values().removeIf(entry -> now - entry.loadTime >= ttlMillis + staleMillis);
+            if (entries.size() >= maxSize) {
+                return;
+            }
+        }
+        entries.put(key, new Entry(page, now));
+    }
+    
+    private Counter result(String result) {
+        return Counter.builder("seckill.search.cache")
+            .description("搜索结果缓存查询次数")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+    
+    private static SearchPage copy(SearchPage page) {
+        List<SeckillItem> copies = new ArrayList<>(page.getItems().size());
+        for (SeckillItem item : page.getItems()) {
+            SeckillItem copy = new SeckillItem();
+            BeanUtils.copyProperties(item, copy);
+            copies.add(copy);
+        }
+        return new SearchPage(copies, page.getNextCursor());
+    }
+    
+    /**
+     * 缓存条目
+     */
+    private static final class Entry {
+        
+        private final SearchPage page;
+        
+        private final long loadTime;
+        
+        private Entry(SearchPage page, long loadTime) {
+            this.page = page;
+            this.loadTime = loadTime;
+        }
+    }
+}
\ No newline at end of file
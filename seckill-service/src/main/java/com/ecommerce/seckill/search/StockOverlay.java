@@ -0,0 +1,62 @@
+package com.ecommerce.seckill.search;
+
+import com.ecommerce.seckill.cache.SeckillItemRegistry;
+import com.ecommerce.seckill.entity.SeckillItem;
+import com.ecommerce.seckill.stock.RedisStockManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 搜索结果库存叠加
+ * 以一条MGET读取所有结果的Redis实时库存，写入剩余库存和售罄标识，Redis往返次数与结果数无关；
+ * 分桶数只取本地快照，不逐个回源MySQL，未缓存的分桶商品读不到库存时保留索引中的库存；
+ * Redis不可用时保留索引中的库存
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class StockOverlay {
+    
+    @Autowired
+    private RedisStockManager redisStockManager;
+    
+    @Autowired
+    private SeckillItemRegistry seckillItemRegistry;
+    
+    /**
+     * 为搜索结果填充实时剩余库存和售罄标识
+     * 
+     * @param items 搜索结果
+     */
+    public void apply(List<SeckillItem> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        List<Long> itemIds = new ArrayList<>(items.size());
+        for (SeckillItem item : items) {
+            itemIds.add(item.getId());
+        }
+        Map<Long, Integer> stocks;
+        try {
+            stocks = redisStockManager.getStocks(itemIds, seckillItemRegistry::getCachedStockBuckets);
+        } catch (Exception e) {
+            log.warn("查询实时库存失败，使用索引中的库存: {}", e.getMessage());
+            stocks = Collections.emptyMap();
+        }
+        for (SeckillItem item : items) {
+            Integer stock = stocks.get(item.getId());
+            if (stock != null) {
+                item.setStock(stock);
+            }
+            item.setSoldOut(item.getStock() != null && item.getStock() <= 0);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,33 @@
+package com.ecommerce.seckill.service;
+
+import com.ecommerce.seckill.vo.PreheatStatus;
+
+/**
+ * 秒杀活动预热服务接口
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+public interface PreheatService {
+    
+    /**
+     * 扫描即将开始的秒杀活动并预热
+     */
+    void preheatUpcoming();
+    
+    /**
+     * 预热指定秒杀商品
+     * 
+     * @param itemId 商品ID
+     * @return 预热状态
+     */
+    PreheatStatus preheat(Long itemId);
+    
+    /**
+     * 查询预热状态
+     * 
+     * @param itemId 商品ID
+     * @return 预热状态
+     */
+    PreheatStatus getStatus(Long itemId);
+}
\ No newline at end of file
@@ -1,9 +1,10 @@
 package com.ecommerce.seckill.service;
 
-import com.ecommerce.seckill.entity.SeckillItem;
 import com.ecommerce.seckill.entity.SeckillOrder;
+import com.ecommerce.seckill.vo.SearchPage;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 秒杀服务接口
@@ -14,12 +15,34 @@ import java.util.List;
 public interface SeckillService {
     
     /**
-     * 搜索秒杀商品
+     * 受理凭证状态：已受理，订单待落库
+     */
+    String TICKET_PENDING = "PENDING";
+    
+    /**
+     * 受理凭证状态：下单消息已被消费，订单创建中（对外查询时仍返回已受理）
+     */
+    String TICKET_CREATING = "CREATING";
+    
+    /**
+     * 受理凭证状态：订单已创建
+     */
+    String TICKET_CREATED = "CREATED";
+    
+    /**
+     * 受理凭证状态：订单创建失败，库存已回滚
+     */
+    String TICKET_FAILED = "FAILED";
+    
+    /**
+     * 分页搜索秒杀商品，按创建时间倒序
      * 
      * @param keyword 关键词
-     * @return 商品列表
+     * @param size 每页数量，为空时使用默认值，超过上限时按上限返回
+     * @param cursor 上一页返回的游标，第一页为空
+     * @return 商品列表页
      */
-    List<SeckillItem> searchItems(String keyword);
+    SearchPage searchItems(String keyword, Integer size, String cursor);
     
     /**
      * 执行秒杀
@@ -27,7 +50,7 @@ public interface SeckillService {
      * @param itemId 商品ID
      * @param userId 用户ID
      * @param quantity 购买数量
-     * @return 订单号
+     * @return 订单号（十进制字符串，避免前端丢失64位精度）
      */
     String executeSeckill(Long itemId, Long userId, Integer quantity);
     
@@ -37,7 +60,15 @@ public interface SeckillService {
      * @param orderNo 订单号
      * @return 是否成功
      */
-    Boolean cancelOrder(String orderNo);
+    Boolean cancelOrder(Long orderNo);
+    
+    /**
+     * 取消一批超时未支付的订单，已支付或已取消的订单跳过
+     * 
+     * @param orderNos 订单号列表
+     * @return 取消的订单数
+     */
+    int expireOrders(List<Long> orderNos);
     
     /**
      * 支付回调处理
@@ -45,5 +76,35 @@ public interface SeckillService {
      * @param orderNo 订单号
      * @return 是否成功
      */
-    Boolean handlePaymentCallback(String orderNo);
-} 
\ No newline at end of file
+    Boolean handlePaymentCallback(Long orderNo);
+    
+    /**
+     * 批量支付回调处理
+     * 
+     * @param orderNos 订单号列表
+     * @return 各订单的处理结果，订单不存在或状态不允许支付时为false
+     */
+    Map<Long, Boolean> handlePaymentCallbacks(List<Long> orderNos);
+    
+    /**
+     * 查询下单受理凭证状态
+     * 
+     * @param ticket 受理凭证（即订单号）
+     * @return 凭证状态，不存在时返回null
+     */
+    String getOrderStatus(Long ticket);
+    
+    /**
+     * 批量保存异步受理的订单
+     * 
+     * @param orders 订单列表
+     */
+    void saveOrders(List<SeckillOrder> orders);
+    
+    /**
+     * 标记异步受理的订单创建失败并回滚库存，凭证已不处于待落库或创建中状态的订单不回滚
+     * 
+     * @param orders 订单列表
+     */
+    void failOrders(List<SeckillOrder> orders);
+}
\ No newline at end of file
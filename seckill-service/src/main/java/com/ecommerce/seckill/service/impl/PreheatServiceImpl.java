@@ -0,0 +1,233 @@
+package com.ecommerce.seckill.service.impl;
+
+import com.ecommerce.seckill.cache.SeckillItemRegistry;
+import com.ecommerce.seckill.dao.SeckillItemMapper;
+import com.ecommerce.seckill.entity.SeckillItem;
+import com.ecommerce.seckill.script.RedisScriptRegistry;
+import com.ecommerce.seckill.service.PreheatService;
+import com.ecommerce.seckill.stock.RedisStockManager;
+import com.ecommerce.seckill.vo.PreheatStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 秒杀活动预热服务实现类
+ * 在活动开始前将库存写入Redis、预热本地商品缓存并预加载Lua脚本，
+ * 各节点完成预热后在Redis中登记，并定时在节点注册表中心跳，按存活节点确认所有节点均已就绪
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+@Slf4j
+@Service
+public class PreheatServiceImpl implements PreheatService {
+    
+    /**
+     * 预热登记key前缀，hash结构：节点 -> 预热完成时间
+     */
+    private static final String PREHEAT_KEY_PREFIX = "seckill:preheat:";
+    
+    /**
+     * 节点注册表key，zset结构：节点 -> 最近心跳时间
+     */
+    private static final String NODES_KEY = "seckill:preheat-nodes";
+    
+    /**
+     * 当前节点标识
+     */
+    private static final String NODE = ManagementFactory.getRuntimeMXBean().getName();
+    
+    @Autowired
+    private SeckillItemMapper seckillItemMapper;
+    
+    @Autowired
+    private SeckillItemRegistry seckillItemRegistry;
+    
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    
+    @Autowired
+    private RedisStockManager redisStockManager;
+    
+    @Autowired
+    private RedisScriptRegistry redisScriptRegistry;
+    
+    /**
+     * 提前预热时间（分钟）
+     */
+    @Value("${seckill.preheat.lead-minutes:10}")
+    private Integer leadMinutes;
+    
+    /**
+     * 向前回看时间（小时），覆盖已开始但尚未预热的活动（如节点重启）
+     */
+    @Value("${seckill.preheat.lookback-hours:24}")
+    private Integer lookbackHours;
+    
+    /**
+     * 节点心跳超时时间（毫秒）
+     */
+    @Value("${seckill.preheat.node-timeout-ms:15000}")
+    private Long nodeTimeoutMs;
+    
+    /**
+     * 定时心跳，同时清理超时节点
+     */
+    @Scheduled(fixedDelayString = "${seckill.preheat.heartbeat-interval-ms:5000}")
+    public void heartbeat() {
+        try {
+            long now = System.currentTimeMillis();
+            stringRedisTemplate.opsForZSet().add(NODES_KEY, NODE, now);
+            stringRedisTemplate.opsForZSet().removeRangeByScore(NODES_KEY, 0, now - nodeTimeoutMs - 1);
+        } catch (Exception e) {
+            log.warn("预热节点心跳失败: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * 停机时注销节点，不再参与就绪判定
+     */
+    @PreDestroy
+    public void unregister() {
+        try {
+            stringRedisTemplate.opsForZSet().remove(NODES_KEY, NODE);
+        } catch (Exception e) {
+            log.warn("注销预热节点失败: {}", e.getMessage());
+        }
+    }
+    
+    @Override
+    @Scheduled(fixedDelayString = "${seckill.preheat.scan-interval-ms:30000}")
+    public void preheatUpcoming() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            // 按start_time区间查询，走idx_start_time索引
+            List<SeckillItem> items = seckillItemMapper.selectStartingBetween(
+                now.minusHours(lookbackHours), now.plusMinutes(leadMinutes));
+            List<SeckillItem> pending = new ArrayList<>(items.size());
+            for (SeckillItem item : items) {
+                if (item.getEndTime() == null || !item.getEndTime().isBefore(now)) {
+                    pending.add(item);
+                }
+            }
+            if (!pending.isEmpty()) {
+                preheatItems(pending);
+            }
+        } catch (Exception e) {
+            log.error("秒杀活动预热失败: {}", e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    public PreheatStatus preheat(Long itemId) {
+        SeckillItem item = seckillItemMapper.selectById(itemId);
+        if (item == null) {
+            throw new RuntimeException("商品不存在");
+        }
+        preheatItems(Collections.singletonList(item));
+        return getStatus(itemId);
+    }
+    
+    @Override
+    public PreheatStatus getStatus(Long itemId) {
+        PreheatStatus status = new PreheatStatus();
+        status.setItemId(itemId);
+        
+        SeckillItem item = seckillItemMapper.selectById(itemId);
+        int buckets = 1;
+        if (item != null) {
+            status.setStartTime(item.getStartTime());
+            buckets = item.getStockBuckets() != null && item.getStockBuckets() > 1 ? item.getStockBuckets() : 1;
+        }
+        
+        // 分桶商品汇总所有分桶的库存
+        Integer stock = redisStockManager.getStock(itemId, buckets);
+        status.setStockLoaded(stock != null);
+        status.setRedisStock(stock);
+        status.setCacheWarmed(seckillItemRegistry.contains(itemId));
+        
+        status.setScriptLoaded(redisScriptRegistry.isLoaded());
+        
+        List<String> readyNodes = new ArrayList<>();
+        for (Object node : stringRedisTemplate.opsForHash().keys(PREHEAT_KEY_PREFIX + itemId)) {
+            readyNodes.add(node.toString());
+        }
+        status.setReadyNodes(readyNodes);
+        
+        // 存活节点以心跳为准，当前节点尚未心跳时也计入
+        Set<String> liveNodes = new TreeSet<>();
+        Set<String> alive = stringRedisTemplate.opsForZSet()
+            .rangeByScore(NODES_KEY, System.currentTimeMillis() - nodeTimeoutMs, Double.MAX_VALUE);
+        if (alive != null) {
+            liveNodes.addAll(alive);
+        }
+        liveNodes.add(NODE);
+        List<String> missingNodes = new ArrayList<>();
+        for (String node : liveNodes) {
+            if (!readyNodes.contains(node)) {
+                missingNodes.add(node);
+            }
+        }
+        status.setLiveNodes(new ArrayList<>(liveNodes));
+        status.setMissingNodes(missingNodes);
+        status.setReady(status.getStockLoaded() && status.getCacheWarmed() && status.getScriptLoaded()
+            && missingNodes.isEmpty());
+        return status;
+    }
+    
+    /**
+     * 预热一批秒杀商品
+     */
+    private void preheatItems(List<SeckillItem> items) {
+        // 1. 管道批量写入库存（分桶商品拆分到各分桶），不覆盖进行中活动的剩余库存
+        redisStockManager.load(items);
+        
+        // 2. 预热本地商品缓存
+        seckillItemRegistry.warm(items);
+        
+        // 3. 预加载Lua脚本，活动开始后EVALSHA直接命中
+        redisScriptRegistry.loadAll();
+        
+        // 4. 登记当前节点预热完成
+        long now = System.currentTimeMillis();
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (SeckillItem item : items) {
+                byte[] key = bytes(PREHEAT_KEY_PREFIX + item.getId());
+                connection.hashCommands().hSet(key, bytes(NODE), bytes(String.valueOf(now)));
+                if (item.getEndTime() != null) {
+                    connection.keyCommands().expireAt(key, expireAt(item.getEndTime()));
+                }
+            }
+            return null;
+        });
+        
+        log.info("秒杀活动预热完成，节点: {}, 商品数: {}", NODE, items.size());
+    }
+    
+    /**
+     * 预热登记在活动结束一天后过期
+     */
+    private static long expireAt(LocalDateTime endTime) {
+        return endTime.plusDays(1).atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+    
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
\ No newline at end of file
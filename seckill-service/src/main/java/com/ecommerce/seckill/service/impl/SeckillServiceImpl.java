@@ -1,35 +1,64 @@
 package com.ecommerce.seckill.service.impl;
 
-import cn.hutool.core.util.IdUtil;
+import com.alibaba.fastjson2.JSON;
+import com.ecommerce.seckill.cache.SeckillItemRegistry;
+import com.ecommerce.seckill.cache.SeckillItemSnapshot;
+import com.ecommerce.seckill.cache.SoldOutRegistry;
 import com.ecommerce.seckill.dao.SeckillItemMapper;
 import com.ecommerce.seckill.dao.SeckillOrderMapper;
 import com.ecommerce.seckill.entity.SeckillItem;
 import com.ecommerce.seckill.entity.SeckillOrder;
+import com.ecommerce.seckill.limit.AdmissionController;
+import com.ecommerce.seckill.mq.BatchingMessageProducer;
+import com.ecommerce.seckill.mq.MessageOutbox;
+import com.ecommerce.seckill.order.OrderBatchWriter;
+import com.ecommerce.seckill.order.OrderConflictResolver;
+import com.ecommerce.seckill.order.OrderIdGenerator;
+import com.ecommerce.seckill.script.RedisScriptRegistry;
+import com.ecommerce.seckill.script.SeckillScript;
+import com.ecommerce.seckill.search.LocalItemIndex;
+import com.ecommerce.seckill.search.SearchCursor;
+import com.ecommerce.seckill.search.SearchResultCache;
+import com.ecommerce.seckill.search.StockOverlay;
 import com.ecommerce.seckill.service.SeckillService;
+import com.ecommerce.seckill.stock.MysqlStockFallback;
+import com.ecommerce.seckill.stock.RedisStockManager;
+import com.ecommerce.seckill.vo.ItemQuantity;
+import com.ecommerce.seckill.vo.SearchPage;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.rocketmq.spring.core.RocketMQTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
+import org.springframework.data.elasticsearch.core.SearchHit;
 import org.springframework.data.elasticsearch.core.SearchHits;
 import org.springframework.data.elasticsearch.core.query.NativeSearchQuery;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilter;
 import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
 import org.springframework.data.elasticsearch.core.query.Query;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.search.sort.SortBuilders;
 import org.elasticsearch.search.sort.SortOrder;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.annotation.PostConstruct;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 /**
@@ -42,6 +71,23 @@ import java.util.stream.Collectors;
 @Service
 public class SeckillServiceImpl implements SeckillService {
     
+    /**
+     * 异步下单消息主题
+     */
+    public static final String ORDER_TOPIC = "SECKILL_ORDER_TOPIC";
+    
+    /**
+     * 搜索列表展示字段（ES source过滤）
+     */
+    private static final String[] LIST_FIELDS = {
+        "id", "title", "price", "seckill_price", "stock", "sold_count", "is_active", "start_time", "end_time", "create_time"
+    };
+    
+    /**
+     * 下单受理凭证key前缀
+     */
+    private static final String TICKET_KEY_PREFIX = "seckill:ticket:";
+    
     @Autowired
     private SeckillItemMapper seckillItemMapper;
     
@@ -52,19 +98,52 @@ public class SeckillServiceImpl implements SeckillService {
     private RedisTemplate<String, Object> redisTemplate;
     
     @Autowired
-    private RocketMQTemplate rocketMQTemplate;
+    private ElasticsearchRestTemplate elasticsearchTemplate;
     
     @Autowired
-    private ElasticsearchRestTemplate elasticsearchTemplate;
+    private SoldOutRegistry soldOutRegistry;
     
     @Autowired
-    private ThreadPoolExecutor seckillThreadPool;
+    private SeckillItemRegistry seckillItemRegistry;
     
-    /**
-     * 线程池最大并发数
-     */
-    @Value("${seckill.thread-pool.max-concurrent:200}")
-    private Integer maxConcurrent;
+    @Autowired
+    private OrderBatchWriter orderBatchWriter;
+    
+    @Autowired
+    private OrderConflictResolver orderConflictResolver;
+    
+    @Autowired
+    private RedisStockManager redisStockManager;
+    
+    @Autowired
+    private RedisScriptRegistry redisScriptRegistry;
+    
+    @Autowired
+    private AdmissionController admissionController;
+    
+    @Autowired
+    private OrderIdGenerator orderIdGenerator;
+    
+    @Autowired
+    private MysqlStockFallback mysqlStockFallback;
+    
+    @Autowired
+    private MessageOutbox messageOutbox;
+    
+    @Autowired
+    private BatchingMessageProducer batchingMessageProducer;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    private StockOverlay stockOverlay;
+    
+    @Autowired
+    private SearchResultCache searchResultCache;
+    
+    @Autowired
+    private LocalItemIndex localItemIndex;
     
     /**
      * 订单超时时间（分钟）
@@ -73,86 +152,148 @@ public class SeckillServiceImpl implements SeckillService {
     private Integer orderTimeout;
     
     /**
-     * Lua脚本执行器
+     * 是否异步下单：库存扣减成功后立即返回受理凭证，订单由MQ消费者批量落库
+     */
+    @Value("${seckill.order.async-enabled:false}")
+    private Boolean asyncOrder;
+    
+    /**
+     * 受理凭证保留时间（分钟）
+     */
+    @Value("${seckill.order.ticket-ttl-minutes:60}")
+    private Integer ticketTtlMinutes;
+    
+    /**
+     * 同步下单是否使用组提交写入订单
+     */
+    @Value("${seckill.order.group-commit.enabled:true}")
+    private Boolean groupCommit;
+    
+    /**
+     * 等待组提交写入完成的最长时间（毫秒）
+     */
+    @Value("${seckill.order.group-commit.timeout-ms:3000}")
+    private Long groupCommitTimeoutMillis;
+    
+    /**
+     * 搜索默认每页数量
      */
-    private DefaultRedisScript<Long> stockScript;
+    @Value("${seckill.search.page-size:20}")
+    private Integer defaultPageSize;
     
     /**
-     * 初始化Lua脚本
+     * 搜索每页数量上限
+     */
+    @Value("${seckill.search.max-page-size:100}")
+    private Integer maxPageSize;
+    
+    /**
+     * 初始化
      */
     @PostConstruct
     public void init() {
-        stockScript = new DefaultRedisScript<>();
-        stockScript.setLocation(new ClassPathResource("scripts/stock.lua"));
-        stockScript.setResultType(Long.class);
-        
-        log.info("秒杀服务初始化完成，线程池最大并发数: {}, 订单超时时间: {}分钟", maxConcurrent, orderTimeout);
+        log.info("秒杀服务初始化完成，订单超时时间: {}分钟, 异步下单: {}", orderTimeout, asyncOrder);
     }
     
+    /**
+     * 第一页的索引查询结果按关键词缓存，翻页以search_after游标直接查询；实时库存在每次请求时叠加
+     */
     @Override
-    public List<SeckillItem> searchItems(String keyword) {
+    public SearchPage searchItems(String keyword, Integer size, String cursor) {
+        int pageSize = size == null || size <= 0 ? defaultPageSize : Math.min(size, maxPageSize);
+        SearchCursor after = SearchCursor.parse(cursor);
+        SearchPage page;
         try {
-            // 构建ES查询
-            NativeSearchQueryBuilder queryBuilder = new NativeSearchQueryBuilder();
-            
-            if (keyword != null && !keyword.trim().isEmpty()) {
-                // 多字段搜索：标题、描述
-                queryBuilder.withQuery(QueryBuilders.multiMatchQuery(keyword, "title", "description"));
-            }
-            
-            // 只查询激活状态的商品
-            queryBuilder.withFilter(QueryBuilders.termQuery("is_active", 1));
-            
-            // 按创建时间倒序
-            queryBuilder.withSort(SortBuilders.fieldSort("create_time").order(SortOrder.DESC));
-            
-            NativeSearchQuery searchQuery = queryBuilder.build();
-            SearchHits<SeckillItem> searchHits = elasticsearchTemplate.search(searchQuery, SeckillItem.class);
-            
-            // 转换为List并检查库存状态
-            return searchHits.getSearchHits().stream()
-                .map(hit -> {
-                    SeckillItem item = hit.getContent();
-                    // 检查Redis中的库存状态，添加"售罄"标识
-                    String stockKey = "seckill:stock:" + item.getId();
-                    Object stock = redisTemplate.opsForValue().get(stockKey);
-                    if (stock != null && Integer.parseInt(stock.toString()) <= 0) {
-                        item.setTitle(item.getTitle() + " [售罄]");
-                    }
-                    return item;
-                })
-                .collect(Collectors.toList());
-                
+            page = after == null
+                ? searchResultCache.get(keyword, pageSize, normalized -> queryIndex(normalized, pageSize, null))
+                : queryIndex(SearchResultCache.normalize(keyword), pageSize, after);
         } catch (Exception e) {
             log.error("搜索秒杀商品失败: {}", e.getMessage(), e);
-            // 降级到数据库查询
-            return seckillItemMapper.searchByKeyword(keyword);
+            page = fallbackSearch(keyword, pageSize, after);
         }
+        // 一次MGET叠加实时库存和售罄标识
+        stockOverlay.apply(page.getItems());
+        return page;
     }
     
+    /**
+     * ES不可用时的降级查询：优先查询本地倒排索引，索引未加载时才查询数据库
+     */
+    private SearchPage fallbackSearch(String keyword, int pageSize, SearchCursor after) {
+        if (localItemIndex.isReady()) {
+            return localItemIndex.search(SearchResultCache.normalize(keyword), pageSize, after);
+        }
+        List<SeckillItem> items = seckillItemMapper.searchByKeyword(keyword,
+            after != null ? after.getCreateDateTime() : null, after != null ? after.getId() : null, pageSize);
+        String nextCursor = items.size() == pageSize ? SearchCursor.of(items.get(items.size() - 1)).toString() : null;
+        return new SearchPage(items, nextCursor);
+    }
+    
+    /**
+     * 查询ES商品索引，按创建时间、ID倒序以search_after翻页，只返回列表展示字段
+     */
+    private SearchPage queryIndex(String keyword, int size, SearchCursor after) {
+        // 构建ES查询
+        NativeSearchQueryBuilder queryBuilder = new NativeSearchQueryBuilder();
+        
+        if (!keyword.isEmpty()) {
+            // 多字段搜索：标题、描述
+            queryBuilder.withQuery(QueryBuilders.multiMatchQuery(keyword, "title", "description"));
+        }
+        
+        // 只查询激活状态的商品
+        queryBuilder.withFilter(QueryBuilders.termQuery("is_active", 1));
+        
+        // 按创建时间倒序，ID保证排序值唯一
+        queryBuilder.withSort(SortBuilders.fieldSort("create_time").order(SortOrder.DESC));
+        queryBuilder.withSort(SortBuilders.fieldSort("id").order(SortOrder.DESC));
+        queryBuilder.withPageable(PageRequest.of(0, size));
+        if (after != null) {
+            queryBuilder.withSearchAfter(Arrays.asList(after.getCreateTime(), after.getId()));
+        }
+        queryBuilder.withSourceFilter(new FetchSourceFilter(LIST_FIELDS, null));
+        queryBuilder.withTrackTotalHits(false);
+        
+        NativeSearchQuery searchQuery = queryBuilder.build();
+        SearchHits<SeckillItem> searchHits = elasticsearchTemplate.search(searchQuery, SeckillItem.class);
+        List<SearchHit<SeckillItem>> hits = searchHits.getSearchHits();
+        List<SeckillItem> items = hits.stream()
+            .map(SearchHit::getContent)
+            .collect(Collectors.toList());
+        
+        String nextCursor = null;
+        if (hits.size() == size) {
+            List<Object> sortValues = hits.get(hits.size() - 1).getSortValues();
+            nextCursor = new SearchCursor(((Number) sortValues.get(0)).longValue(), ((Number) sortValues.get(1)).longValue()).toString();
+        }
+        return new SearchPage(items, nextCursor);
+    }
+    
+    /**
+     * 不开启事务：异步模式下请求线程不访问MySQL，同步模式下仅有一条INSERT，
+     * 避免在Redis扣减期间占用数据库连接
+     */
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public String executeSeckill(Long itemId, Long userId, Integer quantity) {
-        // 使用线程池控制并发
-        if (seckillThreadPool.getActiveCount() >= maxConcurrent) {
-            throw new RuntimeException("系统繁忙，请稍后重试");
+        // 本地售罄标记命中直接拒绝，不访问MySQL和Redis
+        if (soldOutRegistry.isSoldOut(itemId)) {
+            throw new RuntimeException("库存不足");
         }
         
         try {
-            // 1. 查询商品信息
-            SeckillItem item = seckillItemMapper.selectById(itemId);
+            // 1. 查询商品信息（本地缓存快照）
+            SeckillItemSnapshot item = seckillItemRegistry.get(itemId);
             if (item == null) {
                 throw new RuntimeException("商品不存在");
             }
             
             // 2. 检查商品是否激活
-            if (item.getIsActive() != 1) {
+            if (!item.isActive()) {
                 throw new RuntimeException("商品未激活");
             }
             
             // 3. 检查秒杀时间
-            LocalDateTime now = LocalDateTime.now();
-            if (now.isBefore(item.getStartTime()) || now.isAfter(item.getEndTime())) {
+            if (!item.isOnSale(LocalDateTime.now())) {
                 throw new RuntimeException("不在秒杀时间内");
             }
             
@@ -161,29 +302,63 @@ public class SeckillServiceImpl implements SeckillService {
                 throw new RuntimeException("库存不足");
             }
             
-            // 5. 执行Redis Lua脚本进行库存扣减和防重复下单
-            String stockKey = "seckill:stock:" + itemId;
-            String lockKey = "lock:seckill:" + itemId + ":" + userId;
-            
-            Long result = redisTemplate.execute(stockScript, 
-                Arrays.asList(stockKey, lockKey), 
-                userId.toString(), 
-                quantity.toString());
-            
-            // 6. 根据Lua脚本返回结果处理
-            if (result == null || result < 0) {
-                String errorMsg = getErrorMessage(result);
-                throw new RuntimeException(errorMsg);
+            // 5. 准入控制：按商品令牌桶和全局并发上限放行，超出部分不访问Redis和MySQL
+            if (!admissionController.tryAcquire(item)) {
+                throw new RuntimeException("系统繁忙，请稍后重试");
+            }
+            try {
+                // 先生成订单号，发号失败时尚未扣减库存
+                SeckillOrder order = buildOrder(itemId, userId, quantity, item.getSeckillPrice());
+                
+                // 扣减模式由全集群统一切换：Redis不可用期间在MySQL中扣减库存，切换过程中暂停下单
+                if (!mysqlStockFallback.enterRedis()) {
+                    if (mysqlStockFallback.isMysqlMode()) {
+                        return executeDegraded(order);
+                    }
+                    throw new RuntimeException("系统繁忙，请稍后重试");
+                }
+                
+                // 6. 执行Redis Lua脚本进行库存扣减和防重复下单（热点商品按分桶扣减）
+                Long result;
+                try {
+                    result = redisStockManager.deduct(itemId, userId, quantity, item.getStockBuckets());
+                } catch (RuntimeException e) {
+                    if (!mysqlStockFallback.degrade(e)) {
+                        throw e;
+                    }
+                    // 等待所有节点停止Redis扣减并回写库存后才能在MySQL中扣减
+                    throw new RuntimeException("系统繁忙，请稍后重试");
+                } finally {
+                    mysqlStockFallback.exitRedis();
+                }
+                
+                // 7. 根据Lua脚本返回结果处理
+                if (result == null || result < 0) {
+                    if (result != null && result == -2) {
+                        // 库存已归零，后续请求在本地直接拒绝
+                        soldOutRegistry.markSoldOut(itemId);
+                    }
+                    String errorMsg = getErrorMessage(result);
+                    throw new RuntimeException(errorMsg);
+                }
+                // 扣减成功后下调本节点的剩余库存估算，令牌速率随之收紧
+                admissionController.onSold(itemId, quantity);
+                
+                // 8. 创建订单
+                if (asyncOrder) {
+                    // 异步模式：登记受理凭证并投递下单消息，订单号即为受理凭证
+                    acceptOrderAsync(order);
+                    log.info("用户 {} 秒杀商品 {} 已受理，受理凭证: {}, 数量: {}", userId, itemId, order.getOrderNo(), quantity);
+                    return String.valueOf(order.getOrderNo());
+                }
+                // 订单超时消息与订单在同一事务中写入发件箱
+                Long orderNo = createOrder(order);
+                
+                log.info("用户 {} 秒杀商品 {} 成功，订单号: {}, 数量: {}", userId, itemId, orderNo, quantity);
+                return String.valueOf(orderNo);
+            } finally {
+                admissionController.release();
             }
-            
-            // 7. 创建订单
-            String orderNo = createOrder(itemId, userId, quantity, item.getSeckillPrice());
-            
-            // 8. 发送延迟消息处理订单超时
-            sendOrderTimeoutMessage(orderNo);
-            
-            log.info("用户 {} 秒杀商品 {} 成功，订单号: {}, 数量: {}", userId, itemId, orderNo, quantity);
-            return orderNo;
             
         } catch (Exception e) {
             log.error("秒杀失败 - 用户: {}, 商品: {}, 错误: {}", userId, itemId, e.getMessage(), e);
@@ -191,29 +366,45 @@ public class SeckillServiceImpl implements SeckillService {
         }
     }
     
+    /**
+     * 订单状态以条件UPDATE迁移，与支付回调、超时关闭并发时只有一方成功，只有成功取消的订单回滚库存；
+     * 降级期间MySQL库存在同一事务中回滚，Redis库存在事务提交后回滚，不在持有行锁期间访问Redis；
+     * 扣减模式在回滚开始前确定，回滚完成前各节点不会完成模式切换，切换过程中拒绝取消
+     */
     @Override
-    @Transactional(rollbackFor = Exception.class)
-    public Boolean cancelOrder(String orderNo) {
+    public Boolean cancelOrder(Long orderNo) {
         try {
-            // 1. 查询订单
+            // 1. 查询订单（商品、用户、数量不可变，无需加锁）
             SeckillOrder order = seckillOrderMapper.selectByOrderNo(orderNo);
             if (order == null) {
                 throw new RuntimeException("订单不存在");
             }
             
-            // 2. 检查订单状态
-            if (order.getStatus() != 0) {
-                throw new RuntimeException("订单状态不允许取消");
+            // 2. 未支付订单迁移为已取消，状态已变化时迁移失败；回滚完成前扣减模式不会切换
+            boolean degraded = mysqlStockFallback.enterRestore();
+            try {
+                Boolean cancelled = order.getStatus() == SeckillOrder.STATUS_UNPAID && transactionTemplate.execute(status -> {
+                    if (seckillOrderMapper.transitStatus(orderNo, SeckillOrder.STATUS_UNPAID, SeckillOrder.STATUS_CANCELLED) == 0) {
+                        return false;
+                    }
+                    if (degraded) {
+                        mysqlStockFallback.restore(order.getItemId(), order.getQuantity());
+                    }
+                    return true;
+                });
+                if (!Boolean.TRUE.equals(cancelled)) {
+                    throw new RuntimeException("订单状态不允许取消");
+                }
+                
+                // 3. 回滚Redis库存
+                if (!degraded) {
+                    redisStockManager.restore(order.getItemId(), order.getUserId(), order.getQuantity(),
+                        seckillItemRegistry.getStockBuckets(order.getItemId()));
+                }
+            } finally {
+                mysqlStockFallback.exitRestore();
             }
-            
-            // 3. 更新订单状态为已取消
-            order.setStatus(-1);
-            order.setUpdateTime(LocalDateTime.now());
-            seckillOrderMapper.update(order);
-            
-            // 4. 回滚库存
-            String stockKey = "seckill:stock:" + order.getItemId();
-            redisTemplate.opsForValue().increment(stockKey, order.getQuantity());
+            soldOutRegistry.unmarkSoldOut(order.getItemId());
             
             log.info("订单 {} 取消成功，库存已回滚，商品ID: {}, 数量: {}", 
                 orderNo, order.getItemId(), order.getQuantity());
@@ -225,81 +416,437 @@ public class SeckillServiceImpl implements SeckillService {
         }
     }
     
+    /**
+     * 事务内锁定整批未支付订单，以一条条件UPDATE迁移为已超时；只有本次由未支付变为已超时的订单回滚库存，
+     * 重复投递或与支付、手动取消并发时不会重复回滚。
+     * Redis库存在事务提交后按库存key汇总为一次管道INCRBY，失败时由库存对账修复；降级期间MySQL库存在同一事务中回滚
+     */
     @Override
-    @Transactional(rollbackFor = Exception.class)
-    public Boolean handlePaymentCallback(String orderNo) {
+    public int expireOrders(List<Long> orderNos) {
+        // 切换扣减模式期间抛出异常，由超时引擎稍后重试
+        boolean degraded = mysqlStockFallback.enterRestore();
+        List<SeckillOrder> expired;
         try {
-            // 1. 查询订单
-            SeckillOrder order = seckillOrderMapper.selectByOrderNo(orderNo);
-            if (order == null) {
-                throw new RuntimeException("订单不存在");
+            expired = transactionTemplate.execute(status -> {
+                List<SeckillOrder> unpaid = seckillOrderMapper.selectUnpaidForUpdate(orderNos);
+                if (unpaid.isEmpty()) {
+                    return unpaid;
+                }
+                seckillOrderMapper.batchTransitStatus(unpaid.stream().map(SeckillOrder::getId).collect(Collectors.toList()),
+                    SeckillOrder.STATUS_UNPAID, SeckillOrder.STATUS_EXPIRED);
+                if (degraded) {
+                    mysqlStockFallback.restoreAll(sumQuantity(unpaid));
+                }
+                return unpaid;
+            });
+            if (expired == null || expired.isEmpty()) {
+                return 0;
             }
             
-            // 2. 检查订单状态
-            if (order.getStatus() != 0) {
-                log.warn("订单 {} 状态异常，当前状态: {}", orderNo, order.getStatus());
+            if (!degraded) {
+                try {
+                    redisStockManager.restoreAll(expired, seckillItemRegistry::getStockBuckets);
+                } catch (Exception e) {
+                    log.error("批量回滚库存失败，订单数: {}, 错误: {}", expired.size(), e.getMessage(), e);
+                }
+            }
+        } finally {
+            mysqlStockFallback.exitRestore();
+        }
+        expired.stream().map(SeckillOrder::getItemId).distinct().forEach(soldOutRegistry::unmarkSoldOut);
+        log.info("超时取消订单完成，订单数: {}, 取消数: {}", orderNos.size(), expired.size());
+        return expired.size();
+    }
+    
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public Boolean handlePaymentCallback(Long orderNo) {
+        try {
+            // 1. 未支付订单迁移为已支付，订单不存在或已取消、已超时时迁移失败
+            if (seckillOrderMapper.transitStatus(orderNo, SeckillOrder.STATUS_UNPAID, SeckillOrder.STATUS_PAID) == 0) {
+                log.warn("订单 {} 不存在或状态不允许支付", orderNo);
                 return false;
             }
             
-            // 3. 更新订单状态为已支付
-            order.setStatus(1);
-            order.setPayTime(LocalDateTime.now());
-            order.setUpdateTime(LocalDateTime.now());
-            seckillOrderMapper.update(order);
+            // 2. 写入支付成功消息，随事务提交后异步投递，同步更新ES商品状态
+            messageOutbox.addBatch(MessageOutbox.PAYMENT_SUCCESS_TOPIC, Collections.singletonList(orderNo));
             
-            // 4. 发送MQ消息同步更新ES商品状态
-            sendPaymentSuccessMessage(orderNo, order.getItemId());
-            
-            log.info("订单 {} 支付成功，商品ID: {}", orderNo, order.getItemId());
+            log.info("订单 {} 支付成功", orderNo);
             return true;
             
         } catch (Exception e) {
             log.error("处理支付回调失败 - 订单号: {}, 错误: {}", orderNo, e.getMessage(), e);
+            // 订单状态与支付成功消息一起回滚
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return false;
         }
     }
     
     /**
-     * 创建订单
+     * 事务内锁定整批未支付订单，以一条条件UPDATE迁移为已支付，并为成功的订单写入一条聚合的支付成功消息
      */
-    private String createOrder(Long itemId, Long userId, Integer quantity, BigDecimal price) {
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public Map<Long, Boolean> handlePaymentCallbacks(List<Long> orderNos) {
+        Map<Long, Boolean> results = new LinkedHashMap<>();
+        for (Long orderNo : orderNos) {
+            results.put(orderNo, false);
+        }
+        List<SeckillOrder> unpaid = seckillOrderMapper.selectUnpaidForUpdate(new ArrayList<>(results.keySet()));
+        if (!unpaid.isEmpty()) {
+            seckillOrderMapper.batchTransitStatus(unpaid.stream().map(SeckillOrder::getId).collect(Collectors.toList()),
+                SeckillOrder.STATUS_UNPAID, SeckillOrder.STATUS_PAID);
+            List<Long> paid = unpaid.stream().map(SeckillOrder::getOrderNo).collect(Collectors.toList());
+            paid.forEach(orderNo -> results.put(orderNo, true));
+            messageOutbox.addBatch(MessageOutbox.PAYMENT_SUCCESS_TOPIC, paid);
+        }
+        log.info("批量支付回调处理完成，订单数: {}, 支付成功数: {}", results.size(), unpaid.size());
+        return results;
+    }
+    
+    @Override
+    public String getOrderStatus(Long ticket) {
+        Object status = redisTemplate.opsForValue().get(TICKET_KEY_PREFIX + ticket);
+        if (status != null) {
+            return TICKET_CREATING.equals(status.toString()) ? TICKET_PENDING : status.toString();
+        }
+        // 凭证已过期或同步模式下单，以数据库为准
+        return seckillOrderMapper.selectByOrderNo(ticket) != null ? TICKET_CREATED : null;
+    }
+    
+    /**
+     * 先将凭证原子迁移为创建中，已判定失败并回滚库存的凭证不再创建订单（投递结果不确定的消息可能迟到）；
+     * 消费重试时凭证已是创建中或已创建，可以继续创建
+     */
+    @Override
+    public void saveOrders(List<SeckillOrder> orders) {
+        List<SeckillOrder> claimed = transitTickets(orders, TICKET_CREATING, true, TICKET_PENDING, TICKET_CREATING, TICKET_CREATED);
+        if (claimed.size() < orders.size()) {
+            for (SeckillOrder order : orders) {
+                if (!claimed.contains(order)) {
+                    log.warn("订单 {} 已判定创建失败并回滚库存，丢弃迟到的下单消息", order.getOrderNo());
+                }
+            }
+        }
+        if (claimed.isEmpty()) {
+            return;
+        }
+        insertOrders(claimed);
+    }
+    
+    /**
+     * 批量插入订单并更新受理凭证状态
+     */
+    private void insertOrders(List<SeckillOrder> orders) {
+        List<SeckillOrder> created = new ArrayList<>(orders.size());
+        List<SeckillOrder> rejected = new ArrayList<>();
+        List<SeckillOrder> collided = new ArrayList<>();
+        // 订单与超时消息在同一事务中写入
+        transactionTemplate.executeWithoutResult(status -> {
+            created.clear();
+            rejected.clear();
+            collided.clear();
+            List<Long> inserted = new ArrayList<>(orders.size());
+            try {
+                seckillOrderMapper.batchInsert(orders);
+                created.addAll(orders);
+                for (SeckillOrder order : orders) {
+                    inserted.add(order.getOrderNo());
+                }
+            } catch (DuplicateKeyException e) {
+                // 消息重复投递，或用户在降级期间已下单，逐条插入
+                log.warn("批量插入订单存在重复订单，逐条插入，订单数: {}", orders.size());
+                for (SeckillOrder order : orders) {
+                    try {
+                        seckillOrderMapper.insert(order);
+                        created.add(order);
+                        inserted.add(order.getOrderNo());
+                    } catch (DuplicateKeyException ignored) {
+                        OrderConflictResolver.Conflict conflict = orderConflictResolver.resolve(order);
+                        if (conflict == OrderConflictResolver.Conflict.ALREADY_CREATED) {
+                            log.debug("订单 {} 已存在，跳过", order.getOrderNo());
+                            created.add(order);
+                        } else if (conflict == OrderConflictResolver.Conflict.DUPLICATE_PURCHASE) {
+                            rejected.add(order);
+                        } else {
+                            collided.add(order);
+                        }
+                    }
+                }
+            }
+            messageOutbox.addAll(MessageOutbox.ORDER_TIMEOUT_TOPIC, inserted);
+        });
+        
+        for (SeckillOrder order : rejected) {
+            rejectDuplicate(order);
+            markTicket(order.getOrderNo(), TICKET_FAILED);
+        }
+        // 受理凭证即订单号，不能换号，订单号冲突时判定失败并回滚库存，用户可重新下单
+        for (SeckillOrder order : collided) {
+            log.error("订单号 {} 与其他订单冲突，订单未创建", order.getOrderNo());
+            markTicket(order.getOrderNo(), TICKET_FAILED);
+            restoreStock(order);
+        }
+        for (SeckillOrder order : created) {
+            markTicket(order.getOrderNo(), TICKET_CREATED);
+        }
+        log.info("批量创建订单成功，订单数: {}", created.size());
+    }
+    
+    @Override
+    public void failOrders(List<SeckillOrder> orders) {
+        // 消费重试耗尽时本批事务均未提交，创建中的凭证同样可以判定失败
+        failOrders(orders, TICKET_PENDING, TICKET_CREATING);
+    }
+    
+    /**
+     * 凭证由指定状态原子迁移为失败后回滚库存，迁移失败的订单已被消费创建，不回滚
+     */
+    private void failOrders(List<SeckillOrder> orders, String... from) {
+        for (SeckillOrder order : transitTickets(orders, TICKET_FAILED, false, from)) {
+            restoreStock(order);
+            log.warn("订单 {} 创建失败，库存已回滚，商品ID: {}, 数量: {}",
+                order.getOrderNo(), order.getItemId(), order.getQuantity());
+        }
+    }
+    
+    /**
+     * 构建订单
+     */
+    private SeckillOrder buildOrder(Long itemId, Long userId, Integer quantity, BigDecimal price) {
         SeckillOrder order = new SeckillOrder();
-        order.setOrderNo(IdUtil.fastSimpleUUID());
+        order.setOrderNo(orderIdGenerator.nextId(itemId));
         order.setUserId(userId);
         order.setItemId(itemId);
         order.setQuantity(quantity);
         order.setAmount(price.multiply(new BigDecimal(quantity)));
-        order.setStatus(0);
+        order.setStatus(SeckillOrder.STATUS_UNPAID);
         order.setCreateTime(LocalDateTime.now());
         order.setUpdateTime(LocalDateTime.now());
-        
-        seckillOrderMapper.insert(order);
+        return order;
+    }
+    
+    /**
+     * 创建订单，订单号与其他订单冲突时换号重试，失败时回滚Redis库存
+     */
+    private Long createOrder(SeckillOrder order) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                // 组提交时与并发请求的订单合并为一条多值INSERT
+                return groupCommit ? awaitGroupCommit(order) : insertOrder(order);
+            } catch (DuplicateKeyException e) {
+                if (attempt >= OrderConflictResolver.MAX_RENUMBER_ATTEMPTS
+                    || orderConflictResolver.resolve(order) != OrderConflictResolver.Conflict.ORDER_NO_COLLISION) {
+                    throw orderFailed(order, e);
+                }
+                log.error("订单号 {} 与其他订单冲突，重新生成订单号", order.getOrderNo());
+                orderConflictResolver.renumber(order);
+            }
+        }
+    }
+    
+    /**
+     * 单条写入订单，唯一约束冲突时抛出DuplicateKeyException由调用方判定，其他失败时回滚库存
+     */
+    private Long insertOrder(SeckillOrder order) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                seckillOrderMapper.insert(order);
+                messageOutbox.add(MessageOutbox.ORDER_TIMEOUT_TOPIC, order.getOrderNo());
+            });
+        } catch (DuplicateKeyException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw orderFailed(order, e);
+        }
         return order.getOrderNo();
     }
     
     /**
-     * 发送订单超时消息
+     * 限时等待组提交写入，超时后撤回尚未开始写入的订单并回滚库存；
+     * 已在写入中的订单无法撤回，结果以写入为准，写入失败时再回滚库存
+     */
+    private Long awaitGroupCommit(SeckillOrder order) {
+        CompletableFuture<SeckillOrder> written = orderBatchWriter.submit(order);
+        try {
+            written.get(groupCommitTimeoutMillis, TimeUnit.MILLISECONDS);
+            return order.getOrderNo();
+        } catch (ExecutionException e) {
+            RuntimeException cause = toRuntimeException(e.getCause());
+            if (cause instanceof DuplicateKeyException) {
+                throw cause;
+            }
+            throw orderFailed(order, cause);
+        } catch (InterruptedException | TimeoutException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            if (orderBatchWriter.withdraw(written)) {
+                log.error("等待订单写入超时，已撤回，订单号: {}", order.getOrderNo());
+                throw orderFailed(order, new RuntimeException("系统繁忙，请稍后重试"));
+            }
+            log.error("等待订单写入超时，订单正在写入，订单号: {}", order.getOrderNo());
+            written.whenComplete((result, error) -> {
+                if (error != null) {
+                    orderFailed(order, toRuntimeException(error));
+                }
+            });
+            throw new RuntimeException("下单处理超时，请稍后查询订单");
+        }
+    }
+    
+    private static RuntimeException toRuntimeException(Throwable e) {
+        return e instanceof RuntimeException ? (RuntimeException) e : new RuntimeException(e);
+    }
+    
+    /**
+     * 按商品汇总订单数量
+     */
+    private static List<ItemQuantity> sumQuantity(List<SeckillOrder> orders) {
+        Map<Long, Long> quantities = new LinkedHashMap<>();
+        for (SeckillOrder order : orders) {
+            quantities.merge(order.getItemId(), (long) order.getQuantity(), Long::sum);
+        }
+        List<ItemQuantity> result = new ArrayList<>(quantities.size());
+        quantities.forEach((itemId, quantity) -> result.add(new ItemQuantity(itemId, quantity)));
+        return result;
+    }
+    
+    /**
+     * 订单写入失败时回滚库存；唯一约束冲突时按已有订单区分重复购买、重复写入和订单号冲突
+     */
+    private RuntimeException orderFailed(SeckillOrder order, RuntimeException e) {
+        if (e instanceof DuplicateKeyException) {
+            OrderConflictResolver.Conflict conflict = orderConflictResolver.resolve(order);
+            if (conflict == OrderConflictResolver.Conflict.DUPLICATE_PURCHASE) {
+                rejectDuplicate(order);
+                return new RuntimeException(getErrorMessage(-3L));
+            }
+            if (conflict == OrderConflictResolver.Conflict.ALREADY_CREATED) {
+                // 订单已写入，库存不回滚
+                return new RuntimeException("下单处理超时，请稍后查询订单");
+            }
+            log.error("订单号 {} 冲突且换号重试次数已用尽", order.getOrderNo());
+            restoreStock(order);
+            return new RuntimeException("系统繁忙，请稍后重试");
+        }
+        restoreStock(order);
+        return e;
+    }
+    
+    /**
+     * 降级模式下单：MySQL中扣减库存并同步写入订单，受降级并发上限约束
+     */
+    private String executeDegraded(SeckillOrder order) {
+        if (!mysqlStockFallback.tryAcquire()) {
+            throw new RuntimeException("系统繁忙，请稍后重试");
+        }
+        Long result;
+        try {
+            if (!mysqlStockFallback.isMysqlMode()) {
+                // 等待许可期间已开始切回Redis扣减，不能再扣减MySQL
+                throw new RuntimeException("系统繁忙，请稍后重试");
+            }
+            result = mysqlStockFallback.deduct(order);
+        } finally {
+            mysqlStockFallback.release();
+        }
+        if (result < 0) {
+            if (result == -2) {
+                soldOutRegistry.markSoldOut(order.getItemId());
+            }
+            throw new RuntimeException(getErrorMessage(result));
+        }
+        admissionController.onSold(order.getItemId(), order.getQuantity());
+        
+        log.info("用户 {} 秒杀商品 {} 成功（降级模式），订单号: {}, 数量: {}",
+            order.getUserId(), order.getItemId(), order.getOrderNo(), order.getQuantity());
+        return String.valueOf(order.getOrderNo());
+    }
+    
+    /**
+     * 用户已有该商品订单（降级期间下单，Redis中没有购买登记）：回滚库存但保留购买登记
      */
-    private void sendOrderTimeoutMessage(String orderNo) {
+    private void rejectDuplicate(SeckillOrder order) {
         try {
-            // 发送延迟消息，30分钟后处理订单超时
-            rocketMQTemplate.syncSend("ORDER_TIMEOUT_TOPIC", orderNo, orderTimeout * 60 * 1000);
-            log.debug("发送订单超时消息成功，订单号: {}, 延迟时间: {}分钟", orderNo, orderTimeout);
+            redisStockManager.restore(order.getItemId(), order.getUserId(), order.getQuantity(),
+                seckillItemRegistry.getStockBuckets(order.getItemId()));
+            soldOutRegistry.unmarkSoldOut(order.getItemId());
         } catch (Exception e) {
-            log.error("发送订单超时消息失败，订单号: {}, 错误: {}", orderNo, e.getMessage(), e);
+            log.error("回滚库存失败，订单号: {}, 商品ID: {}, 错误: {}", order.getOrderNo(), order.getItemId(), e.getMessage(), e);
+        }
+        log.warn("用户 {} 已有商品 {} 的订单，订单 {} 未创建", order.getUserId(), order.getItemId(), order.getOrderNo());
+    }
+    
+    /**
+     * 异步受理订单：登记凭证后将下单消息交给批量发送器，不等待Broker确认；
+     * 发送器拒绝时立即回滚库存并提示用户，异步发送失败时在回调中回滚。
+     * 发送失败可能是结果不确定（消息已到达Broker），只有凭证仍为待落库时才回滚，之后迟到的消息不再创建订单
+     */
+    private void acceptOrderAsync(SeckillOrder order) {
+        markTicket(order.getOrderNo(), TICKET_PENDING);
+        CompletableFuture<Void> sent = batchingMessageProducer.send(ORDER_TOPIC, String.valueOf(order.getOrderNo()), JSON.toJSONString(order));
+        if (sent.isCompletedExceptionally()) {
+            log.error("投递下单消息被拒绝，订单号: {}", order.getOrderNo());
+            failOrders(Collections.singletonList(order), TICKET_PENDING);
+            throw new RuntimeException("系统繁忙，请稍后重试");
+        }
+        sent.whenComplete((result, e) -> {
+            if (e != null) {
+                log.error("投递下单消息失败，订单号: {}, 错误: {}", order.getOrderNo(), e.getMessage(), e);
+                failOrders(Collections.singletonList(order), TICKET_PENDING);
+            }
+        });
+    }
+    
+    /**
+     * 更新受理凭证状态
+     */
+    private void markTicket(Long ticket, String status) {
+        redisTemplate.opsForValue().set(TICKET_KEY_PREFIX + ticket, status, ticketTtlMinutes, TimeUnit.MINUTES);
+    }
+    
+    /**
+     * 批量原子迁移受理凭证状态，一次脚本调用完成
+     * 
+     * @param orders 订单列表
+     * @param to 目标状态
+     * @param allowMissing 凭证不存在（已过期）时是否迁移
+     * @param from 允许的来源状态
+     * @return 迁移成功的订单
+     */
+    private List<SeckillOrder> transitTickets(List<SeckillOrder> orders, String to, boolean allowMissing, String... from) {
+        List<String> keys = new ArrayList<>(orders.size());
+        for (SeckillOrder order : orders) {
+            keys.add(TICKET_KEY_PREFIX + order.getOrderNo());
+        }
+        Object[] args = new Object[3 + from.length];
+        args[0] = to;
+        args[1] = TimeUnit.MINUTES.toMillis(ticketTtlMinutes);
+        args[2] = allowMissing ? 1 : 0;
+        System.arraycopy(from, 0, args, 3, from.length);
+        List<Object> results = redisScriptRegistry.execute(SeckillScript.TICKET_TRANSIT, keys, args);
+        
+        List<SeckillOrder> transited = new ArrayList<>(orders.size());
+        for (int i = 0; i < orders.size(); i++) {
+            Object result = results != null && i < results.size() ? results.get(i) : null;
+            if (result != null && ((Number) result).longValue() == 1) {
+                transited.add(orders.get(i));
+            }
         }
+        return transited;
     }
     
     /**
-     * 发送支付成功消息
+     * 回滚Redis库存并撤销购买用户登记
      */
-    private void sendPaymentSuccessMessage(String orderNo, Long itemId) {
+    private void restoreStock(SeckillOrder order) {
         try {
-            // 发送支付成功消息，用于同步更新ES
-            rocketMQTemplate.syncSend("PAYMENT_SUCCESS_TOPIC", orderNo);
-            log.debug("发送支付成功消息成功，订单号: {}, 商品ID: {}", orderNo, itemId);
+            redisStockManager.release(order.getItemId(), order.getUserId(), order.getQuantity(),
+                seckillItemRegistry.getStockBuckets(order.getItemId()));
+            soldOutRegistry.unmarkSoldOut(order.getItemId());
         } catch (Exception e) {
-            log.error("发送支付成功消息失败，订单号: {}, 错误: {}", orderNo, e.getMessage(), e);
+            log.error("回滚库存失败，订单号: {}, 商品ID: {}, 错误: {}", order.getOrderNo(), order.getItemId(), e.getMessage(), e);
         }
     }
     
@@ -314,6 +861,7 @@ public class SeckillServiceImpl implements SeckillService {
             case -1:
                 return "商品不存在";
             case -2:
+            case -4:
                 return "库存不足";
             case -3:
                 return "重复下单，请勿重复操作";
@@ -0,0 +1,216 @@
+package com.ecommerce.seckill.stock;
+
+import com.ecommerce.seckill.dao.SeckillItemMapper;
+import com.ecommerce.seckill.entity.SeckillItem;
+import com.ecommerce.seckill.script.RedisScriptRegistry;
+import com.ecommerce.seckill.script.SeckillScript;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 商品购买用户防重
+ * 每个商品一个key记录已购买用户，与库存扣减在同一脚本内检查和登记，活动结束后清除。支持三种模式：
+ * set-集合，按用户ID精确去重；bitmap-位图，用户ID即位偏移，适合连续数字ID；
+ * bloom-布隆过滤器，固定内存支撑超大规模用户，存在少量误判（误判用户被视为已购买），且不支持撤销登记
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class BuyerDedup {
+    
+    /**
+     * 商品购买用户key前缀
+     */
+    public static final String BUYER_KEY_PREFIX = "seckill:buyers:";
+    
+    /**
+     * Redis位图的最大位偏移
+     */
+    private static final long MAX_BIT_OFFSET = 1L << 32;
+    
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    
+    @Autowired
+    private RedisScriptRegistry redisScriptRegistry;
+    
+    @Autowired
+    private SeckillItemMapper seckillItemMapper;
+    
+    /**
+     * 防重模式：set/bitmap/bloom
+     */
+    @Value("${seckill.buyer-dedup.mode:set}")
+    private String mode;
+    
+    /**
+     * 布隆过滤器位数
+     */
+    @Value("${seckill.buyer-dedup.bloom.bits:16777216}")
+    private Long bloomBits;
+    
+    /**
+     * 布隆过滤器哈希函数个数
+     */
+    @Value("${seckill.buyer-dedup.bloom.hashes:5}")
+    private Integer bloomHashes;
+    
+    /**
+     * 清理时向前回看的时间（小时），覆盖节点停机期间结束的活动
+     */
+    @Value("${seckill.buyer-dedup.cleanup-lookback-hours:24}")
+    private Integer cleanupLookbackHours;
+    
+    @PostConstruct
+    public void init() {
+        if (!"set".equals(mode) && !"bitmap".equals(mode) && !"bloom".equals(mode)) {
+            throw new IllegalStateException("seckill.buyer-dedup.mode 仅支持 set/bitmap/bloom");
+        }
+        if ("bloom".equals(mode) && (bloomBits <= 0 || bloomBits > MAX_BIT_OFFSET || bloomHashes <= 0)) {
+            throw new IllegalStateException("布隆过滤器位数须在1到2^32之间且哈希函数个数大于0");
+        }
+        log.info("购买用户防重初始化完成，模式: {}", mode);
+    }
+    
+    /**
+     * 商品购买用户key
+     */
+    public static String buyerKey(Long itemId) {
+        return BUYER_KEY_PREFIX + itemId;
+    }
+    
+    /**
+     * 脚本使用的防重模式参数：set或bit
+     */
+    public String scriptMode() {
+        return "set".equals(mode) ? "set" : "bit";
+    }
+    
+    /**
+     * 每个用户对应的位偏移个数，set模式为0
+     */
+    public int bitCount() {
+        switch (mode) {
+            case "bitmap":
+                return 1;
+            case "bloom":
+                return bloomHashes;
+            default:
+                return 0;
+        }
+    }
+    
+    /**
+     * 用户对应的位偏移，set模式返回空列表
+     * 
+     * @param userId 用户ID
+     * @return 位偏移列表
+     */
+    public List<Long> offsets(Long userId) {
+        if ("bitmap".equals(mode)) {
+            if (userId < 0 || userId >= MAX_BIT_OFFSET) {
+                throw new IllegalArgumentException("用户ID超出位图范围: " + userId);
+            }
+            return Collections.singletonList(userId);
+        }
+        if ("bloom".equals(mode)) {
+            // 双重哈希生成k个位置
+            long h1 = mix(userId);
+            long h2 = mix(h1) | 1;
+            List<Long> offsets = new ArrayList<>(bloomHashes);
+            for (int i = 0; i < bloomHashes; i++) {
+                offsets.add(Math.floorMod(h1 + i * h2, bloomBits));
+            }
+            return offsets;
+        }
+        return Collections.emptyList();
+    }
+    
+    /**
+     * 单独登记购买用户（分桶商品的分桶可能位于不同分片，无法与扣减在同一脚本内完成）
+     * 
+     * @param itemId 商品ID
+     * @param userId 用户ID
+     * @return 是否首次登记，false表示已购买
+     */
+    public boolean mark(Long itemId, Long userId) {
+        List<Object> args = new ArrayList<>();
+        args.add(scriptMode());
+        args.add(userId);
+        args.addAll(offsets(userId));
+        Long result = redisScriptRegistry.execute(SeckillScript.BUYER_MARK,
+            Collections.singletonList(buyerKey(itemId)), args.toArray());
+        return result != null && result == 1;
+    }
+    
+    /**
+     * 是否支持撤销登记，布隆过滤器的位由多个用户共享，不能清除
+     */
+    public boolean supportsUnmark() {
+        return !"bloom".equals(mode);
+    }
+    
+    /**
+     * 撤销购买用户登记（下单失败时允许用户重试），只发出一条命令，可在管道中使用
+     * 
+     * @param connection Redis连接
+     * @param itemId 商品ID
+     * @param userId 用户ID
+     */
+    public void unmark(RedisConnection connection, Long itemId, Long userId) {
+        byte[] key = bytes(buyerKey(itemId));
+        if ("set".equals(mode)) {
+            connection.setCommands().sRem(key, bytes(userId.toString()));
+        } else if ("bitmap".equals(mode)) {
+            connection.stringCommands().setBit(key, userId, false);
+        }
+    }
+    
+    /**
+     * 清除已结束活动的购买用户记录，UNLINK在后台释放内存，不阻塞Redis
+     */
+    @Scheduled(fixedDelayString = "${seckill.buyer-dedup.cleanup-interval-ms:60000}")
+    public void cleanupEnded() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            List<SeckillItem> items = seckillItemMapper.selectEndingBetween(now.minusHours(cleanupLookbackHours), now);
+            if (items.isEmpty()) {
+                return;
+            }
+            List<String> keys = new ArrayList<>(items.size());
+            for (SeckillItem item : items) {
+                keys.add(buyerKey(item.getId()));
+            }
+            Long removed = stringRedisTemplate.unlink(keys);
+            if (removed != null && removed > 0) {
+                log.info("清除已结束活动的购买用户记录，key数: {}", removed);
+            }
+        } catch (Exception e) {
+            log.error("清除购买用户记录失败: {}", e.getMessage(), e);
+        }
+    }
+    
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return value ^ (value >>> 33);
+    }
+    
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
\ No newline at end of file
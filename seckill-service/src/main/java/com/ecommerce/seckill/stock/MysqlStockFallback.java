@@ -0,0 +1,585 @@
+package com.ecommerce.seckill.stock;
+
+import com.ecommerce.seckill.dao.SeckillItemMapper;
+import com.ecommerce.seckill.dao.SeckillOrderMapper;
+import com.ecommerce.seckill.dao.SeckillStockModeMapper;
+import com.ecommerce.seckill.entity.SeckillItem;
+import com.ecommerce.seckill.entity.SeckillOrder;
+import com.ecommerce.seckill.entity.SeckillStockMode;
+import com.ecommerce.seckill.mq.MessageOutbox;
+import com.ecommerce.seckill.order.OrderConflictResolver;
+import com.ecommerce.seckill.vo.ItemQuantity;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * MySQL库存降级
+ * Redis不可用时切换为MySQL扣减：条件UPDATE（stock >= 数量）保证不超卖，
+ * 订单表(user_id, item_id)唯一约束防止重复下单，并以远小于正常链路的并发上限保护MySQL。
+ * 扣减模式记录在seckill_stock_mode中，全集群按版本统一切换：
+ * REDIS -> DEGRADING（各节点停止Redis扣减并回写变化量）-> MYSQL -> RECOVERING（各节点停止MySQL扣减）-> REDIS，
+ * 所有存活节点确认当前版本后才进入下一模式，回灌库存由认领的单个节点以认领序号为栅栏完成。
+ * Redis扣减只依据本节点缓存的模式，MySQL短暂不可用不影响Redis扣减；切换过程和MySQL扣减须在最近一次成功同步模式后的租约内进行，
+ * 与MySQL失联的节点在心跳超时前已停止MySQL扣减。
+ * 节点同时与MySQL失联、而其他节点无法访问Redis时，失联节点仍会在Redis中扣减，超卖以其失联期间的扣减量为上限
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class MysqlStockFallback {
+    
+    @Autowired
+    private SeckillItemMapper seckillItemMapper;
+    
+    @Autowired
+    private SeckillOrderMapper seckillOrderMapper;
+    
+    @Autowired
+    private SeckillStockModeMapper seckillStockModeMapper;
+    
+    @Autowired
+    private OrderConflictResolver orderConflictResolver;
+    
+    @Autowired
+    private RedisStockManager redisStockManager;
+    
+    @Autowired
+    private StockWriteBehind stockWriteBehind;
+    
+    @Autowired
+    private MessageOutbox messageOutbox;
+    
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    /**
+     * 是否允许自动降级，关闭时始终使用Redis扣减且不同步扣减模式
+     */
+    @Value("${seckill.stock.degrade.enabled:true}")
+    private Boolean enabled;
+    
+    /**
+     * 降级期间单节点同时访问MySQL扣减库存的最大请求数
+     */
+    @Value("${seckill.stock.degrade.max-concurrent:20}")
+    private Integer maxConcurrent;
+    
+    /**
+     * 等待并发许可的最长时间（毫秒）
+     */
+    @Value("${seckill.stock.degrade.acquire-timeout-ms:100}")
+    private Long acquireTimeoutMillis;
+    
+    /**
+     * 连续多少次健康检查通过后恢复Redis扣减
+     */
+    @Value("${seckill.stock.degrade.recover-threshold:3}")
+    private Integer recoverThreshold;
+    
+    /**
+     * 恢复时每批回灌的商品数，按ID分批回灌全部未结束的商品
+     */
+    @Value("${seckill.stock.degrade.reseed-batch-size:1000}")
+    private Integer reseedBatchSize;
+    
+    /**
+     * 切换模式时等待进行中的扣减完成的最长时间（毫秒）
+     */
+    @Value("${seckill.stock.degrade.drain-timeout-ms:5000}")
+    private Long drainTimeoutMillis;
+    
+    /**
+     * 扣减租约时长（毫秒），超过该时长未能同步扣减模式的节点停止MySQL扣减（Redis扣减不受限制）
+     */
+    @Value("${seckill.stock.degrade.lease-ms:3000}")
+    private Long leaseMillis;
+    
+    /**
+     * 节点心跳超时时间（秒），超时的节点不再参与切换确认，须大于扣减租约
+     */
+    @Value("${seckill.stock.degrade.node-timeout-seconds:10}")
+    private Integer nodeTimeoutSeconds;
+    
+    /**
+     * 回灌认领超时时间（秒），超时后其他节点可以接管回灌
+     */
+    @Value("${seckill.stock.degrade.reseed-timeout-seconds:60}")
+    private Integer reseedTimeoutSeconds;
+    
+    /**
+     * 本节点标识
+     */
+    private String node;
+    
+    /**
+     * 本节点当前扣减模式
+     */
+    private volatile String localMode = SeckillStockMode.MODE_REDIS;
+    
+    /**
+     * 本节点已完成切换的模式版本
+     */
+    private volatile long ackedEpoch = -1;
+    
+    /**
+     * 最近一次同步到的模式版本
+     */
+    private volatile long sharedEpoch;
+    
+    /**
+     * 扣减租约到期时间
+     */
+    private volatile long leaseExpireAt;
+    
+    /**
+     * 是否已请求切换到MySQL扣减，等待模式切换
+     */
+    private final AtomicBoolean degradeRequested = new AtomicBoolean(false);
+    
+    /**
+     * 进行中的Redis扣减数
+     */
+    private final LongAdder redisInFlight = new LongAdder();
+    
+    /**
+     * 进行中的库存回滚数（取消、超时关闭订单）
+     */
+    private final LongAdder restoreInFlight = new LongAdder();
+    
+    private Semaphore permits;
+    
+    /**
+     * 连续通过的健康检查次数
+     */
+    private int healthyChecks;
+    
+    @PostConstruct
+    public void init() {
+        if (nodeTimeoutSeconds * 1000L <= leaseMillis * 2) {
+            throw new IllegalArgumentException("节点心跳超时时间须大于扣减租约的两倍");
+        }
+        node = ManagementFactory.getRuntimeMXBean().getName() + ":" + UUID.randomUUID();
+        permits = new Semaphore(maxConcurrent);
+        Gauge.builder("seckill.stock.degraded", this, fallback -> fallback.isDegraded() ? 1 : 0)
+            .description("是否处于MySQL库存降级模式（含切换过程）")
+            .register(meterRegistry);
+        if (enabled) {
+            // 启动时先同步一次扣减模式，同步成功前不扣减库存
+            localMode = SeckillStockMode.MODE_DEGRADING;
+            sync();
+        }
+        log.info("MySQL库存降级初始化完成，启用: {}, 并发上限: {}, 节点: {}, 扣减模式: {}", enabled, maxConcurrent, node, localMode);
+    }
+    
+    /**
+     * 停机前回写变化量并注销节点，不再参与切换确认
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        stockWriteBehind.flushPending();
+        try {
+            seckillStockModeMapper.deleteNode(node);
+        } catch (Exception e) {
+            log.warn("注销库存扣减节点失败: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * 是否处于降级模式（含切换过程），此时库存以MySQL为准
+     */
+    public boolean isDegraded() {
+        return !SeckillStockMode.MODE_REDIS.equals(localMode);
+    }
+    
+    /**
+     * 是否可以在MySQL中扣减库存
+     */
+    public boolean isMysqlMode() {
+        return SeckillStockMode.MODE_MYSQL.equals(localMode) && leaseValid();
+    }
+    
+    /**
+     * 开始一次Redis扣减，返回true时扣减结束后必须调用{@link #exitRedis()}
+     * 
+     * @return 是否可以在Redis中扣减库存，false表示处于降级模式或切换过程中
+     */
+    public boolean enterRedis() {
+        redisInFlight.increment();
+        if (SeckillStockMode.MODE_REDIS.equals(localMode)) {
+            return true;
+        }
+        redisInFlight.decrement();
+        return false;
+    }
+    
+    /**
+     * 结束一次Redis扣减（库存变化量已记录到异步回写）
+     */
+    public void exitRedis() {
+        redisInFlight.decrement();
+    }
+    
+    /**
+     * 开始一次库存回滚，按当前扣减模式回滚到Redis或MySQL，结束后必须调用{@link #exitRestore()}；
+     * 模式切换等待进行中的回滚完成，回滚不会在回灌读取MySQL库存之后才提交
+     * 
+     * @return true-在MySQL中回滚，false-在Redis中回滚
+     * @throws RuntimeException 扣减模式切换过程中
+     */
+    public boolean enterRestore() {
+        restoreInFlight.increment();
+        String mode = localMode;
+        if (SeckillStockMode.MODE_REDIS.equals(mode)) {
+            return false;
+        }
+        if (SeckillStockMode.MODE_MYSQL.equals(mode)) {
+            return true;
+        }
+        restoreInFlight.decrement();
+        throw new RuntimeException("系统繁忙，请稍后重试");
+    }
+    
+    /**
+     * 结束一次库存回滚
+     */
+    public void exitRestore() {
+        restoreInFlight.decrement();
+    }
+    
+    /**
+     * Redis访问失败时请求全集群切换到MySQL扣减，本节点立即停止Redis扣减
+     * 
+     * @param cause Redis异常
+     * @return 是否已请求降级，false表示异常不是Redis不可用或未启用降级
+     */
+    public boolean degrade(Throwable cause) {
+        if (!enabled || !isRedisUnavailable(cause)) {
+            return false;
+        }
+        if (degradeRequested.compareAndSet(false, true)) {
+            log.error("Redis不可用，请求全集群切换为MySQL降级扣减: {}", cause.getMessage());
+            localMode = SeckillStockMode.MODE_DEGRADING;
+            try {
+                transit(SeckillStockMode.MODE_REDIS, sharedEpoch, SeckillStockMode.MODE_DEGRADING);
+            } catch (Exception e) {
+                log.warn("切换库存扣减模式失败，等待下次同步重试: {}", e.getMessage());
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * 获取降级扣减许可，超过并发上限时快速失败
+     * 
+     * @return 是否获取成功
+     */
+    public boolean tryAcquire() {
+        try {
+            return permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+    
+    /**
+     * 释放降级扣减许可
+     */
+    public void release() {
+        permits.release();
+    }
+    
+    /**
+     * 在同一事务中插入订单、扣减MySQL库存并写入订单超时消息
+     * 先插入订单，用户重复购买时不再争抢商品行锁；订单号冲突时换号重试；库存不足时回滚订单
+     * 
+     * @param order 订单
+     * @return 1-成功，-2-已售罄，-3-重复下单，-4-库存不足
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public Long deduct(SeckillOrder order) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                seckillOrderMapper.insert(order);
+                break;
+            } catch (DuplicateKeyException e) {
+                if (orderConflictResolver.resolve(order) != OrderConflictResolver.Conflict.ORDER_NO_COLLISION) {
+                    return -3L;
+                }
+                if (attempt >= OrderConflictResolver.MAX_RENUMBER_ATTEMPTS) {
+                    throw e;
+                }
+                log.error("订单号 {} 与其他订单冲突，重新生成订单号", order.getOrderNo());
+                orderConflictResolver.renumber(order);
+            }
+        }
+        if (seckillItemMapper.deductStock(order.getItemId(), order.getQuantity()) > 0) {
+            messageOutbox.add(MessageOutbox.ORDER_TIMEOUT_TOPIC, order.getOrderNo());
+            return 1L;
+        }
+        TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+        SeckillItem item = seckillItemMapper.selectById(order.getItemId());
+        return item != null && item.getStock() != null && item.getStock() > 0 ? -4L : -2L;
+    }
+    
+    /**
+     * 降级期间回滚MySQL库存
+     * 
+     * @param itemId 商品ID
+     * @param quantity 数量
+     */
+    public void restore(Long itemId, Integer quantity) {
+        restoreAll(Collections.singletonList(new ItemQuantity(itemId, (long) quantity)));
+    }
+    
+    /**
+     * 降级期间批量回滚MySQL库存，每个商品一条记录，一条UPDATE完成
+     * 
+     * @param quantities 各商品的回滚数量
+     */
+    public void restoreAll(List<ItemQuantity> quantities) {
+        if (!quantities.isEmpty()) {
+            seckillItemMapper.batchAdjustStock(quantities);
+        }
+    }
+    
+    /**
+     * 定时心跳并同步扣减模式：版本变化时先停止本节点的扣减并回写变化量，确认后再按新模式扣减；
+     * 同时推进集群切换，所有存活节点确认后进入下一模式
+     */
+    @Scheduled(fixedDelayString = "${seckill.stock.degrade.sync-interval-ms:500}")
+    public void sync() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        SeckillStockMode shared;
+        try {
+            seckillStockModeMapper.heartbeat(node, ackedEpoch);
+            shared = seckillStockModeMapper.selectMode();
+        } catch (Exception e) {
+            log.warn("同步库存扣减模式失败: {}", e.getMessage());
+            return;
+        }
+        if (shared == null) {
+            log.error("库存扣减模式未初始化，seckill_stock_mode缺少id=1的记录");
+            return;
+        }
+        leaseExpireAt = start + leaseMillis;
+        sharedEpoch = shared.getEpoch();
+        
+        try {
+            if (SeckillStockMode.MODE_REDIS.equals(shared.getMode()) && degradeRequested.get()) {
+                transit(SeckillStockMode.MODE_REDIS, shared.getEpoch(), SeckillStockMode.MODE_DEGRADING);
+                return;
+            }
+            if (!SeckillStockMode.MODE_REDIS.equals(shared.getMode())) {
+                degradeRequested.set(false);
+            }
+            if (shared.getEpoch() != ackedEpoch && !switchTo(shared)) {
+                return;
+            }
+            coordinate(shared);
+        } catch (Exception e) {
+            log.error("库存扣减模式切换失败: {}", e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * 本节点切换到共享模式：先停止扣减，等待进行中的Redis和MySQL扣减完成并回写变化量，确认版本后再按新模式扣减
+     * 
+     * @return 是否切换完成，未完成时保持停止扣减，下次同步重试
+     */
+    private boolean switchTo(SeckillStockMode shared) {
+        String target = shared.getMode();
+        boolean toMysql = SeckillStockMode.MODE_DEGRADING.equals(target) || SeckillStockMode.MODE_MYSQL.equals(target);
+        localMode = toMysql ? SeckillStockMode.MODE_DEGRADING : SeckillStockMode.MODE_RECOVERING;
+        if (!drain()) {
+            log.warn("等待进行中的库存扣减完成超时，稍后重试切换到{}模式", target);
+            return false;
+        }
+        if (!stockWriteBehind.flushPending()) {
+            return false;
+        }
+        seckillStockModeMapper.heartbeat(node, shared.getEpoch());
+        ackedEpoch = shared.getEpoch();
+        localMode = target;
+        log.info("本节点库存扣减模式切换为{}，版本: {}", target, shared.getEpoch());
+        return true;
+    }
+    
+    /**
+     * 等待进行中的Redis扣减、库存回滚和MySQL扣减完成
+     */
+    private boolean drain() {
+        long deadline = System.currentTimeMillis() + drainTimeoutMillis;
+        try {
+            while (redisInFlight.sum() > 0 || restoreInFlight.sum() > 0) {
+                if (System.currentTimeMillis() >= deadline) {
+                    return false;
+                }
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+            long remaining = Math.max(deadline - System.currentTimeMillis(), 0);
+            if (!permits.tryAcquire(maxConcurrent, remaining, TimeUnit.MILLISECONDS)) {
+                return false;
+            }
+            permits.release(maxConcurrent);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+    
+    /**
+     * 推进集群切换：全部存活节点确认后进入下一模式，MySQL模式下Redis连续多次可用后开始恢复
+     */
+    private void coordinate(SeckillStockMode shared) {
+        switch (shared.getMode()) {
+            case SeckillStockMode.MODE_DEGRADING:
+                if (seckillStockModeMapper.countLagging(shared.getEpoch(), nodeTimeoutSeconds) == 0
+                    && transit(SeckillStockMode.MODE_DEGRADING, shared.getEpoch(), SeckillStockMode.MODE_MYSQL)) {
+                    log.error("全部节点已停止Redis扣减并回写库存，库存扣减切换为MySQL降级模式");
+                }
+                break;
+            case SeckillStockMode.MODE_MYSQL:
+                checkHealth(shared);
+                break;
+            case SeckillStockMode.MODE_RECOVERING:
+                if (seckillStockModeMapper.countLagging(shared.getEpoch(), nodeTimeoutSeconds) == 0) {
+                    reseed(shared);
+                }
+                break;
+            default:
+                healthyChecks = 0;
+                break;
+        }
+    }
+    
+    /**
+     * 降级期间检查Redis，连续通过后开始恢复
+     */
+    private void checkHealth(SeckillStockMode shared) {
+        try {
+            stringRedisTemplate.execute((RedisCallback<String>) RedisConnection::ping);
+        } catch (Exception e) {
+            healthyChecks = 0;
+            log.debug("Redis健康检查未通过: {}", e.getMessage());
+            return;
+        }
+        if (++healthyChecks >= recoverThreshold) {
+            healthyChecks = 0;
+            if (transit(SeckillStockMode.MODE_MYSQL, shared.getEpoch(), SeckillStockMode.MODE_RECOVERING)) {
+                log.info("Redis已恢复，开始停止MySQL扣减");
+            }
+        }
+    }
+    
+    /**
+     * 全部节点停止扣减后认领回灌，以MySQL库存覆盖Redis库存后切回Redis扣减；
+     * 回灌以认领序号为栅栏，认领超时被其他节点接管后本节点的写入不再生效，失败时退回MySQL扣减
+     */
+    private void reseed(SeckillStockMode shared) {
+        if (seckillStockModeMapper.claimReseed(shared.getEpoch(), node, reseedTimeoutSeconds) == 0) {
+            return;
+        }
+        SeckillStockMode claimed = seckillStockModeMapper.selectMode();
+        if (claimed == null || !node.equals(claimed.getClaimOwner()) || !shared.getEpoch().equals(claimed.getEpoch())) {
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            int total = 0;
+            long afterId = 0;
+            while (true) {
+                List<SeckillItem> batch = seckillItemMapper.selectActiveAfterId(afterId, reseedBatchSize);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                afterId = batch.get(batch.size() - 1).getId();
+                List<SeckillItem> items = new ArrayList<>(batch.size());
+                for (SeckillItem item : batch) {
+                    if (item.getEndTime() == null || !item.getEndTime().isBefore(now)) {
+                        items.add(item);
+                    }
+                }
+                // 每批续期认领，回灌时间较长时不被其他节点接管
+                if (seckillStockModeMapper.renewReseed(shared.getEpoch(), node) == 0
+                    || !redisStockManager.reseed(items, claimed.getClaimSeq())) {
+                    log.warn("库存回灌已被其他节点接管，认领序号: {}", claimed.getClaimSeq());
+                    return;
+                }
+                total += items.size();
+                if (batch.size() < reseedBatchSize) {
+                    break;
+                }
+            }
+            if (seckillStockModeMapper.finishReseed(shared.getEpoch(), node) > 0) {
+                log.info("库存回灌完成，商品数: {}，库存扣减切回Redis", total);
+            }
+        } catch (Exception e) {
+            log.error("回灌Redis库存失败，退回MySQL扣减: {}", e.getMessage(), e);
+            transit(SeckillStockMode.MODE_RECOVERING, shared.getEpoch(), SeckillStockMode.MODE_MYSQL);
+        }
+    }
+    
+    /**
+     * 按版本切换共享模式
+     * 
+     * @return 是否切换成功，false表示模式已被其他节点切换
+     */
+    private boolean transit(String from, long epoch, String to) {
+        return seckillStockModeMapper.transit(from, epoch, to) > 0;
+    }
+    
+    private boolean leaseValid() {
+        return !enabled || System.currentTimeMillis() < leaseExpireAt;
+    }
+    
+    /**
+     * 判断异常是否由Redis连接失败或超时引起
+     */
+    private static boolean isRedisUnavailable(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DataAccessResourceFailureException || cause instanceof QueryTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,381 @@
+package com.ecommerce.seckill.stock;
+
+import com.ecommerce.seckill.entity.SeckillItem;
+import com.ecommerce.seckill.entity.SeckillOrder;
+import com.ecommerce.seckill.script.RedisScriptRegistry;
+import com.ecommerce.seckill.script.SeckillScript;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Redis库存管理
+ * 热点商品可将库存拆分到多个分桶key，分散到不同的Redis分片和CPU核心；
+ * 用户按ID哈希路由到首选分桶，分桶售罄时依次探测其余分桶
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+@Component
+public class RedisStockManager {
+    
+    /**
+     * 库存key前缀
+     */
+    public static final String STOCK_KEY_PREFIX = "seckill:stock:";
+    
+    /**
+     * 库存回灌栅栏key，保存最近一次回灌的认领序号
+     */
+    private static final String RESEED_FENCE_KEY = "seckill:stock-reseed:fence";
+    
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+    
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    
+    @Autowired
+    private RedisScriptRegistry redisScriptRegistry;
+    
+    @Autowired
+    private StockDeductBatcher stockDeductBatcher;
+    
+    @Autowired
+    private BuyerDedup buyerDedup;
+    
+    @Autowired
+    private StockWriteBehind stockWriteBehind;
+    
+    /**
+     * 是否合并同一商品的并发扣减请求（仅对未分桶商品生效）
+     */
+    @Value("${seckill.stock.batch.enabled:false}")
+    private Boolean batchEnabled;
+    
+    /**
+     * 扣减库存并防止重复下单
+     * 
+     * @param itemId 商品ID
+     * @param userId 用户ID
+     * @param quantity 购买数量
+     * @param buckets 分桶数
+     * @return 1-成功，-1-商品不存在，-2-已售罄，-3-重复下单，-4-库存不足
+     */
+    public Long deduct(Long itemId, Long userId, Integer quantity, int buckets) {
+        Long result = doDeduct(itemId, userId, quantity, buckets);
+        if (result != null && result == 1) {
+            // 扣减结果异步回写MySQL
+            stockWriteBehind.record(itemId, -quantity);
+        }
+        return result;
+    }
+    
+    private Long doDeduct(Long itemId, Long userId, Integer quantity, int buckets) {
+        if (buckets <= 1) {
+            if (batchEnabled) {
+                // 并发请求合并为一次批量脚本调用
+                return stockDeductBatcher.deduct(itemId, userId, quantity);
+            }
+            List<Object> args = new ArrayList<>();
+            args.add(userId);
+            args.add(quantity);
+            args.add(buyerDedup.scriptMode());
+            args.addAll(buyerDedup.offsets(userId));
+            return redisScriptRegistry.execute(SeckillScript.STOCK,
+                Arrays.asList(STOCK_KEY_PREFIX + itemId, BuyerDedup.buyerKey(itemId)),
+                args.toArray());
+        }
+        
+        // 从首选分桶开始探测，每个分桶的检查与扣减在脚本内原子完成，不会超卖
+        int home = homeBucket(userId, buckets);
+        boolean missing = true;
+        boolean insufficient = false;
+        for (int i = 0; i < buckets; i++) {
+            int bucket = (home + i) % buckets;
+            String key = bucketKey(itemId, bucket);
+            Long result = redisScriptRegistry.execute(SeckillScript.STOCK_BUCKET, Collections.singletonList(key), quantity);
+            if (result != null && result >= 0) {
+                // 各分桶可能位于不同分片，扣减成功后再单独登记购买用户，未扣到库存的请求不留下登记
+                // （布隆过滤器模式无法撤销登记）；已登记时归还刚扣减的库存
+                boolean marked;
+                try {
+                    marked = buyerDedup.mark(itemId, userId);
+                } catch (RuntimeException e) {
+                    redisTemplate.opsForValue().increment(key, quantity);
+                    throw e;
+                }
+                if (!marked) {
+                    redisTemplate.opsForValue().increment(key, quantity);
+                    return -3L;
+                }
+                return 1L;
+            }
+            if (result != null && result != -1) {
+                missing = false;
+                insufficient |= result == -4;
+            }
+        }
+        
+        if (missing) {
+            return -1L;
+        }
+        // 存在剩余库存但单个分桶不足购买数量时返回库存不足，不标记售罄
+        return insufficient ? -4L : -2L;
+    }
+    
+    /**
+     * 回滚库存，分桶模式下归还到用户的首选分桶
+     * 
+     * @param itemId 商品ID
+     * @param userId 用户ID
+     * @param quantity 数量
+     * @param buckets 分桶数
+     */
+    public void restore(Long itemId, Long userId, Integer quantity, int buckets) {
+        String key = buckets <= 1 ? STOCK_KEY_PREFIX + itemId : bucketKey(itemId, homeBucket(userId, buckets));
+        redisTemplate.opsForValue().increment(key, quantity);
+        stockWriteBehind.record(itemId, quantity);
+    }
+    
+    /**
+     * 批量回滚一批订单的库存：按库存key汇总数量，每个key一条INCRBY，在一次管道写出中发送
+     * 
+     * @param orders 订单列表
+     * @param buckets 商品ID到分桶数的映射
+     */
+    public void restoreAll(List<SeckillOrder> orders, ToIntFunction<Long> buckets) {
+        Map<String, Long> byKey = new LinkedHashMap<>();
+        Map<Long, Long> byItem = new LinkedHashMap<>();
+        for (SeckillOrder order : orders) {
+            int itemBuckets = buckets.applyAsInt(order.getItemId());
+            String key = itemBuckets <= 1 ? STOCK_KEY_PREFIX + order.getItemId()
+                : bucketKey(order.getItemId(), homeBucket(order.getUserId(), itemBuckets));
+            byKey.merge(key, (long) order.getQuantity(), Long::sum);
+            byItem.merge(order.getItemId(), (long) order.getQuantity(), Long::sum);
+        }
+        if (byKey.isEmpty()) {
+            return;
+        }
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Map.Entry<String, Long> entry : byKey.entrySet()) {
+                connection.stringCommands().incrBy(bytes(entry.getKey()), entry.getValue());
+            }
+            return null;
+        });
+        byItem.forEach(stockWriteBehind::record);
+    }
+    
+    /**
+     * 回滚库存并撤销购买用户登记，两条命令在一次管道写出中发送
+     * 
+     * @param itemId 商品ID
+     * @param userId 用户ID
+     * @param quantity 数量
+     * @param buckets 分桶数
+     */
+    public void release(Long itemId, Long userId, Integer quantity, int buckets) {
+        byte[] stockKey = bytes(buckets <= 1 ? STOCK_KEY_PREFIX + itemId : bucketKey(itemId, homeBucket(userId, buckets)));
+        redisScriptRegistry.executePipelined(pipeline -> {
+            pipeline.command(connection -> connection.stringCommands().incrBy(stockKey, quantity));
+            if (buyerDedup.supportsUnmark()) {
+                pipeline.command(connection -> buyerDedup.unmark(connection, itemId, userId));
+            }
+        });
+        stockWriteBehind.record(itemId, quantity);
+    }
+    
+    /**
+     * 查询剩余库存，分桶模式下汇总所有分桶
+     * 
+     * @param itemId 商品ID
+     * @param buckets 分桶数
+     * @return 剩余库存，未加载时返回null
+     */
+    public Integer getStock(Long itemId, int buckets) {
+        if (buckets <= 1) {
+            String stock = stringRedisTemplate.opsForValue().get(STOCK_KEY_PREFIX + itemId);
+            return stock != null ? Integer.valueOf(stock) : null;
+        }
+        List<String> keys = new ArrayList<>(buckets);
+        for (int i = 0; i < buckets; i++) {
+            keys.add(bucketKey(itemId, i));
+        }
+        List<String> values = stringRedisTemplate.opsForValue().multiGet(keys);
+        if (values == null) {
+            return null;
+        }
+        Integer total = null;
+        for (String value : values) {
+            if (value != null) {
+                total = (total == null ? 0 : total) + Integer.parseInt(value);
+            }
+        }
+        return total;
+    }
+    
+    /**
+     * 批量查询剩余库存，所有商品（含全部分桶）的库存key以一条MGET读取
+     * 
+     * @param itemIds 商品ID列表
+     * @param buckets 商品ID到分桶数的映射
+     * @return 商品ID到剩余库存的映射，未加载的商品不返回
+     */
+    public Map<Long, Integer> getStocks(List<Long> itemIds, ToIntFunction<Long> buckets) {
+        Map<Long, Integer> stocks = new HashMap<>(itemIds.size() * 2);
+        if (itemIds.isEmpty()) {
+            return stocks;
+        }
+        List<String> keys = new ArrayList<>(itemIds.size());
+        int[] bucketCounts = new int[itemIds.size()];
+        for (int i = 0; i < itemIds.size(); i++) {
+            bucketCounts[i] = Math.max(1, buckets.applyAsInt(itemIds.get(i)));
+            if (bucketCounts[i] == 1) {
+                keys.add(STOCK_KEY_PREFIX + itemIds.get(i));
+                continue;
+            }
+            for (int bucket = 0; bucket < bucketCounts[i]; bucket++) {
+                keys.add(bucketKey(itemIds.get(i), bucket));
+            }
+        }
+        List<String> values = stringRedisTemplate.opsForValue().multiGet(keys);
+        if (values == null) {
+            return stocks;
+        }
+        int offset = 0;
+        for (int i = 0; i < itemIds.size(); i++) {
+            Integer total = null;
+            for (int bucket = 0; bucket < bucketCounts[i]; bucket++) {
+                String value = values.get(offset++);
+                if (value != null) {
+                    total = (total == null ? 0 : total) + Integer.parseInt(value);
+                }
+            }
+            if (total != null) {
+                stocks.put(itemIds.get(i), total);
+            }
+        }
+        return stocks;
+    }
+    
+    /**
+     * 批量加载库存，仅在key不存在时写入，避免覆盖进行中活动的剩余库存
+     * 分桶模式下总库存均分到各分桶，余数分配给前几个分桶
+     * 
+     * @param items 商品列表
+     */
+    public void load(List<SeckillItem> items) {
+        write(items);
+    }
+    
+    /**
+     * 以MySQL库存覆盖Redis库存（全集群停止扣减后，由认领回灌的节点在恢复Redis扣减前调用）
+     * 先推进栅栏再逐个商品写入，认领超时被其他节点接管后，本节点剩余的写入不再生效
+     * 
+     * @param items 商品列表
+     * @param token 回灌认领序号
+     * @return 是否全部写入，false表示已有更新的回灌
+     */
+    public boolean reseed(List<SeckillItem> items, long token) {
+        Long fenced = redisScriptRegistry.execute(SeckillScript.STOCK_RESEED, Collections.singletonList(RESEED_FENCE_KEY), token);
+        if (fenced == null || fenced != 1L) {
+            return false;
+        }
+        List<Object> results = redisScriptRegistry.executePipelined(pipeline -> {
+            for (SeckillItem item : items) {
+                List<String> keys = new ArrayList<>();
+                List<Object> args = new ArrayList<>();
+                keys.add(RESEED_FENCE_KEY);
+                args.add(token);
+                forEachShare(item, (key, stock) -> {
+                    keys.add(key);
+                    args.add(stock);
+                });
+                pipeline.script(SeckillScript.STOCK_RESEED, keys, args.toArray());
+            }
+        });
+        for (Object result : results) {
+            if (!Long.valueOf(1L).equals(result)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * 以增量修正库存，分桶模式下修正量分摊到所有分桶，不覆盖修正期间发生的扣减
+     * 
+     * @param itemId 商品ID
+     * @param buckets 分桶数
+     * @param delta 修正量，正数增加库存，负数减少库存
+     * @return 实际修正量，减少库存时各分桶不会小于0
+     */
+    public long adjust(Long itemId, int buckets, long delta) {
+        List<String> keys = new ArrayList<>(Math.max(buckets, 1));
+        if (buckets <= 1) {
+            keys.add(STOCK_KEY_PREFIX + itemId);
+        } else {
+            for (int i = 0; i < buckets; i++) {
+                keys.add(bucketKey(itemId, i));
+            }
+        }
+        Long applied = redisScriptRegistry.execute(SeckillScript.STOCK_ADJUST, keys, delta);
+        return applied != null ? applied : 0L;
+    }
+    
+    /**
+     * 分桶库存key
+     */
+    public static String bucketKey(Long itemId, int bucket) {
+        return STOCK_KEY_PREFIX + itemId + ":" + bucket;
+    }
+    
+    private void write(List<SeckillItem> items) {
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (SeckillItem item : items) {
+                forEachShare(item, (key, stock) -> connection.stringCommands().setNX(bytes(key), bytes(String.valueOf(stock))));
+            }
+            return null;
+        });
+    }
+    
+    /**
+     * 遍历商品的库存key及其库存，分桶模式下总库存均分到各分桶，余数分配给前几个分桶
+     */
+    private static void forEachShare(SeckillItem item, BiConsumer<String, Integer> consumer) {
+        int stock = item.getStock() != null ? item.getStock() : 0;
+        int buckets = item.getStockBuckets() != null && item.getStockBuckets() > 1 ? item.getStockBuckets() : 1;
+        if (buckets == 1) {
+            consumer.accept(STOCK_KEY_PREFIX + item.getId(), stock);
+            return;
+        }
+        for (int i = 0; i < buckets; i++) {
+            consumer.accept(bucketKey(item.getId(), i), stock / buckets + (i < stock % buckets ? 1 : 0));
+        }
+    }
+    
+    /**
+     * 用户的首选分桶
+     */
+    private static int homeBucket(Long userId, int buckets) {
+        return (int) Math.floorMod(userId * 0x9E3779B97F4A7C15L >>> 32, (long) buckets);
+    }
+    
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,204 @@
+package com.ecommerce.seckill.stock;
+
+import com.ecommerce.seckill.script.RedisScriptRegistry;
+import com.ecommerce.seckill.script.SeckillScript;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 库存扣减请求合并器
+ * 同一商品的并发购买请求在极短的时间窗口内合并，由第一个到达的请求线程执行一次批量扣减脚本，
+ * 脚本按入队顺序逐个判定并返回每个请求的结果，再分发给各等待线程
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class StockDeductBatcher {
+    
+    @Autowired
+    private RedisScriptRegistry redisScriptRegistry;
+    
+    @Autowired
+    private BuyerDedup buyerDedup;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    /**
+     * 合并时间窗口（微秒）
+     */
+    @Value("${seckill.stock.batch.window-micros:500}")
+    private Long windowMicros;
+    
+    /**
+     * 单次脚本调用最多判定的请求数
+     */
+    @Value("${seckill.stock.batch.max-size:64}")
+    private Integer maxSize;
+    
+    /**
+     * 各商品的等待队列
+     */
+    private final Map<Long, ItemQueue> queues = new ConcurrentHashMap<>();
+    
+    private DistributionSummary batchSizeSummary;
+    
+    @PostConstruct
+    public void init() {
+        batchSizeSummary = DistributionSummary.builder("seckill.stock.batch.size")
+            .description("每次批量扣减脚本判定的请求数")
+            .register(meterRegistry);
+        log.info("库存扣减请求合并器初始化完成，时间窗口: {}us, 批量上限: {}", windowMicros, maxSize);
+    }
+    
+    /**
+     * 提交扣减请求并等待结果
+     * 
+     * @param itemId 商品ID
+     * @param userId 用户ID
+     * @param quantity 购买数量
+     * @return 结果码，取值同{@link RedisStockManager#deduct}
+     */
+    public Long deduct(Long itemId, Long userId, Integer quantity) {
+        // 在调用线程上计算位偏移，非法用户ID只使本请求失败，不影响同批其他请求
+        List<Long> offsets = buyerDedup.offsets(userId);
+        ItemQueue queue = queues.computeIfAbsent(itemId, ItemQueue::new);
+        PendingDeduct pending = new PendingDeduct(userId, quantity, offsets);
+        queue.pending.offer(pending);
+        
+        // 空闲时抢到执行权的线程等待一个时间窗口后刷出一批；其余线程等待结果，
+        // 超过一个窗口仍未完成则尝试接手，不依赖某个线程持续刷出队列
+        long windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+        boolean interrupted = false;
+        while (!pending.future.isDone()) {
+            if (queue.flushing.compareAndSet(false, true)) {
+                try {
+                    LockSupport.parkNanos(windowNanos);
+                    flush(queue);
+                } finally {
+                    queue.flushing.set(false);
+                }
+            } else {
+                try {
+                    pending.future.get(windowNanos, TimeUnit.NANOSECONDS);
+                } catch (TimeoutException | ExecutionException ignored) {
+                    // 未完成时继续尝试接手，异常结果由下方join抛出
+                } catch (InterruptedException e) {
+                    // 扣减结果决定是否已占用库存，必须等到结果，中断标记在返回前恢复
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        
+        try {
+            return pending.future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+    
+    /**
+     * 取出一批请求执行批量扣减脚本
+     */
+    private void flush(ItemQueue queue) {
+        List<PendingDeduct> batch = new ArrayList<>(maxSize);
+        PendingDeduct next;
+        while (batch.size() < maxSize && (next = queue.pending.poll()) != null) {
+            batch.add(next);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        
+        List<String> keys = Arrays.asList(RedisStockManager.STOCK_KEY_PREFIX + queue.itemId, BuyerDedup.buyerKey(queue.itemId));
+        int bitCount = buyerDedup.bitCount();
+        try {
+            List<Object> args = new ArrayList<>(2 + batch.size() * (2 + bitCount));
+            args.add(buyerDedup.scriptMode());
+            args.add(bitCount);
+            for (PendingDeduct pending : batch) {
+                args.add(pending.userId);
+                args.add(pending.quantity);
+                args.addAll(pending.offsets);
+            }
+            List<Object> results = redisScriptRegistry.execute(SeckillScript.STOCK_BATCH, keys, args.toArray());
+            batchSizeSummary.record(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                Object result = results != null && i < results.size() ? results.get(i) : null;
+                batch.get(i).future.complete(result != null ? ((Number) result).longValue() : null);
+            }
+        } catch (Exception e) {
+            log.error("批量扣减库存失败，商品ID: {}, 请求数: {}, 错误: {}", queue.itemId, batch.size(), e.getMessage());
+            for (PendingDeduct pending : batch) {
+                pending.future.completeExceptionally(e);
+            }
+        }
+    }
+    
+    /**
+     * 单个商品的等待队列
+     */
+    private static final class ItemQueue {
+        
+        private final Long itemId;
+        
+        private final Queue<PendingDeduct> pending = new ConcurrentLinkedQueue<>();
+        
+        /**
+         * 是否已有线程在执行批量扣减
+         */
+        private final AtomicBoolean flushing = new AtomicBoolean();
+        
+        private ItemQueue(Long itemId) {
+            this.itemId = itemId;
+        }
+    }
+    
+    /**
+     * 等待扣减的请求
+     */
+    private static final class PendingDeduct {
+        
+        private final Long userId;
+        
+        private final Integer quantity;
+        
+        /**
+         * 购买用户登记的位偏移
+         */
+        private final List<Long> offsets;
+        
+        private final CompletableFuture<Long> future = new CompletableFuture<>();
+        
+        private PendingDeduct(Long userId, Integer quantity, List<Long> offsets) {
+            this.userId = userId;
+            this.quantity = quantity;
+            this.offsets = offsets;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,210 @@
+package com.ecommerce.seckill.stock;
+
+import com.ecommerce.seckill.dao.SeckillItemMapper;
+import com.ecommerce.seckill.dao.SeckillOrderMapper;
+import com.ecommerce.seckill.entity.SeckillItem;
+import com.ecommerce.seckill.vo.ItemQuantity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 库存对账
+ * 定时比较近期活动的Redis库存、seckill_item库存和未取消订单的购买数量，
+ * 以“总库存 - 已购买数量”为基准发现偏差；偏差在连续两次对账中保持不变才视为真实偏差
+ * （排除异步回写、异步下单造成的短暂差异），按配置仅告警或自动修复。
+ * 上一轮的偏差保存在Redis中，下一轮由任一节点对账时都能与之比较
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class StockReconciler {
+    
+    /**
+     * 对账锁key，同一轮只有一个节点对账，避免多个节点重复修复
+     */
+    private static final String RECONCILE_LOCK_KEY = "seckill:stock:reconcile:lock";
+    
+    /**
+     * 上一轮对账偏差key，hash结构：“商品ID:来源” -> 偏差
+     */
+    private static final String DRIFTS_KEY = "seckill:stock:reconcile:drifts";
+    
+    @Autowired
+    private SeckillItemMapper seckillItemMapper;
+    
+    @Autowired
+    private SeckillOrderMapper seckillOrderMapper;
+    
+    @Autowired
+    private RedisStockManager redisStockManager;
+    
+    @Autowired
+    private StockWriteBehind stockWriteBehind;
+    
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    /**
+     * 对账范围：开始时间在该时长内的活动（小时）
+     */
+    @Value("${seckill.stock.reconcile.lookback-hours:24}")
+    private Integer lookbackHours;
+    
+    /**
+     * 是否自动修复偏差，关闭时只告警
+     */
+    @Value("${seckill.stock.reconcile.repair:false}")
+    private Boolean repair;
+    
+    /**
+     * 对账间隔（毫秒）
+     */
+    @Value("${seckill.stock.reconcile.interval-ms:300000}")
+    private Long intervalMillis;
+    
+    private Counter redisDriftCounter;
+    
+    private Counter mysqlDriftCounter;
+    
+    @PostConstruct
+    public void init() {
+        redisDriftCounter = driftCounter("redis");
+        mysqlDriftCounter = driftCounter("mysql");
+    }
+    
+    /**
+     * 定时对账
+     */
+    @Scheduled(fixedDelayString = "${seckill.stock.reconcile.interval-ms:300000}", initialDelayString = "${seckill.stock.reconcile.interval-ms:300000}")
+    public void reconcile() {
+        try {
+            // 锁到期前其他节点跳过本轮
+            Boolean locked = stringRedisTemplate.opsForValue()
+                .setIfAbsent(RECONCILE_LOCK_KEY, "1", intervalMillis / 2, TimeUnit.MILLISECONDS);
+            if (!Boolean.TRUE.equals(locked)) {
+                return;
+            }
+            LocalDateTime now = LocalDateTime.now();
+            List<SeckillItem> items = seckillItemMapper.selectStartingBetween(now.minusHours(lookbackHours), now);
+            if (items.isEmpty()) {
+                stringRedisTemplate.delete(DRIFTS_KEY);
+                return;
+            }
+            Map<String, Long> lastDrifts = loadDrifts();
+            // 先回写本节点的变化量，缩小MySQL与Redis的差异
+            stockWriteBehind.flush();
+            
+            List<Long> itemIds = new ArrayList<>(items.size());
+            for (SeckillItem item : items) {
+                itemIds.add(item.getId());
+            }
+            Map<Long, Long> sold = new HashMap<>();
+            for (ItemQuantity quantity : seckillOrderMapper.sumQuantityByItemIds(itemIds)) {
+                sold.put(quantity.getItemId(), quantity.getQuantity());
+            }
+            
+            Map<String, Long> drifts = new HashMap<>();
+            for (SeckillItem item : items) {
+                // 重新读取，包含刚刚回写的变化量
+                SeckillItem current = seckillItemMapper.selectById(item.getId());
+                if (current == null || current.getTotalStock() == null) {
+                    continue;
+                }
+                reconcileItem(current, sold.getOrDefault(current.getId(), 0L), lastDrifts, drifts);
+            }
+            saveDrifts(drifts);
+        } catch (Exception e) {
+            log.error("库存对账失败: {}", e.getMessage(), e);
+        }
+    }
+    
+    private void reconcileItem(SeckillItem item, long sold, Map<String, Long> lastDrifts, Map<String, Long> drifts) {
+        Long itemId = item.getId();
+        long expected = item.getTotalStock() - sold;
+        int buckets = item.getStockBuckets() != null && item.getStockBuckets() > 1 ? item.getStockBuckets() : 1;
+        
+        long mysqlDrift = item.getStock() - expected;
+        if (mysqlDrift != 0) {
+            String key = itemId + ":mysql";
+            drifts.put(key, mysqlDrift);
+            if (Long.valueOf(mysqlDrift).equals(lastDrifts.get(key))) {
+                mysqlDriftCounter.increment();
+                log.warn("库存对账：MySQL库存偏差，商品ID: {}, MySQL库存: {}, 总库存: {}, 已购买: {}, 偏差: {}",
+                    itemId, item.getStock(), item.getTotalStock(), sold, mysqlDrift);
+                if (repair && seckillItemMapper.updateStockIfMatch(itemId, item.getStock(), (int) expected) > 0) {
+                    log.info("库存对账：已修复MySQL库存，商品ID: {}, {} -> {}", itemId, item.getStock(), expected);
+                }
+            }
+        }
+        
+        Integer redisStock = redisStockManager.getStock(itemId, buckets);
+        if (redisStock == null) {
+            return;
+        }
+        long redisDrift = redisStock - expected;
+        if (redisDrift != 0) {
+            String key = itemId + ":redis";
+            drifts.put(key, redisDrift);
+            if (Long.valueOf(redisDrift).equals(lastDrifts.get(key))) {
+                redisDriftCounter.increment();
+                log.warn("库存对账：Redis库存偏差，商品ID: {}, Redis库存: {}, 总库存: {}, 已购买: {}, 偏差: {}",
+                    itemId, redisStock, item.getTotalStock(), sold, redisDrift);
+                if (repair) {
+                    // 以增量修正并分摊到所有分桶，不覆盖对账期间发生的扣减
+                    long applied = redisStockManager.adjust(itemId, buckets, -redisDrift);
+                    log.info("库存对账：已修复Redis库存，商品ID: {}, 修正量: {}, 实际修正量: {}", itemId, -redisDrift, applied);
+                }
+            }
+        }
+    }
+    
+    /**
+     * 读取上一轮对账的偏差
+     */
+    private Map<String, Long> loadDrifts() {
+        Map<String, Long> drifts = new HashMap<>();
+        stringRedisTemplate.<String, String>opsForHash().entries(DRIFTS_KEY)
+            .forEach((key, drift) -> drifts.put(key, Long.valueOf(drift)));
+        return drifts;
+    }
+    
+    /**
+     * 保存本轮对账的偏差，超过两个对账间隔未更新时过期，避免与过久之前的偏差比较
+     */
+    private void saveDrifts(Map<String, Long> drifts) {
+        stringRedisTemplate.delete(DRIFTS_KEY);
+        if (drifts.isEmpty()) {
+            return;
+        }
+        Map<String, String> values = new HashMap<>(drifts.size() * 2);
+        drifts.forEach((key, drift) -> values.put(key, String.valueOf(drift)));
+        stringRedisTemplate.opsForHash().putAll(DRIFTS_KEY, values);
+        stringRedisTemplate.expire(DRIFTS_KEY, intervalMillis * 2, TimeUnit.MILLISECONDS);
+    }
+    
+    private Counter driftCounter(String source) {
+        return Counter.builder("seckill.stock.reconcile.drift")
+            .description("对账确认的库存偏差次数")
+            .tag("source", source)
+            .register(meterRegistry);
+    }
+}
\ No newline at end of file
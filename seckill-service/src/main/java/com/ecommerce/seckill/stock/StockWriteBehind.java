@@ -0,0 +1,103 @@
+package com.ecommerce.seckill.stock;
+
+import com.ecommerce.seckill.dao.SeckillItemMapper;
+import com.ecommerce.seckill.vo.ItemQuantity;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 库存异步回写
+ * Redis扣减或回滚库存后只在本地累加各商品的变化量，定时合并为一条UPDATE写回seckill_item，
+ * 购买链路不访问MySQL；多个节点各自回写增量，互不覆盖
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class StockWriteBehind {
+    
+    @Autowired
+    private SeckillItemMapper seckillItemMapper;
+    
+    /**
+     * 各商品尚未回写的库存变化量
+     */
+    private final Map<Long, LongAdder> deltas = new ConcurrentHashMap<>();
+    
+    /**
+     * 记录库存变化
+     * 
+     * @param itemId 商品ID
+     * @param delta 变化量，扣减为负数
+     */
+    public void record(Long itemId, long delta) {
+        deltas.computeIfAbsent(itemId, id -> new LongAdder()).add(delta);
+    }
+    
+    /**
+     * 本节点尚未回写的库存变化量
+     * 
+     * @param itemId 商品ID
+     * @return 变化量
+     */
+    public long pending(Long itemId) {
+        LongAdder adder = deltas.get(itemId);
+        return adder != null ? adder.sum() : 0;
+    }
+    
+    /**
+     * 定时回写，失败时变化量退回本地等待下次回写
+     */
+    @Scheduled(fixedDelayString = "${seckill.stock.write-behind.flush-interval-ms:1000}")
+    public void flush() {
+        flushPending();
+    }
+    
+    /**
+     * 立即回写当前变化量
+     * 
+     * @return 是否回写成功，失败时变化量已退回本地
+     */
+    public boolean flushPending() {
+        List<ItemQuantity> batch = new ArrayList<>();
+        for (Map.Entry<Long, LongAdder> entry : deltas.entrySet()) {
+            long delta = entry.getValue().sumThenReset();
+            if (delta != 0) {
+                batch.add(new ItemQuantity(entry.getKey(), delta));
+            }
+        }
+        if (batch.isEmpty()) {
+            return true;
+        }
+        
+        try {
+            seckillItemMapper.batchAdjustStock(batch);
+            log.debug("库存回写完成，商品数: {}", batch.size());
+            return true;
+        } catch (Exception e) {
+            for (ItemQuantity delta : batch) {
+                record(delta.getItemId(), delta.getQuantity());
+            }
+            log.error("库存回写失败，商品数: {}, 错误: {}", batch.size(), e.getMessage(), e);
+            return false;
+        }
+    }
+    
+    /**
+     * 停机前回写剩余变化量
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
\ No newline at end of file
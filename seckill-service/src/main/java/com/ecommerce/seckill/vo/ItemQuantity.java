@@ -0,0 +1,27 @@
+package com.ecommerce.seckill.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 商品数量（库存变化量或购买数量）
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItemQuantity {
+    
+    /**
+     * 秒杀商品ID
+     */
+    private Long itemId;
+    
+    /**
+     * 数量
+     */
+    private Long quantity;
+}
\ No newline at end of file
@@ -0,0 +1,66 @@
+package com.ecommerce.seckill.vo;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 秒杀活动预热状态
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+@Data
+public class PreheatStatus {
+    
+    /**
+     * 秒杀商品ID
+     */
+    private Long itemId;
+    
+    /**
+     * 秒杀开始时间
+     */
+    private LocalDateTime startTime;
+    
+    /**
+     * Redis库存是否已加载
+     */
+    private Boolean stockLoaded;
+    
+    /**
+     * Redis当前库存
+     */
+    private Integer redisStock;
+    
+    /**
+     * 当前节点商品缓存是否已预热
+     */
+    private Boolean cacheWarmed;
+    
+    /**
+     * Lua脚本是否已在Redis中缓存
+     */
+    private Boolean scriptLoaded;
+    
+    /**
+     * 已完成预热的节点
+     */
+    private List<String> readyNodes;
+    
+    /**
+     * 存活节点
+     */
+    private List<String> liveNodes;
+    
+    /**
+     * 存活但尚未完成预热的节点
+     */
+    private List<String> missingNodes;
+    
+    /**
+     * 是否所有存活节点均已就绪
+     */
+    private Boolean ready;
+}
\ No newline at end of file
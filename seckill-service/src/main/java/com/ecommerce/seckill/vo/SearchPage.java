@@ -0,0 +1,30 @@
+package com.ecommerce.seckill.vo;
+
+import com.ecommerce.seckill.entity.SeckillItem;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 秒杀商品搜索结果页
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchPage {
+    
+    /**
+     * 本页商品（仅列表展示字段）
+     */
+    private List<SeckillItem> items;
+    
+    /**
+     * 下一页游标，没有下一页时为null
+     */
+    private String nextCursor;
+}
\ No newline at end of file
@@ -0,0 +1,24 @@
+-- 登记购买用户Lua脚本，用于分桶商品在扣减分桶库存前单独防重
+-- 参数：KEYS[1] = 商品购买用户key
+-- 参数：ARGV[1] = 防重模式（set/bit）, ARGV[2] = 用户ID, ARGV[3...] = bit模式下的位偏移
+-- 返回：1-登记成功，0-用户已购买
+
+if ARGV[1] == 'set' then
+    return redis.call('SADD', KEYS[1], ARGV[2])
+end
+
+-- 所有位均已置位视为已购买，否则全部置位
+local bought = true
+for i = 3, #ARGV do
+    if redis.call('GETBIT', KEYS[1], ARGV[i]) == 0 then
+        bought = false
+        break
+    end
+end
+if bought then
+    return 0
+end
+for i = 3, #ARGV do
+    redis.call('SETBIT', KEYS[1], ARGV[i], 1)
+end
+return 1
@@ -0,0 +1,16 @@
+-- 认领到期订单Lua脚本，多个节点同时触发同一订单时只有一个节点认领成功
+-- 认领不移除订单，而是将score推后为认领租约到期时间，取消订单提交后再移除；认领节点宕机时租约到期后由扫描重新触发
+-- 参数：KEYS[1] = 订单到期时间有序集合key
+-- 参数：ARGV[1] = 可认领的最晚到期时间, ARGV[2] = 认领租约到期时间, ARGV[3...] = 订单号
+-- 返回：本次认领成功的订单号数组
+
+local claimed = {}
+local deadline = tonumber(ARGV[1])
+for i = 3, #ARGV do
+    local score = redis.call('ZSCORE', KEYS[1], ARGV[i])
+    if score and tonumber(score) <= deadline then
+        redis.call('ZADD', KEYS[1], 'XX', ARGV[2], ARGV[i])
+        claimed[#claimed + 1] = ARGV[i]
+    end
+end
+return claimed
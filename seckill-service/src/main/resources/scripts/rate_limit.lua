@@ -0,0 +1,31 @@
+-- 滑动窗口限流计数Lua脚本
+-- 窗口被划分为若干时间片，每个时间片的计数保存在hash的一个field中
+-- 参数：KEYS[1] = 限流计数key
+-- 参数：ARGV[1] = 本节点新增计数
+-- 参数：ARGV[2] = 当前时间片序号
+-- 参数：ARGV[3] = 窗口内时间片数
+-- 参数：ARGV[4] = key过期时间（毫秒）
+-- 返回：窗口内所有节点的累计计数
+
+local delta = tonumber(ARGV[1])
+local slot = tonumber(ARGV[2])
+local slots = tonumber(ARGV[3])
+
+-- 累加本节点的预聚合计数
+if delta > 0 then
+    redis.call('HINCRBY', KEYS[1], slot, delta)
+    redis.call('PEXPIRE', KEYS[1], ARGV[4])
+end
+
+-- 汇总窗口内的计数，顺带清理滑出窗口的时间片
+local total = 0
+local fields = redis.call('HGETALL', KEYS[1])
+for i = 1, #fields, 2 do
+    if tonumber(fields[i]) > slot - slots then
+        total = total + tonumber(fields[i + 1])
+    else
+        redis.call('HDEL', KEYS[1], fields[i])
+    end
+end
+
+return total
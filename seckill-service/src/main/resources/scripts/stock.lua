@@ -1,6 +1,7 @@
 -- 库存操作Lua脚本
--- 参数：KEYS[1] = 库存key, KEYS[2] = 分布式锁key
--- 参数：ARGV[1] = 用户ID, ARGV[2] = 购买数量
+-- 参数：KEYS[1] = 库存key, KEYS[2] = 商品购买用户key
+-- 参数：ARGV[1] = 用户ID, ARGV[2] = 购买数量, ARGV[3] = 防重模式（set/bit）
+-- 参数：ARGV[4...] = bit模式下用户对应的位偏移（位图为用户ID，布隆过滤器为多个哈希位）
 
 -- 获取当前库存
 local stock = redis.call('GET', KEYS[1])
@@ -9,24 +10,40 @@ if not stock then
 end
 
 -- 检查库存是否足够
+if tonumber(stock) <= 0 then
+    return -2  -- 已售罄
+end
 if tonumber(stock) < tonumber(ARGV[2]) then
-    return -2  -- 库存不足
+    return -4  -- 剩余库存不足购买数量
 end
 
--- 尝试获取分布式锁
-local lockResult = redis.call('SET', KEYS[2], ARGV[1], 'NX', 'EX', 10)
-if not lockResult then
-    return -3  -- 获取锁失败，用户重复下单
+-- 检查用户是否已购买
+if ARGV[3] == 'set' then
+    if redis.call('SISMEMBER', KEYS[2], ARGV[1]) == 1 then
+        return -3  -- 用户重复下单
+    end
+else
+    local bought = true
+    for i = 4, #ARGV do
+        if redis.call('GETBIT', KEYS[2], ARGV[i]) == 0 then
+            bought = false
+            break
+        end
+    end
+    if bought then
+        return -3  -- 用户重复下单
+    end
 end
 
--- 执行库存扣减
-local newStock = redis.call('DECRBY', KEYS[1], ARGV[2])
-if newStock < 0 then
-    -- 库存不足，回滚
-    redis.call('INCRBY', KEYS[1], ARGV[2])
-    redis.call('DEL', KEYS[2])
-    return -2  -- 库存不足
+-- 扣减库存并登记购买用户
+redis.call('DECRBY', KEYS[1], ARGV[2])
+if ARGV[3] == 'set' then
+    redis.call('SADD', KEYS[2], ARGV[1])
+else
+    for i = 4, #ARGV do
+        redis.call('SETBIT', KEYS[2], ARGV[i], 1)
+    end
 end
 
 -- 返回成功状态码
-return 1 
\ No newline at end of file
+return 1
\ No newline at end of file
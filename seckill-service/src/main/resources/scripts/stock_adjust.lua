@@ -0,0 +1,56 @@
+-- 库存修正Lua脚本，修正量分摊到商品的所有库存key（或分桶key），不存在的key不参与分摊
+-- 参数：KEYS[1...] = 库存key（或分桶key）
+-- 参数：ARGV[1] = 修正量，正数增加库存，负数减少库存
+-- 返回：实际修正量，减少库存时各分桶不会小于0
+
+local delta = tonumber(ARGV[1])
+local stocks = {}
+local loaded = {}
+for i = 1, #KEYS do
+    local stock = redis.call('GET', KEYS[i])
+    if stock then
+        stocks[#stocks + 1] = tonumber(stock)
+        loaded[#loaded + 1] = KEYS[i]
+    end
+end
+local n = #loaded
+if n == 0 or delta == 0 then
+    return 0
+end
+
+-- 增加库存：均分到各分桶，余数分配给前几个分桶
+if delta > 0 then
+    for i = 1, n do
+        local share = math.floor(delta / n) + ((i - 1) < delta % n and 1 or 0)
+        if share > 0 then
+            redis.call('INCRBY', loaded[i], share)
+        end
+    end
+    return delta
+end
+
+-- 减少库存：先按均分份额从各分桶扣除，不足部分再从仍有库存的分桶扣除
+local remaining = -delta
+local takes = {}
+for i = 1, n do
+    local share = math.floor(remaining / n) + ((i - 1) < remaining % n and 1 or 0)
+    takes[i] = math.min(math.max(stocks[i], 0), share)
+end
+local taken = 0
+for i = 1, n do
+    taken = taken + takes[i]
+end
+for i = 1, n do
+    if taken >= remaining then
+        break
+    end
+    local extra = math.min(math.max(stocks[i], 0) - takes[i], remaining - taken)
+    takes[i] = takes[i] + extra
+    taken = taken + extra
+end
+for i = 1, n do
+    if takes[i] > 0 then
+        redis.call('DECRBY', loaded[i], takes[i])
+    end
+end
+return -taken
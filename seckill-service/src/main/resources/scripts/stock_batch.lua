@@ -0,0 +1,68 @@
+-- 批量库存扣减Lua脚本，一次调用按顺序判定同一商品的多个购买请求
+-- 参数：KEYS[1] = 库存key, KEYS[2] = 商品购买用户key
+-- 参数：ARGV[1] = 防重模式（set/bit）, ARGV[2] = 每个请求的位偏移个数（set模式为0）
+-- 参数：ARGV[3...] = 按请求依次排列：用户ID, 购买数量, 位偏移...
+-- 返回：与请求顺序一致的结果数组，取值同stock.lua
+
+local mode = ARGV[1]
+local bits = tonumber(ARGV[2])
+local stride = 2 + bits
+local count = (#ARGV - 2) / stride
+
+local results = {}
+local stock = redis.call('GET', KEYS[1])
+if not stock then
+    for i = 1, count do
+        results[i] = -1  -- 商品不存在
+    end
+    return results
+end
+
+-- 判断用户是否已购买，同一批内的重复请求也能识别
+local function bought(base)
+    if mode == 'set' then
+        return redis.call('SISMEMBER', KEYS[2], ARGV[base]) == 1
+    end
+    for j = 1, bits do
+        if redis.call('GETBIT', KEYS[2], ARGV[base + 1 + j]) == 0 then
+            return false
+        end
+    end
+    return true
+end
+
+local function mark(base)
+    if mode == 'set' then
+        redis.call('SADD', KEYS[2], ARGV[base])
+        return
+    end
+    for j = 1, bits do
+        redis.call('SETBIT', KEYS[2], ARGV[base + 1 + j], 1)
+    end
+end
+
+stock = tonumber(stock)
+local deducted = 0
+for i = 1, count do
+    local base = 3 + (i - 1) * stride
+    local quantity = tonumber(ARGV[base + 1])
+    if stock <= 0 then
+        results[i] = -2  -- 已售罄
+    elseif stock < quantity then
+        results[i] = -4  -- 剩余库存不足购买数量
+    elseif bought(base) then
+        results[i] = -3  -- 用户重复下单
+    else
+        mark(base)
+        stock = stock - quantity
+        deducted = deducted + quantity
+        results[i] = 1
+    end
+end
+
+-- 整批只写一次库存
+if deducted > 0 then
+    redis.call('DECRBY', KEYS[1], deducted)
+end
+
+return results
@@ -0,0 +1,21 @@
+-- 分桶库存扣减Lua脚本
+-- 参数：KEYS[1] = 库存分桶key
+-- 参数：ARGV[1] = 购买数量
+-- 返回：扣减后的分桶剩余库存（>=0），或错误码
+
+-- 获取当前分桶库存
+local stock = redis.call('GET', KEYS[1])
+if not stock then
+    return -1  -- 分桶不存在
+end
+
+stock = tonumber(stock)
+if stock <= 0 then
+    return -2  -- 分桶已售罄
+end
+if stock < tonumber(ARGV[1]) then
+    return -4  -- 分桶剩余库存不足购买数量
+end
+
+-- 检查与扣减在同一脚本内执行，分桶库存不会小于0
+return redis.call('DECRBY', KEYS[1], ARGV[1])
\ No newline at end of file
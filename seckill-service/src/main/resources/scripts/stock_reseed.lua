@@ -0,0 +1,16 @@
+-- 回灌库存Lua脚本，以认领序号作为栅栏，过期的回灌不会覆盖新一轮回灌写入的库存
+-- 参数：KEYS[1] = 回灌栅栏key，KEYS[2...] = 库存key（或分桶key）
+-- 参数：ARGV[1] = 认领序号，ARGV[2...] = 与库存key一一对应的库存
+-- 返回：1-写入成功，0-已有更新的回灌，本次放弃
+
+local fence = tonumber(redis.call('GET', KEYS[1]) or '0')
+local token = tonumber(ARGV[1])
+if token < fence then
+    return 0
+end
+
+redis.call('SET', KEYS[1], ARGV[1])
+for i = 2, #KEYS do
+    redis.call('SET', KEYS[i], ARGV[i])
+end
+return 1
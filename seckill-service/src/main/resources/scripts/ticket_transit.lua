@@ -0,0 +1,25 @@
+-- 受理凭证状态迁移Lua脚本，凭证当前状态属于允许的来源状态时才迁移，迟到的下单消息与失败回滚只有一方成功
+-- 参数：KEYS[1...] = 受理凭证key
+-- 参数：ARGV[1] = 目标状态, ARGV[2] = 有效期（毫秒）, ARGV[3] = 凭证不存在时是否迁移（1/0）, ARGV[4...] = 允许的来源状态
+-- 返回：与凭证key一一对应的结果数组，1-迁移成功，0-状态不允许
+
+local results = {}
+for i = 1, #KEYS do
+    local status = redis.call('GET', KEYS[i])
+    local allowed = (not status) and ARGV[3] == '1'
+    if status then
+        for j = 4, #ARGV do
+            if status == ARGV[j] then
+                allowed = true
+                break
+            end
+        end
+    end
+    if allowed then
+        redis.call('SET', KEYS[i], ARGV[1], 'PX', ARGV[2])
+        results[i] = 1
+    else
+        results[i] = 0
+    end
+end
+return results
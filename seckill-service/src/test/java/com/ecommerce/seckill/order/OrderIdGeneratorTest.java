@@ -0,0 +1,162 @@
+package com.ecommerce.seckill.order;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 订单号生成器测试：节点ID租约的分配、续约、丢失和无法确认时的宽限期
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+class OrderIdGeneratorTest {
+    
+    private static final long LEASE_SECONDS = 30;
+    
+    private StringRedisTemplate stringRedisTemplate;
+    
+    private ValueOperations<String, String> valueOperations;
+    
+    private OrderIdGenerator generator;
+    
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        stringRedisTemplate = mock(StringRedisTemplate.class);
+        valueOperations = mock(ValueOperations.class);
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(anyString(), anyString(), anyLong(), eq(TimeUnit.SECONDS))).thenReturn(true);
+        
+        generator = new OrderIdGenerator();
+        ReflectionTestUtils.setField(generator, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(generator, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(generator, "shardBits", 0);
+        ReflectionTestUtils.setField(generator, "leaseSeconds", LEASE_SECONDS);
+        generator.init();
+    }
+    
+    @Test
+    void issuesIncreasingIdsWhileLeaseIsHeld() {
+        long first = generator.nextId(1L);
+        long second = generator.nextId(1L);
+        
+        assertTrue(second > first);
+        assertTrue(generator.isAvailable());
+        long now = System.currentTimeMillis();
+        assertTrue(Math.abs(OrderIdGenerator.timestampOf(second) - now) < 1000);
+    }
+    
+    @Test
+    void embedsItemShardInLowBits() {
+        ReflectionTestUtils.setField(generator, "shardBits", 4);
+        ReflectionTestUtils.setField(generator, "sequenceMask", (1L << 8) - 1);
+        
+        assertEquals(0xB, generator.nextId(0x1BL) & 0xF);
+    }
+    
+    @Test
+    void successfulRenewalExtendsLease() {
+        renewReturns(1L);
+        expireLeaseIn(-1);
+        
+        generator.renew();
+        
+        assertTrue(generator.isAvailable());
+        generator.nextId(1L);
+    }
+    
+    @Test
+    void lostLeaseReacquiresAnotherNodeId() {
+        int before = nodeId();
+        renewReturns(0L);
+        when(valueOperations.setIfAbsent(anyString(), anyString(), anyLong(), eq(TimeUnit.SECONDS))).thenReturn(false, true);
+        
+        generator.renew();
+        
+        assertTrue(nodeId() >= 0);
+        assertNotEquals(before, nodeId());
+        assertTrue(generator.isAvailable());
+    }
+    
+    @Test
+    void expiredLeaseStopsIssuing() {
+        expireLeaseIn(-1);
+        
+        assertFalse(generator.isAvailable());
+        assertThrows(IllegalStateException.class, () -> generator.nextId(1L));
+    }
+    
+    @Test
+    void unverifiedLeaseIssuesWithinOneLeaseOfGrace() {
+        renewFails();
+        generator.renew();
+        // 租约已到期，但仍在一个租约时长的宽限期内
+        expireLeaseIn(-TimeUnit.SECONDS.toMillis(LEASE_SECONDS) / 2);
+        
+        assertTrue(generator.isAvailable());
+        generator.nextId(1L);
+    }
+    
+    @Test
+    void unverifiedLeaseFailsClosedAfterGrace() {
+        renewFails();
+        generator.renew();
+        expireLeaseIn(-TimeUnit.SECONDS.toMillis(LEASE_SECONDS) - 1000);
+        
+        assertFalse(generator.isAvailable());
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> generator.nextId(1L));
+        assertEquals("系统繁忙，请稍后重试", e.getMessage());
+    }
+    
+    @Test
+    void recoveredRenewalEndsGrace() {
+        renewFails();
+        generator.renew();
+        renewReturns(1L);
+        generator.renew();
+        assertFalse((Boolean) ReflectionTestUtils.getField(generator, "leaseUnverified"));
+        
+        // 恢复后租约再次到期时不再宽限
+        expireLeaseIn(-1);
+        assertFalse(generator.isAvailable());
+    }
+    
+    private void renewReturns(long result) {
+        doReturn(result).when(stringRedisTemplate).execute(any(RedisScript.class), anyList(), any(), any());
+    }
+    
+    private void renewFails() {
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any(), any()))
+            .thenThrow(new RedisConnectionFailureException("Redis不可达"));
+    }
+    
+    private void expireLeaseIn(long millis) {
+        ReflectionTestUtils.setField(generator, "leaseExpireAt", System.currentTimeMillis() + millis);
+    }
+    
+    private int nodeId() {
+        return (Integer) ReflectionTestUtils.getField(generator, "nodeId");
+    }
+}
\ No newline at end of file
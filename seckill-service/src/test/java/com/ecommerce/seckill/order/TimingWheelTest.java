@@ -0,0 +1,115 @@
+package com.ecommerce.seckill.order;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 分层时间轮测试：第0层每格10ms、每层4格、共2层，第1层每格40ms，一整圈160ms
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+class TimingWheelTest {
+    
+    private TimingWheel wheel;
+    
+    private TimingWheel.LongList expired;
+    
+    @BeforeEach
+    void setUp() {
+        wheel = new TimingWheel(10, 4, 2, 0);
+        expired = new TimingWheel.LongList();
+    }
+    
+    @Test
+    void taskFiresOnceItsTickHasPassed() {
+        assertTrue(wheel.add(1, 15));
+        
+        wheel.advance(19, expired);
+        assertEquals(0, expired.size());
+        
+        wheel.advance(20, expired);
+        assertEquals(Arrays.asList(1L), drain());
+        assertEquals(0, wheel.size());
+    }
+    
+    @Test
+    void pastDeadlineIsRejected() {
+        wheel.advance(30, expired);
+        
+        assertFalse(wheel.add(1, 25));
+        assertTrue(wheel.add(2, 30));
+        assertEquals(1, wheel.size());
+    }
+    
+    @Test
+    void upperLevelBucketCascadesDownBeforeFiring() {
+        // 95不在第0层当前一圈内，先放入第1层
+        wheel.add(3, 95);
+        wheel.add(4, 85);
+        
+        wheel.advance(80, expired);
+        assertEquals(0, expired.size());
+        assertEquals(2, wheel.size());
+        
+        wheel.advance(90, expired);
+        assertEquals(Arrays.asList(4L), drain());
+        
+        wheel.advance(99, expired);
+        assertEquals(0, expired.size());
+        
+        wheel.advance(100, expired);
+        assertEquals(Arrays.asList(3L), drain());
+        assertEquals(0, wheel.size());
+    }
+    
+    @Test
+    void taskBeyondTopLevelWrapsAroundWithoutFiringEarly() {
+        // 170超出最高层一圈，与0~39落在同一格，该格下沉时重新放回
+        wheel.add(5, 170);
+        wheel.add(6, 330);
+        
+        wheel.advance(169, expired);
+        assertEquals(0, expired.size());
+        assertEquals(2, wheel.size());
+        
+        wheel.advance(180, expired);
+        assertEquals(Arrays.asList(5L), drain());
+        
+        wheel.advance(329, expired);
+        assertEquals(0, expired.size());
+        
+        wheel.advance(340, expired);
+        assertEquals(Arrays.asList(6L), drain());
+        assertEquals(0, wheel.size());
+    }
+    
+    @Test
+    void bucketGrowsForManyTasks() {
+        for (long id = 0; id < 100; id++) {
+            wheel.add(id, 50);
+        }
+        assertEquals(100, wheel.size());
+        
+        wheel.advance(60, expired);
+        assertEquals(100, expired.size());
+        assertEquals(0, wheel.size());
+    }
+    
+    private List<Long> drain() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < expired.size(); i++) {
+            ids.add(expired.get(i));
+        }
+        expired.clear();
+        return ids;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,68 @@
+package com.ecommerce.seckill.script;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 到期订单认领脚本测试
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+class ExpiryClaimScriptTest {
+    
+    private static final String EXPIRY_KEY = "seckill:order:expiry";
+    
+    private LuaScriptRunner redis;
+    
+    @BeforeEach
+    void setUp() {
+        redis = new LuaScriptRunner();
+    }
+    
+    @Test
+    void claimsOnlyDueOrdersAndPushesTheirScoreToLease() {
+        redis.zadd(EXPIRY_KEY, 1000, "A");
+        redis.zadd(EXPIRY_KEY, 2000, "B");
+        
+        assertEquals(Collections.singletonList("A"), claim(1500, 9000, "A", "B"));
+        assertEquals(9000d, redis.score(EXPIRY_KEY, "A"));
+        assertEquals(2000d, redis.score(EXPIRY_KEY, "B"));
+    }
+    
+    @Test
+    void claimedOrderIsNotClaimedAgainUntilLeaseExpires() {
+        redis.zadd(EXPIRY_KEY, 1000, "A");
+        claim(1500, 9000, "A");
+        
+        // 另一个节点同时触发，租约未到期
+        assertEquals(Collections.emptyList(), claim(1500, 9500, "A"));
+        assertEquals(9000d, redis.score(EXPIRY_KEY, "A"));
+        
+        // 认领节点宕机，租约到期后重新认领
+        assertEquals(Collections.singletonList("A"), claim(9000, 20000, "A"));
+        assertEquals(20000d, redis.score(EXPIRY_KEY, "A"));
+    }
+    
+    @Test
+    void removedOrderIsNotRecreated() {
+        redis.zadd(EXPIRY_KEY, 1000, "A");
+        
+        assertEquals(Arrays.asList("A"), claim(1500, 9000, "A", "C"));
+        assertNull(redis.score(EXPIRY_KEY, "C"));
+    }
+    
+    private Object claim(long deadline, long lease, String... orderNos) {
+        Object[] args = new Object[2 + orderNos.length];
+        args[0] = deadline;
+        args[1] = lease;
+        System.arraycopy(orderNos, 0, args, 2, orderNos.length);
+        return redis.execute(SeckillScript.EXPIRY_CLAIM, Collections.singletonList(EXPIRY_KEY), args);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,225 @@
+package com.ecommerce.seckill.script;
+
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.VarArgFunction;
+import org.luaj.vm2.lib.jse.JsePlatform;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * 在内存Redis桩上执行秒杀Lua脚本（LuaJ），按Redis的规则转换参数和返回值：
+ * KEYS、ARGV均为字符串，nil回复为false，数字返回值截断为整数，数组返回值在第一个nil处截止
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+public class LuaScriptRunner {
+    
+    /**
+     * 内存数据：字符串为String，集合为Set，位图为BitSet，有序集合为Map（成员 -> 分数）
+     */
+    private final Map<String, Object> data = new HashMap<>();
+    
+    /**
+     * 执行脚本
+     * 
+     * @param script 脚本
+     * @param keys KEYS
+     * @param args ARGV，按String.valueOf转为字符串
+     * @return 整数返回Long，数组返回List，nil返回null
+     */
+    public Object execute(SeckillScript script, List<String> keys, Object... args) {
+        Globals globals = JsePlatform.standardGlobals();
+        LuaTable redis = new LuaTable();
+        redis.set("call", new VarArgFunction() {
+            @Override
+            public Varargs invoke(Varargs varargs) {
+                return dispatch(varargs);
+            }
+        });
+        globals.set("redis", redis);
+        LuaTable keyTable = new LuaTable();
+        for (int i = 0; i < keys.size(); i++) {
+            keyTable.set(i + 1, LuaValue.valueOf(keys.get(i)));
+        }
+        LuaTable argTable = new LuaTable();
+        for (int i = 0; i < args.length; i++) {
+            argTable.set(i + 1, LuaValue.valueOf(String.valueOf(args[i])));
+        }
+        globals.set("KEYS", keyTable);
+        globals.set("ARGV", argTable);
+        return toJava(globals.load(source(script), script.name()).call());
+    }
+    
+    public String get(String key) {
+        return (String) data.get(key);
+    }
+    
+    public void set(String key, Object value) {
+        data.put(key, String.valueOf(value));
+    }
+    
+    public boolean exists(String key) {
+        return data.containsKey(key);
+    }
+    
+    public boolean isMember(String key, String member) {
+        return members(key).contains(member);
+    }
+    
+    public Double score(String key, String member) {
+        return zset(key).get(member);
+    }
+    
+    public void zadd(String key, double score, String member) {
+        zset(key).put(member, score);
+    }
+    
+    private Varargs dispatch(Varargs varargs) {
+        String command = varargs.checkjstring(1).toUpperCase();
+        String key = varargs.checkjstring(2);
+        switch (command) {
+            case "GET":
+                return data.containsKey(key) ? LuaValue.valueOf(get(key)) : LuaValue.FALSE;
+            case "SET":
+                set(key, varargs.checkjstring(3));
+                return status();
+            case "INCRBY":
+                return incrBy(key, integer(varargs.arg(3)));
+            case "DECRBY":
+                return incrBy(key, -integer(varargs.arg(3)));
+            case "SISMEMBER":
+                return LuaValue.valueOf(members(key).contains(varargs.checkjstring(3)) ? 1 : 0);
+            case "SADD":
+                return LuaValue.valueOf(members(key).add(varargs.checkjstring(3)) ? 1 : 0);
+            case "GETBIT":
+                return LuaValue.valueOf(bits(key).get((int) integer(varargs.arg(3))) ? 1 : 0);
+            case "SETBIT":
+                int offset = (int) integer(varargs.arg(3));
+                boolean previous = bits(key).get(offset);
+                bits(key).set(offset, integer(varargs.arg(4)) == 1);
+                return LuaValue.valueOf(previous ? 1 : 0);
+            case "ZSCORE":
+                Double score = zset(key).get(varargs.checkjstring(3));
+                return score != null ? LuaValue.valueOf(formatScore(score)) : LuaValue.FALSE;
+            case "ZADD":
+                return zadd(key, varargs);
+            default:
+                throw new LuaError("ERR unknown command '" + command + "'");
+        }
+    }
+    
+    private LuaValue incrBy(String key, long delta) {
+        long value = (data.containsKey(key) ? Long.parseLong(get(key)) : 0) + delta;
+        set(key, value);
+        return LuaValue.valueOf(value);
+    }
+    
+    /**
+     * ZADD key [XX|NX] score member
+     */
+    private LuaValue zadd(String key, Varargs varargs) {
+        int index = 3;
+        String flag = varargs.checkjstring(index).toUpperCase();
+        boolean xx = "XX".equals(flag);
+        boolean nx = "NX".equals(flag);
+        if (xx || nx) {
+            index++;
+        }
+        double score = Double.parseDouble(varargs.checkjstring(index));
+        String member = varargs.checkjstring(index + 1);
+        Map<String, Double> zset = zset(key);
+        boolean present = zset.containsKey(member);
+        if ((xx && !present) || (nx && present)) {
+            return LuaValue.valueOf(0);
+        }
+        zset.put(member, score);
+        return LuaValue.valueOf(present ? 0 : 1);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private Set<String> members(String key) {
+        return typed(key, Set.class, HashSet::new);
+    }
+    
+    private BitSet bits(String key) {
+        return typed(key, BitSet.class, BitSet::new);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private Map<String, Double> zset(String key) {
+        return typed(key, Map.class, HashMap::new);
+    }
+    
+    /**
+     * 按类型取出key的值，不存在时创建，类型不符时与Redis一样报WRONGTYPE
+     */
+    private <T> T typed(String key, Class<T> type, Supplier<? extends T> creator) {
+        Object value = data.computeIfAbsent(key, k -> creator.get());
+        if (!type.isInstance(value)) {
+            throw new LuaError("WRONGTYPE Operation against a key holding the wrong kind of value");
+        }
+        return type.cast(value);
+    }
+    
+    private static long integer(LuaValue value) {
+        if (value.isnumber()) {
+            return value.tolong();
+        }
+        return Long.parseLong(value.checkjstring());
+    }
+    
+    private static String formatScore(double score) {
+        return score == Math.rint(score) ? String.valueOf((long) score) : String.valueOf(score);
+    }
+    
+    private static LuaTable status() {
+        LuaTable ok = new LuaTable();
+        ok.set("ok", "OK");
+        return ok;
+    }
+    
+    private static Object toJava(LuaValue value) {
+        if (value.isnil() || value == LuaValue.FALSE) {
+            return null;
+        }
+        if (value == LuaValue.TRUE) {
+            return 1L;
+        }
+        if (value.type() == LuaValue.TNUMBER) {
+            return value.tolong();
+        }
+        if (value.type() == LuaValue.TTABLE) {
+            List<Object> values = new ArrayList<>();
+            for (int i = 1; !value.get(i).isnil(); i++) {
+                values.add(toJava(value.get(i)));
+            }
+            return values;
+        }
+        return value.tojstring();
+    }
+    
+    private static String source(SeckillScript script) {
+        try {
+            return StreamUtils.copyToString(new ClassPathResource(script.getLocation()).getInputStream(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,87 @@
+package com.ecommerce.seckill.script;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * 库存修正脚本测试
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+class StockAdjustScriptTest {
+    
+    private static final List<String> BUCKET_KEYS = Arrays.asList("seckill:stock:1:0", "seckill:stock:1:1", "seckill:stock:1:2");
+    
+    private LuaScriptRunner redis;
+    
+    @BeforeEach
+    void setUp() {
+        redis = new LuaScriptRunner();
+    }
+    
+    @Test
+    void increaseIsSpreadAcrossBuckets() {
+        loadBuckets(0, 0, 0);
+        
+        assertEquals(7L, adjust(7));
+        assertBuckets("3", "2", "2");
+    }
+    
+    @Test
+    void decreaseIsSpreadAcrossBuckets() {
+        loadBuckets(5, 5, 5);
+        
+        assertEquals(-6L, adjust(-6));
+        assertBuckets("3", "3", "3");
+    }
+    
+    @Test
+    void decreaseTakesShortfallFromBucketsWithStock() {
+        loadBuckets(0, 1, 10);
+        
+        assertEquals(-6L, adjust(-6));
+        assertBuckets("0", "0", "5");
+    }
+    
+    @Test
+    void decreaseNeverDrivesBucketsBelowZero() {
+        loadBuckets(1, 2, 0);
+        
+        assertEquals(-3L, adjust(-10));
+        assertBuckets("0", "0", "0");
+    }
+    
+    @Test
+    void missingBucketsAreNotCreated() {
+        redis.set(BUCKET_KEYS.get(0), 1);
+        
+        assertEquals(4L, adjust(4));
+        assertEquals("5", redis.get(BUCKET_KEYS.get(0)));
+        assertFalse(redis.exists(BUCKET_KEYS.get(1)));
+        assertEquals(0L, redis.execute(SeckillScript.STOCK_ADJUST, Collections.singletonList("seckill:stock:2"), 3));
+    }
+    
+    private void loadBuckets(int... stocks) {
+        for (int i = 0; i < stocks.length; i++) {
+            redis.set(BUCKET_KEYS.get(i), stocks[i]);
+        }
+    }
+    
+    private Object adjust(long delta) {
+        return redis.execute(SeckillScript.STOCK_ADJUST, BUCKET_KEYS, delta);
+    }
+    
+    private void assertBuckets(String... expected) {
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], redis.get(BUCKET_KEYS.get(i)), "分桶" + i);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,75 @@
+package com.ecommerce.seckill.script;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 批量库存扣减脚本测试
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+class StockBatchScriptTest {
+    
+    private static final String STOCK_KEY = "seckill:stock:1";
+    
+    private static final String BUYER_KEY = "seckill:buyers:1";
+    
+    private LuaScriptRunner redis;
+    
+    @BeforeEach
+    void setUp() {
+        redis = new LuaScriptRunner();
+    }
+    
+    @Test
+    void requestsAreJudgedInOrderAgainstRemainingStock() {
+        redis.set(STOCK_KEY, 3);
+        
+        Object results = execute("set", 0, 101, 2, 102, 2, 103, 1);
+        
+        assertEquals(Arrays.asList(1L, -4L, 1L), results);
+        assertEquals("0", redis.get(STOCK_KEY));
+        assertTrue(redis.isMember(BUYER_KEY, "101"));
+        assertTrue(redis.isMember(BUYER_KEY, "103"));
+    }
+    
+    @Test
+    void soldOutAfterEarlierRequestsInTheSameBatch() {
+        redis.set(STOCK_KEY, 1);
+        
+        assertEquals(Arrays.asList(1L, -2L), execute("set", 0, 101, 1, 102, 1));
+    }
+    
+    @Test
+    void duplicateBuyerWithinBatchIsRejected() {
+        redis.set(STOCK_KEY, 5);
+        
+        assertEquals(Arrays.asList(1L, -3L), execute("set", 0, 101, 1, 101, 1));
+        assertEquals("4", redis.get(STOCK_KEY));
+    }
+    
+    @Test
+    void missingStockFailsEveryRequest() {
+        assertEquals(Arrays.asList(-1L, -1L), execute("set", 0, 101, 1, 102, 1));
+    }
+    
+    @Test
+    void bitModeMarksAndChecksEveryOffset() {
+        redis.set(STOCK_KEY, 5);
+        
+        assertEquals(Arrays.asList(1L, -3L, 1L), execute("bit", 2, 101, 1, 7, 9, 101, 1, 7, 9, 102, 1, 7, 11));
+        assertEquals("3", redis.get(STOCK_KEY));
+    }
+    
+    private Object execute(Object... args) {
+        List<String> keys = Arrays.asList(STOCK_KEY, BUYER_KEY);
+        return redis.execute(SeckillScript.STOCK_BATCH, keys, args);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,69 @@
+package com.ecommerce.seckill.script;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * 分桶库存扣减脚本测试
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+class StockBucketScriptTest {
+    
+    private static final String BUCKET_KEY = "seckill:stock:1:0";
+    
+    private LuaScriptRunner redis;
+    
+    @BeforeEach
+    void setUp() {
+        redis = new LuaScriptRunner();
+    }
+    
+    @Test
+    void deductReturnsRemainingBucketStock() {
+        redis.set(BUCKET_KEY, 5);
+        
+        assertEquals(3L, execute(2));
+        assertEquals("3", redis.get(BUCKET_KEY));
+    }
+    
+    @Test
+    void missingBucketIsReported() {
+        assertEquals(-1L, execute(1));
+        assertFalse(redis.exists(BUCKET_KEY));
+    }
+    
+    @Test
+    void emptyBucketIsSoldOut() {
+        redis.set(BUCKET_KEY, 0);
+        
+        assertEquals(-2L, execute(1));
+        assertEquals("0", redis.get(BUCKET_KEY));
+    }
+    
+    @Test
+    void insufficientBucketIsNotDeducted() {
+        redis.set(BUCKET_KEY, 1);
+        
+        assertEquals(-4L, execute(2));
+        assertEquals("1", redis.get(BUCKET_KEY));
+    }
+    
+    @Test
+    void lastUnitCanBeDeducted() {
+        redis.set(BUCKET_KEY, 2);
+        
+        assertEquals(0L, execute(2));
+        assertEquals(-2L, execute(1));
+    }
+    
+    private Object execute(int quantity) {
+        return redis.execute(SeckillScript.STOCK_BUCKET, Collections.singletonList(BUCKET_KEY), quantity);
+    }
+}
\ No newline at end of file
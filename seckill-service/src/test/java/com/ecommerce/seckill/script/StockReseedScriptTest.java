@@ -0,0 +1,67 @@
+package com.ecommerce.seckill.script;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 回灌库存脚本测试
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+class StockReseedScriptTest {
+    
+    private static final String FENCE_KEY = "seckill:stock:reseed:fence";
+    
+    private static final List<String> KEYS = Arrays.asList(FENCE_KEY, "seckill:stock:1", "seckill:stock:2");
+    
+    private LuaScriptRunner redis;
+    
+    @BeforeEach
+    void setUp() {
+        redis = new LuaScriptRunner();
+    }
+    
+    @Test
+    void firstReseedWritesStockAndFence() {
+        assertEquals(1L, reseed(1, 5, 8));
+        
+        assertEquals("1", redis.get(FENCE_KEY));
+        assertEquals("5", redis.get("seckill:stock:1"));
+        assertEquals("8", redis.get("seckill:stock:2"));
+    }
+    
+    @Test
+    void staleReseedDoesNotOverwriteNewerRound() {
+        reseed(2, 5, 8);
+        
+        assertEquals(0L, reseed(1, 100, 100));
+        assertEquals("2", redis.get(FENCE_KEY));
+        assertEquals("5", redis.get("seckill:stock:1"));
+        assertEquals("8", redis.get("seckill:stock:2"));
+    }
+    
+    @Test
+    void sameRoundMayWriteAgain() {
+        // 同一轮回灌分页写入，序号相同
+        reseed(3, 5, 8);
+        
+        assertEquals(1L, reseed(3, 4, 7));
+        assertEquals("4", redis.get("seckill:stock:1"));
+        assertEquals("7", redis.get("seckill:stock:2"));
+    }
+    
+    private Object reseed(long token, long... stocks) {
+        Object[] args = new Object[1 + stocks.length];
+        args[0] = token;
+        for (int i = 0; i < stocks.length; i++) {
+            args[i + 1] = stocks[i];
+        }
+        return redis.execute(SeckillScript.STOCK_RESEED, KEYS, args);
+    }
+}
\ No newline at end of file
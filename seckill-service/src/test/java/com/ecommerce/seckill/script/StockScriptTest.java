@@ -0,0 +1,97 @@
+package com.ecommerce.seckill.script;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 库存扣减与购买用户登记脚本测试
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+class StockScriptTest {
+    
+    private static final String STOCK_KEY = "seckill:stock:1";
+    
+    private static final String BUYER_KEY = "seckill:buyers:1";
+    
+    private LuaScriptRunner redis;
+    
+    @BeforeEach
+    void setUp() {
+        redis = new LuaScriptRunner();
+    }
+    
+    @Test
+    void deductsStockAndMarksBuyer() {
+        redis.set(STOCK_KEY, 10);
+        
+        assertEquals(1L, deduct(101, 2, "set"));
+        assertEquals("8", redis.get(STOCK_KEY));
+        assertTrue(redis.isMember(BUYER_KEY, "101"));
+    }
+    
+    @Test
+    void duplicateBuyerIsRejectedWithoutDeducting() {
+        redis.set(STOCK_KEY, 10);
+        deduct(101, 1, "set");
+        
+        assertEquals(-3L, deduct(101, 1, "set"));
+        assertEquals("9", redis.get(STOCK_KEY));
+    }
+    
+    @Test
+    void missingSoldOutAndInsufficientStock() {
+        assertEquals(-1L, deduct(101, 1, "set"));
+        
+        redis.set(STOCK_KEY, 0);
+        assertEquals(-2L, deduct(101, 1, "set"));
+        
+        redis.set(STOCK_KEY, 1);
+        assertEquals(-4L, deduct(101, 2, "set"));
+        assertEquals("1", redis.get(STOCK_KEY));
+        assertFalse(redis.isMember(BUYER_KEY, "101"));
+    }
+    
+    @Test
+    void bitModeTreatsBuyerAsBoughtOnlyWhenEveryOffsetIsSet() {
+        redis.set(STOCK_KEY, 10);
+        
+        assertEquals(1L, deduct(101, 1, "bit", 3, 5));
+        // 与已购买用户共享部分位不视为已购买
+        assertEquals(1L, deduct(102, 1, "bit", 3, 6));
+        assertEquals(-3L, deduct(103, 1, "bit", 5, 6));
+        assertEquals("8", redis.get(STOCK_KEY));
+    }
+    
+    @Test
+    void buyerMarkRegistersOnce() {
+        assertEquals(1L, mark(BUYER_KEY, "set", 101));
+        assertEquals(0L, mark(BUYER_KEY, "set", 101));
+        
+        String bitKey = "seckill:buyers:2";
+        assertEquals(1L, mark(bitKey, "bit", 101, 3, 5));
+        assertEquals(0L, mark(bitKey, "bit", 101, 3, 5));
+        assertEquals(1L, mark(bitKey, "bit", 102, 3, 7));
+    }
+    
+    private Object deduct(long userId, int quantity, String mode, Object... offsets) {
+        Object[] args = new Object[3 + offsets.length];
+        args[0] = userId;
+        args[1] = quantity;
+        args[2] = mode;
+        System.arraycopy(offsets, 0, args, 3, offsets.length);
+        return redis.execute(SeckillScript.STOCK, Arrays.asList(STOCK_KEY, BUYER_KEY), args);
+    }
+    
+    private Object mark(String key, Object... args) {
+        return redis.execute(SeckillScript.BUYER_MARK, Collections.singletonList(key), args);
+    }
+}
\ No newline at end of file
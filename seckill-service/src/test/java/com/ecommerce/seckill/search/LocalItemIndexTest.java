@@ -0,0 +1,124 @@
+package com.ecommerce.seckill.search;
+
+import com.ecommerce.seckill.dao.SeckillItemMapper;
+import com.ecommerce.seckill.entity.SeckillItem;
+import com.ecommerce.seckill.vo.SearchPage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 本地商品倒排索引测试：分词、倒排表求交集和游标翻页
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+class LocalItemIndexTest {
+    
+    private LocalItemIndex index;
+    
+    @BeforeEach
+    void setUp() {
+        SeckillItemMapper seckillItemMapper = mock(SeckillItemMapper.class);
+        // 排序：1（最新）、3、2（与3同时创建，ID较小）、4
+        when(seckillItemMapper.selectActiveAfterId(0L, 100)).thenReturn(Arrays.asList(
+            item(1L, "Apple手机壳", 3),
+            item(2L, "苹果手机", 2),
+            item(3L, "华为手机 Pro", 2),
+            item(4L, "apple watch", 1)));
+        
+        index = new LocalItemIndex();
+        ReflectionTestUtils.setField(index, "seckillItemMapper", seckillItemMapper);
+        ReflectionTestUtils.setField(index, "redisMessageListenerContainer", mock(RedisMessageListenerContainer.class));
+        ReflectionTestUtils.setField(index, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(index, "enabled", true);
+        ReflectionTestUtils.setField(index, "loadBatchSize", 100);
+        index.init();
+    }
+    
+    @Test
+    void documentIsTokenizedIntoCjkUnigramsBigramsAndWords() {
+        Set<String> tokens = new TreeSet<>(Arrays.asList(LocalItemIndex.documentTokens("Apple手机壳", null, "X-1")));
+        
+        assertEquals(new TreeSet<>(Arrays.asList("apple", "手", "手机", "机", "机壳", "壳", "x", "1")), tokens);
+    }
+    
+    @Test
+    void queryIsTokenizedIntoCjkBigramsAndWords() {
+        assertEquals(Arrays.asList("华为", "为手", "手机", "pro"), LocalItemIndex.queryTokens("华为手机 PRO"));
+        // 单个CJK字符按单字查询
+        assertEquals(Arrays.asList("机", "apple"), LocalItemIndex.queryTokens("机 apple apple"));
+        assertTrue(LocalItemIndex.queryTokens("").isEmpty());
+    }
+    
+    @Test
+    void resultsContainEveryTokenInCreateTimeOrder() {
+        assertEquals(Arrays.asList(1L, 3L, 2L), ids(index.search("手机", 10, null)));
+        assertEquals(Arrays.asList(1L, 4L), ids(index.search("apple", 10, null)));
+        assertEquals(Arrays.asList(1L), ids(index.search("apple 手机", 10, null)));
+        assertEquals(Arrays.asList(3L), ids(index.search("华为手机", 10, null)));
+        assertTrue(index.search("小米", 10, null).getItems().isEmpty());
+    }
+    
+    @Test
+    void cursorContinuesAfterLastItemIncludingTies() {
+        SearchPage first = index.search("手机", 2, null);
+        assertEquals(Arrays.asList(1L, 3L), ids(first));
+        assertNotNull(first.getNextCursor());
+        
+        // 游标停在与下一项创建时间相同的商品上，按ID继续
+        SearchPage second = index.search("手机", 2, SearchCursor.parse(first.getNextCursor()));
+        assertEquals(Arrays.asList(2L), ids(second));
+        assertNull(second.getNextCursor());
+    }
+    
+    @Test
+    void emptyKeywordPagesThroughAllItems() {
+        SearchPage first = index.search(null, 3, null);
+        assertEquals(Arrays.asList(1L, 3L, 2L), ids(first));
+        
+        SearchPage second = index.search(null, 3, SearchCursor.parse(first.getNextCursor()));
+        assertEquals(Arrays.asList(4L), ids(second));
+        assertNull(second.getNextCursor());
+    }
+    
+    @Test
+    void resultsAreCopiesWithoutDescription() {
+        SeckillItem found = index.search("华为", 10, null).getItems().get(0);
+        found.setTitle("已修改");
+        
+        assertNull(found.getDescription());
+        assertEquals("华为手机 Pro", index.search("华为", 10, null).getItems().get(0).getTitle());
+    }
+    
+    private static SeckillItem item(Long id, String title, int createSecond) {
+        SeckillItem item = new SeckillItem();
+        item.setId(id);
+        item.setTitle(title);
+        item.setDescription("描述");
+        item.setIsActive(1);
+        item.setCreateTime(LocalDateTime.of(2024, 1, 1, 0, 0, createSecond));
+        item.setUpdateTime(item.getCreateTime());
+        return item;
+    }
+    
+    private static List<Long> ids(SearchPage page) {
+        return page.getItems().stream().map(SeckillItem::getId).collect(Collectors.toList());
+    }
+}
\ No newline at end of file
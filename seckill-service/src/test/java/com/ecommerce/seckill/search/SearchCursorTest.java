@@ -0,0 +1,63 @@
+package com.ecommerce.seckill.search;
+
+import com.ecommerce.seckill.entity.SeckillItem;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 搜索分页游标测试
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+class SearchCursorTest {
+    
+    @Test
+    void emptyCursorMeansFirstPage() {
+        assertNull(SearchCursor.parse(null));
+        assertNull(SearchCursor.parse(""));
+    }
+    
+    @Test
+    void parsesCursorProducedByToString() {
+        SearchCursor cursor = SearchCursor.parse(new SearchCursor(1700000000000L, 42L).toString());
+        
+        assertEquals(1700000000000L, cursor.getCreateTime());
+        assertEquals(42L, cursor.getId());
+    }
+    
+    @Test
+    void invalidCursorIsRejected() {
+        for (String invalid : new String[] {"abc", "123", "abc_1", "1_", "_1"}) {
+            RuntimeException e = assertThrows(RuntimeException.class, () -> SearchCursor.parse(invalid), invalid);
+            assertEquals("无效的分页游标", e.getMessage());
+        }
+    }
+    
+    @Test
+    void createTimeIsConvertedInUtcLikeElasticsearch() {
+        SeckillItem item = new SeckillItem();
+        item.setId(7L);
+        item.setCreateTime(LocalDateTime.of(1970, 1, 1, 0, 0, 1));
+        
+        SearchCursor cursor = SearchCursor.of(item);
+        
+        // ES按UTC解析不带时区的create_time，排序值与JVM默认时区无关
+        assertEquals(1000L, cursor.getCreateTime());
+        assertEquals("1000_7", cursor.toString());
+        assertEquals(item.getCreateTime(), SearchCursor.parse(cursor.toString()).getCreateDateTime());
+    }
+    
+    @Test
+    void missingCreateTimeSortsAsEpoch() {
+        SeckillItem item = new SeckillItem();
+        item.setId(7L);
+        
+        assertEquals(0L, SearchCursor.of(item).getCreateTime());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,296 @@
+package com.ecommerce.seckill.stock;
+
+import com.ecommerce.seckill.dao.SeckillItemMapper;
+import com.ecommerce.seckill.dao.SeckillStockModeMapper;
+import com.ecommerce.seckill.entity.SeckillItem;
+import com.ecommerce.seckill.entity.SeckillStockMode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * MySQL库存降级测试：以内存中的模式表驱动REDIS -> DEGRADING -> MYSQL -> RECOVERING -> REDIS的集群切换
+ * 
+ * @author ecommerce-team
+ * @since 1.0.0
+ */
+class MysqlStockFallbackTest {
+    
+    private InMemoryStockModeMapper modeMapper;
+    
+    private SeckillItemMapper seckillItemMapper;
+    
+    private RedisStockManager redisStockManager;
+    
+    private StringRedisTemplate stringRedisTemplate;
+    
+    private MysqlStockFallback fallback;
+    
+    @BeforeEach
+    void setUp() {
+        modeMapper = new InMemoryStockModeMapper();
+        seckillItemMapper = mock(SeckillItemMapper.class);
+        redisStockManager = mock(RedisStockManager.class);
+        stringRedisTemplate = mock(StringRedisTemplate.class);
+        StockWriteBehind stockWriteBehind = mock(StockWriteBehind.class);
+        when(stockWriteBehind.flushPending()).thenReturn(true);
+        
+        fallback = new MysqlStockFallback();
+        ReflectionTestUtils.setField(fallback, "seckillStockModeMapper", modeMapper);
+        ReflectionTestUtils.setField(fallback, "seckillItemMapper", seckillItemMapper);
+        ReflectionTestUtils.setField(fallback, "redisStockManager", redisStockManager);
+        ReflectionTestUtils.setField(fallback, "stockWriteBehind", stockWriteBehind);
+        ReflectionTestUtils.setField(fallback, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(fallback, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(fallback, "enabled", true);
+        ReflectionTestUtils.setField(fallback, "maxConcurrent", 2);
+        ReflectionTestUtils.setField(fallback, "acquireTimeoutMillis", 10L);
+        ReflectionTestUtils.setField(fallback, "recoverThreshold", 2);
+        ReflectionTestUtils.setField(fallback, "reseedBatchSize", 100);
+        ReflectionTestUtils.setField(fallback, "drainTimeoutMillis", 50L);
+        ReflectionTestUtils.setField(fallback, "leaseMillis", 3000L);
+        ReflectionTestUtils.setField(fallback, "nodeTimeoutSeconds", 10);
+        ReflectionTestUtils.setField(fallback, "reseedTimeoutSeconds", 60);
+        fallback.init();
+    }
+    
+    @Test
+    void startsInRedisModeAfterFirstSync() {
+        assertFalse(fallback.isDegraded());
+        assertTrue(fallback.enterRedis());
+        fallback.exitRedis();
+        assertFalse(fallback.enterRestore());
+        fallback.exitRestore();
+    }
+    
+    @Test
+    void redisFailureDegradesClusterToMysql() {
+        assertTrue(fallback.degrade(new RedisConnectionFailureException("Redis不可达")));
+        
+        // 请求降级后本节点立即停止Redis扣减
+        assertFalse(fallback.enterRedis());
+        assertEquals(SeckillStockMode.MODE_DEGRADING, modeMapper.mode);
+        
+        fallback.sync();
+        assertEquals(SeckillStockMode.MODE_MYSQL, modeMapper.mode);
+        assertFalse(fallback.isMysqlMode());
+        
+        fallback.sync();
+        assertTrue(fallback.isMysqlMode());
+        assertTrue(fallback.enterRestore());
+        fallback.exitRestore();
+    }
+    
+    @Test
+    void nonRedisFailureDoesNotDegrade() {
+        assertFalse(fallback.degrade(new IllegalStateException("业务异常")));
+        assertEquals(SeckillStockMode.MODE_REDIS, modeMapper.mode);
+        assertTrue(fallback.enterRedis());
+        fallback.exitRedis();
+    }
+    
+    @Test
+    void laggingNodeBlocksSwitchToMysql() {
+        modeMapper.heartbeat("other-node", modeMapper.epoch);
+        fallback.degrade(new RedisConnectionFailureException("Redis不可达"));
+        
+        fallback.sync();
+        assertEquals(SeckillStockMode.MODE_DEGRADING, modeMapper.mode);
+        
+        // 其他节点确认当前版本后切换
+        modeMapper.heartbeat("other-node", modeMapper.epoch);
+        fallback.sync();
+        assertEquals(SeckillStockMode.MODE_MYSQL, modeMapper.mode);
+    }
+    
+    @Test
+    void recoveryReseedsRedisAndSwitchesBack() {
+        degradeToMysql();
+        SeckillItem item = new SeckillItem();
+        item.setId(1L);
+        item.setStock(5);
+        when(seckillItemMapper.selectActiveAfterId(0L, 100)).thenReturn(Collections.singletonList(item));
+        when(redisStockManager.reseed(anyList(), anyLong())).thenReturn(true);
+        
+        // 切换到MySQL模式的同步中已通过一次健康检查，连续两次通过后开始恢复
+        fallback.sync();
+        assertEquals(SeckillStockMode.MODE_RECOVERING, modeMapper.mode);
+        assertTrue(fallback.isDegraded());
+        
+        fallback.sync();
+        assertEquals(SeckillStockMode.MODE_REDIS, modeMapper.mode);
+        verify(redisStockManager).reseed(Collections.singletonList(item), 1L);
+        
+        fallback.sync();
+        assertFalse(fallback.isDegraded());
+        assertTrue(fallback.enterRedis());
+        fallback.exitRedis();
+    }
+    
+    @Test
+    void failedReseedFallsBackToMysql() {
+        degradeToMysql();
+        when(seckillItemMapper.selectActiveAfterId(anyLong(), anyInt())).thenThrow(new IllegalStateException("查询失败"));
+        fallback.sync();
+        assertEquals(SeckillStockMode.MODE_RECOVERING, modeMapper.mode);
+        
+        fallback.sync();
+        assertEquals(SeckillStockMode.MODE_MYSQL, modeMapper.mode);
+    }
+    
+    @Test
+    void unhealthyRedisKeepsMysqlMode() {
+        degradeToMysql();
+        when(stringRedisTemplate.execute(any(RedisCallback.class))).thenThrow(new RedisConnectionFailureException("Redis不可达"));
+        
+        fallback.sync();
+        fallback.sync();
+        fallback.sync();
+        
+        assertEquals(SeckillStockMode.MODE_MYSQL, modeMapper.mode);
+        verify(redisStockManager, never()).reseed(anyList(), anyLong());
+    }
+    
+    @Test
+    void inFlightRestoreHoldsBackModeSwitch() {
+        assertFalse(fallback.enterRestore());
+        fallback.degrade(new RedisConnectionFailureException("Redis不可达"));
+        long epoch = modeMapper.epoch;
+        
+        // 回滚未结束，本节点不确认新版本，集群停留在DEGRADING
+        fallback.sync();
+        assertEquals(SeckillStockMode.MODE_DEGRADING, modeMapper.mode);
+        assertTrue(modeMapper.nodes.values().stream().noneMatch(ackedEpoch -> ackedEpoch == epoch));
+        
+        fallback.exitRestore();
+        fallback.sync();
+        assertEquals(SeckillStockMode.MODE_MYSQL, modeMapper.mode);
+    }
+    
+    @Test
+    void restoreIsRejectedWhileSwitching() {
+        fallback.degrade(new RedisConnectionFailureException("Redis不可达"));
+        
+        RuntimeException e = assertThrows(RuntimeException.class, fallback::enterRestore);
+        assertEquals("系统繁忙，请稍后重试", e.getMessage());
+    }
+    
+    @Test
+    void mysqlDeductionStopsWhenLeaseExpires() {
+        degradeToMysql();
+        assertTrue(fallback.isMysqlMode());
+        
+        ReflectionTestUtils.setField(fallback, "leaseExpireAt", System.currentTimeMillis() - 1);
+        assertFalse(fallback.isMysqlMode());
+    }
+    
+    private void degradeToMysql() {
+        fallback.degrade(new RedisConnectionFailureException("Redis不可达"));
+        fallback.sync();
+        fallback.sync();
+        assertTrue(fallback.isMysqlMode());
+    }
+    
+    /**
+     * 内存中的模式表和节点表，语义与SeckillStockModeMapper.xml一致（认领和心跳不判断超时）
+     */
+    private static final class InMemoryStockModeMapper implements SeckillStockModeMapper {
+        
+        private String mode = SeckillStockMode.MODE_REDIS;
+        
+        private long epoch = 1;
+        
+        private String claimOwner;
+        
+        private long claimSeq;
+        
+        /**
+         * 节点 -> 已确认的版本
+         */
+        private final Map<String, Long> nodes = new HashMap<>();
+        
+        @Override
+        public SeckillStockMode selectMode() {
+            SeckillStockMode shared = new SeckillStockMode();
+            shared.setMode(mode);
+            shared.setEpoch(epoch);
+            shared.setClaimOwner(claimOwner);
+            shared.setClaimSeq(claimSeq);
+            return shared;
+        }
+        
+        @Override
+        public Integer transit(String from, Long expectedEpoch, String to) {
+            if (!mode.equals(from) || epoch != expectedEpoch) {
+                return 0;
+            }
+            mode = to;
+            epoch++;
+            claimOwner = null;
+            return 1;
+        }
+        
+        @Override
+        public Integer claimReseed(Long expectedEpoch, String owner, Integer timeoutSeconds) {
+            if (!SeckillStockMode.MODE_RECOVERING.equals(mode) || epoch != expectedEpoch || claimOwner != null) {
+                return 0;
+            }
+            claimOwner = owner;
+            claimSeq++;
+            return 1;
+        }
+        
+        @Override
+        public Integer renewReseed(Long expectedEpoch, String owner) {
+            return SeckillStockMode.MODE_RECOVERING.equals(mode) && epoch == expectedEpoch && owner.equals(claimOwner) ? 1 : 0;
+        }
+        
+        @Override
+        public Integer finishReseed(Long expectedEpoch, String owner) {
+            if (renewReseed(expectedEpoch, owner) == 0) {
+                return 0;
+            }
+            mode = SeckillStockMode.MODE_REDIS;
+            epoch++;
+            claimOwner = null;
+            return 1;
+        }
+        
+        @Override
+        public Integer heartbeat(String node, Long ackedEpoch) {
+            nodes.put(node, ackedEpoch);
+            return 1;
+        }
+        
+        @Override
+        public Integer countLagging(Long expectedEpoch, Integer timeoutSeconds) {
+            return (int) nodes.values().stream().filter(ackedEpoch -> ackedEpoch != expectedEpoch.longValue()).count();
+        }
+        
+        @Override
+        public Integer deleteNode(String node) {
+            return nodes.remove(node) != null ? 1 : 0;
+        }
+    }
+}
\ No newline at end of file